@@ -0,0 +1,70 @@
+package org.systemsbiology.biotapestry.plugin.simulation.genetool.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.Link;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.ModelDepthFirstSearcher;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.ModelDepthFirstSearcher.DFSState;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.ModelDepthFirstSearcher.TraversalMode;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Building a ModelDepthFirstSearcher from unordered node and link sets and
+ * searching from one node, at doubling sizes. The network is a chain through
+ * all nodes, so the search reaches everything, plus random links. With the
+ * linear adjacency build BenchmarkRunner reports exponents near 1; the old
+ * per-source scan shows up near 2.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Xss64m"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AdjacencyScalingBenchmarks {
+
+	private static final int LINKS_PER_NODE = 4;
+
+	@Param({"1024", "4096", "16384", "65536", "262144", "1048576"})
+	public int linkCount;
+
+	private Set<String> nodes_;
+	private Set<Link> links_;
+
+	@Setup
+	public void setup() {
+		int nodeCount = linkCount / LINKS_PER_NODE;
+		Random random = new Random(BenchmarkNetworks.SEED);
+		nodes_ = new HashSet<String>();
+		links_ = new HashSet<Link>();
+		for (int i = 0; i < nodeCount; i++) {
+			nodes_.add("N" + i);
+			if (i > 0) {
+				links_.add(new Link("N" + (i - 1), "N" + i));
+			}
+		}
+		while (links_.size() < linkCount) {
+			links_.add(new Link("N" + random.nextInt(nodeCount), "N" + random.nextInt(nodeCount)));
+		}
+	}
+
+	@Benchmark
+	public DFSState buildAndSearch() {
+		ModelDepthFirstSearcher searcher = new ModelDepthFirstSearcher(nodes_, links_);
+		searcher.setTraversalMode(TraversalMode.EXPLICIT_STACK);
+		return searcher.run("N0");
+	}
+}
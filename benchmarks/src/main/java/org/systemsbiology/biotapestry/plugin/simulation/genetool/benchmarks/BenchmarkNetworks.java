@@ -0,0 +1,77 @@
+package org.systemsbiology.biotapestry.plugin.simulation.genetool.benchmarks;
+
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.CompactGraph;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.Link;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/*
+ * Seeded random networks for the benchmarks: half as many nodes as links,
+ * links along a hidden node order except for a few that point back and
+ * close cycles, so the feedback finders have real work to do.
+ */
+public class BenchmarkNetworks {
+
+	public static final long SEED = 20161018L;
+	public static final double FEEDBACK_FRACTION = 0.05;
+
+	private List<String> nodes_;
+	private List<Link> links_;
+
+	public BenchmarkNetworks(int linkCount) {
+		Random random = new Random(SEED);
+		int nodeCount = Math.max(2, linkCount / 2);
+		nodes_ = new ArrayList<String>(nodeCount);
+		for (int i = 0; i < nodeCount; i++) {
+			nodes_.add("N" + i);
+		}
+
+		links_ = new ArrayList<Link>(linkCount);
+		Set<Long> pairs = new HashSet<Long>();
+		while (links_.size() < linkCount) {
+			int a = random.nextInt(nodeCount);
+			int b = random.nextInt(nodeCount);
+			if (a == b) {
+				continue;
+			}
+			int src = Math.min(a, b);
+			int trg = Math.max(a, b);
+			if (random.nextDouble() < FEEDBACK_FRACTION) {
+				src = Math.max(a, b);
+				trg = Math.min(a, b);
+			}
+			if (pairs.add(Long.valueOf((long)src * nodeCount + trg))) {
+				links_.add(new Link(nodes_.get(src), nodes_.get(trg)));
+			}
+		}
+	}
+
+	public List<String> getNodes() {
+		return nodes_;
+	}
+
+	public List<Link> getLinks() {
+		return links_;
+	}
+
+	public CompactGraph buildGraph() {
+		return new CompactGraph(nodes_, links_);
+	}
+
+	/*
+	 * Nodes without inbound links, the start nodes the plugin searches from.
+	 */
+	public static List<String> rootNodeIDs(CompactGraph graph) {
+		List<String> roots = new ArrayList<String>();
+		for (int node = 0; node < graph.getNodeCount(); node++) {
+			if (graph.getInDegree(node) == 0) {
+				roots.add(graph.getNodeID(node));
+			}
+		}
+		return roots;
+	}
+}
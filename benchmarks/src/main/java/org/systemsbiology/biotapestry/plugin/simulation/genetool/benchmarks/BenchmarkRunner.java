@@ -0,0 +1,78 @@
+package org.systemsbiology.biotapestry.plugin.simulation.genetool.benchmarks;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+ * Runs the toolkit benchmarks with the GC profiler, for allocation rates,
+ * and writes the raw results as CSV. Afterwards prints, for each benchmark,
+ * the scaling exponent between successive sizes: the slope of log(time per
+ * operation) against log(links). Linear code stays near 1; a value near 2
+ * is the quadratic behavior this suite is meant to catch.
+ *
+ * Arguments: [benchmark regex] [result file]
+ */
+public class BenchmarkRunner {
+
+	public static void main(String[] args) throws RunnerException {
+		String include = (args.length > 0) ? args[0] : BenchmarkRunner.class.getPackage().getName() + ".*Benchmarks";
+		String resultFile = (args.length > 1) ? args[1] : "toolkit-benchmarks.csv";
+
+		Options options = new OptionsBuilder()
+			.include(include)
+			.addProfiler(GCProfiler.class)
+			.resultFormat(ResultFormatType.CSV)
+			.result(resultFile)
+			.build();
+		Collection<RunResult> results = new Runner(options).run();
+		System.out.print(reportScaling(results));
+	}
+
+	static String reportScaling(Collection<RunResult> results) {
+		// Scores by size, for each benchmark and strategy
+		Map<String, TreeMap<Integer, Double>> series = new LinkedHashMap<String, TreeMap<Integer, Double>>();
+		for (RunResult result : results) {
+			BenchmarkParams params = result.getParams();
+			String key = describe(params);
+			if (!series.containsKey(key)) {
+				series.put(key, new TreeMap<Integer, Double>());
+			}
+			series.get(key).put(Integer.valueOf(params.getParam("linkCount")), Double.valueOf(result.getPrimaryResult().getScore()));
+		}
+
+		StringBuffer buf = new StringBuffer();
+		buf.append("\nScaling exponents (slope of log time per op against log links):\n");
+		for (Map.Entry<String, TreeMap<Integer, Double>> entry : series.entrySet()) {
+			Map.Entry<Integer, Double> previous = null;
+			for (Map.Entry<Integer, Double> point : entry.getValue().entrySet()) {
+				if (previous != null) {
+					double sizeRatio = point.getKey().doubleValue() / previous.getKey().doubleValue();
+					// Throughput, so time per operation is the inverse of the score
+					double timeRatio = previous.getValue().doubleValue() / point.getValue().doubleValue();
+					buf.append(String.format("  %-60s %8d -> %8d: %5.2f%n", entry.getKey(),
+					                         previous.getKey(), point.getKey(), Math.log(timeRatio) / Math.log(sizeRatio)));
+				}
+				previous = point;
+			}
+		}
+		return buf.toString();
+	}
+
+	private static String describe(BenchmarkParams params) {
+		String name = params.getBenchmark();
+		name = name.substring(name.lastIndexOf('.', name.lastIndexOf('.') - 1) + 1);
+		String strategy = params.getParam("strategy");
+		return (strategy == null) ? name : name + " " + strategy;
+	}
+}
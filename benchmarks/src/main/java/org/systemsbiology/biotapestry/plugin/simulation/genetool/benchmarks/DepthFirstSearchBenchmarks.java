@@ -0,0 +1,66 @@
+package org.systemsbiology.biotapestry.plugin.simulation.genetool.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.CompactDFSState;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.CompactGraph;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.ModelDepthFirstSearcher;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.ModelDepthFirstSearcher.DFSState;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.ModelDepthFirstSearcher.TraversalMode;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Adjacency construction and depth first search over all root nodes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Xss64m"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DepthFirstSearchBenchmarks {
+
+	@Param({"1000", "10000", "100000", "1000000"})
+	public int linkCount;
+
+	private BenchmarkNetworks network_;
+	private CompactGraph graph_;
+	private List<String> roots_;
+
+	@Setup
+	public void setup() {
+		network_ = new BenchmarkNetworks(linkCount);
+		graph_ = network_.buildGraph();
+		roots_ = BenchmarkNetworks.rootNodeIDs(graph_);
+	}
+
+	@Benchmark
+	public CompactGraph buildAdjacency() {
+		return new CompactGraph(network_.getNodes(), network_.getLinks());
+	}
+
+	@Benchmark
+	public DFSState namedSearch() {
+		ModelDepthFirstSearcher searcher = new ModelDepthFirstSearcher(graph_);
+		searcher.setTraversalMode(TraversalMode.EXPLICIT_STACK);
+		return searcher.run(roots_);
+	}
+
+	@Benchmark
+	public CompactDFSState compactSearch() {
+		ModelDepthFirstSearcher searcher = new ModelDepthFirstSearcher(graph_);
+		searcher.setTraversalMode(TraversalMode.EXPLICIT_STACK);
+		return searcher.runCompact(roots_);
+	}
+}
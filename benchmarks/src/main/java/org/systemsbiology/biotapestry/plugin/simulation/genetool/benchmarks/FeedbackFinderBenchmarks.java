@@ -0,0 +1,84 @@
+package org.systemsbiology.biotapestry.plugin.simulation.genetool.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.GraphFeedbackFinder;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.Link;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * The GraphFeedbackFinder strategies. run() searches again from every root,
+ * which grows with roots times reachable links, so it has its own state
+ * with a smaller size range.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Xss64m"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FeedbackFinderBenchmarks {
+
+	@State(Scope.Benchmark)
+	public static class Network {
+		@Param({"1000", "10000", "100000", "1000000"})
+		public int linkCount;
+
+		GraphFeedbackFinder finder;
+		List<String> roots;
+
+		@Setup
+		public void setup() {
+			BenchmarkNetworks network = new BenchmarkNetworks(linkCount);
+			finder = new GraphFeedbackFinder(network.buildGraph());
+			roots = BenchmarkNetworks.rootNodeIDs(network.buildGraph());
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class SmallNetwork {
+		@Param({"1000", "3000", "10000"})
+		public int linkCount;
+
+		GraphFeedbackFinder finder;
+		List<String> roots;
+
+		@Setup
+		public void setup() {
+			BenchmarkNetworks network = new BenchmarkNetworks(linkCount);
+			finder = new GraphFeedbackFinder(network.buildGraph());
+			roots = BenchmarkNetworks.rootNodeIDs(network.buildGraph());
+		}
+	}
+
+	@Benchmark
+	public Set<Link> perRootSearch(SmallNetwork network) {
+		return network.finder.run(network.roots);
+	}
+
+	@Benchmark
+	public Set<Link> parallelPerRootSearch(SmallNetwork network) {
+		return network.finder.runParallel(network.roots, Runtime.getRuntime().availableProcessors());
+	}
+
+	@Benchmark
+	public Set<Link> singlePass(Network network) {
+		return network.finder.runSinglePass(network.roots);
+	}
+
+	@Benchmark
+	public Set<Link> componentSearch(Network network) {
+		return network.finder.runOnComponents();
+	}
+}
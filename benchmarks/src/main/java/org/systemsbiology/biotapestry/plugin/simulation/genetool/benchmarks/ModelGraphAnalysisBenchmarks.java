@@ -0,0 +1,67 @@
+package org.systemsbiology.biotapestry.plugin.simulation.genetool.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.systemsbiology.biotapestry.plugin.simulation.genetool.synthetic.InMemoryModelSource;
+import org.systemsbiology.biotapestry.plugin.simulation.genetool.synthetic.SyntheticModelGenerator;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.ModelGraphAnalysis;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.ModelGraphAnalysis.FeedbackStrategy;
+import org.systemsbiology.biotapestry.simulation.ModelLink;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * ModelGraphAnalysis on synthetic models. "fresh" drops the snapshot first,
+ * so it includes reading the model source and building the graph; "cached"
+ * only pays for the fingerprint check.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Xss64m"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ModelGraphAnalysisBenchmarks {
+
+	@Param({"1000", "10000", "100000", "1000000"})
+	public int linkCount;
+
+	@Param({"ROOT_DFS_SINGLE_PASS", "COMPONENT_DFS", "EADES_LIN_SMYTH"})
+	public String strategy;
+
+	private ModelGraphAnalysis analysis_;
+	private FeedbackStrategy feedbackStrategy_;
+
+	@Setup
+	public void setup() {
+		SyntheticModelGenerator generator = new SyntheticModelGenerator(BenchmarkNetworks.SEED);
+		generator.setNodeCount(Math.max(2, linkCount / 2));
+		generator.setLinksPerNode(2.0);
+		generator.setFeedbackFraction(BenchmarkNetworks.FEEDBACK_FRACTION);
+		generator.setTimeCount(1);
+		InMemoryModelSource source = generator.generate();
+		analysis_ = new ModelGraphAnalysis(source);
+		feedbackStrategy_ = FeedbackStrategy.valueOf(strategy);
+	}
+
+	@Benchmark
+	public Set<ModelLink> freshFeedbackEdges() {
+		analysis_.invalidate();
+		return analysis_.findFeedbackEdges(feedbackStrategy_);
+	}
+
+	@Benchmark
+	public Set<ModelLink> cachedFeedbackEdges() {
+		return analysis_.findFeedbackEdges(feedbackStrategy_);
+	}
+}
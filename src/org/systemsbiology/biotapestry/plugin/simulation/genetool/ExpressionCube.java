@@ -0,0 +1,288 @@
+/*
+**    Copyright (C) 2003-2015 Institute for Systems Biology
+**                            Seattle, Washington, USA.
+**
+**    This library is free software; you can redistribute it and/or
+**    modify it under the terms of the GNU Lesser General Public
+**    License as published by the Free Software Foundation; either
+**    version 2.1 of the License, or (at your option) any later version.
+**
+**    This library is distributed in the hope that it will be useful,
+**    but WITHOUT ANY WARRANTY; without even the implied warranty of
+**    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+**    Lesser General Public License for more details.
+**
+**    You should have received a copy of the GNU Lesser General Public
+**    License along with this library; if not, write to the Free Software
+**    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package org.systemsbiology.biotapestry.plugin.simulation.genetool;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.systemsbiology.biotapestry.simulation.ModelExpressionEntry;
+import org.systemsbiology.biotapestry.simulation.ModelSource;
+
+/***************************************************************************
+ *
+ * Expression data of a model source as a dense gene x region x time cube,
+ * one byte per cell, read from the source once per conversion. Each byte
+ * holds the level and source of the entry; cells the source has no entry
+ * for read as NO_DATA with no source specified. Variable levels keep their
+ * level but not their value.
+ *
+ * Genes, regions and times are numbered in the order they were given. A
+ * gene's cells are contiguous, so genes can be filled in parallel.
+ *
+ */
+public class ExpressionCube {
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PRIVATE VARIABLES
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    private static final ModelExpressionEntry.Level[] LEVELS = ModelExpressionEntry.Level.values();
+    private static final ModelExpressionEntry.Source[] SOURCES = ModelExpressionEntry.Source.values();
+    private static final int SOURCE_COUNT = SOURCES.length;
+
+    // Smallest number of genes one parallel task fills
+    private static final int MIN_TASK_GENES = 16;
+
+    private List<String> genes_;
+    private List<String> regions_;
+    private int[] times_;
+    private Map<String, Integer> geneIndex_;
+    private Map<String, Integer> regionIndex_;
+
+    // 1 + level * SOURCE_COUNT + source; 0 when there is no data
+    private byte[] cells_;
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PUBLIC CONSTRUCTORS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    /***************************************************************************
+     **
+     ** An empty cube; times must be in ascending order.
+     */
+
+    public ExpressionCube(Collection<String> genes, Collection<String> regions, Collection<Integer> times) {
+        genes_ = new ArrayList<String>(genes);
+        regions_ = new ArrayList<String>(regions);
+        times_ = new int[times.size()];
+        int i = 0;
+        for (Integer time : times) {
+            times_[i++] = time.intValue();
+        }
+        geneIndex_ = indexOf(genes_);
+        regionIndex_ = indexOf(regions_);
+        cells_ = new byte[genes_.size() * regions_.size() * times_.length];
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PUBLIC METHODS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    /***************************************************************************
+     **
+     ** Fills every cell from the source. With parallelism above 1 the genes
+     ** are split across threads, which requires a source that can be read
+     ** from several threads at once.
+     */
+
+    public void fill(ModelSource source, int parallelism) {
+        if (parallelism <= 1 || genes_.size() <= MIN_TASK_GENES) {
+            fillGenes(source, 0, genes_.size());
+            return;
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new FillTask(source, 0, genes_.size()));
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    public List<String> getGenes() {
+        return new ArrayList<String>(genes_);
+    }
+
+    public List<String> getRegions() {
+        return new ArrayList<String>(regions_);
+    }
+
+    public int[] getTimes() {
+        return times_.clone();
+    }
+
+    public int getGeneCount() {
+        return genes_.size();
+    }
+
+    public int getRegionCount() {
+        return regions_.size();
+    }
+
+    public int getTimeCount() {
+        return times_.length;
+    }
+
+    public String getGene(int gene) {
+        return genes_.get(gene);
+    }
+
+    public String getRegion(int region) {
+        return regions_.get(region);
+    }
+
+    public int getTime(int time) {
+        return times_[time];
+    }
+
+    /**
+     * Index of a gene, or -1 if it has no expression data.
+     */
+    public int getGeneIndex(String gene) {
+        Integer index = (gene == null) ? null : geneIndex_.get(gene);
+        return (index == null) ? -1 : index.intValue();
+    }
+
+    public int getRegionIndex(String region) {
+        Integer index = regionIndex_.get(region);
+        return (index == null) ? -1 : index.intValue();
+    }
+
+    public int getTimeIndex(int time) {
+        int index = Arrays.binarySearch(times_, time);
+        return (index < 0) ? -1 : index;
+    }
+
+    public void set(int gene, int region, int time, ModelExpressionEntry.Level level, ModelExpressionEntry.Source source) {
+        cells_[cell(gene, region, time)] = encode(level, source);
+    }
+
+    public ModelExpressionEntry.Level getLevel(int gene, int region, int time) {
+        int value = cells_[cell(gene, region, time)];
+        return (value == 0) ? ModelExpressionEntry.Level.NO_DATA : LEVELS[(value - 1) / SOURCE_COUNT];
+    }
+
+    public ModelExpressionEntry.Source getSource(int gene, int region, int time) {
+        int value = cells_[cell(gene, region, time)];
+        return (value == 0) ? ModelExpressionEntry.Source.NO_SOURCE_SPECIFIED : SOURCES[(value - 1) % SOURCE_COUNT];
+    }
+
+    /***************************************************************************
+     **
+     ** Answers if the cell has exactly this level and source, without
+     ** decoding it.
+     */
+
+    public boolean matches(int gene, int region, int time, ModelExpressionEntry.Level level, ModelExpressionEntry.Source source) {
+        return cells_[cell(gene, region, time)] == encode(level, source);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PACKAGE-VISIBLE METHODS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Raw cell value; equal values mean equal level and source.
+     */
+    byte getCode(int gene, int region, int time) {
+        return cells_[cell(gene, region, time)];
+    }
+
+    /**
+     * Cell value for a level and source; NO_DATA without a source is 0,
+     * the same as a missing entry.
+     */
+    static byte encode(ModelExpressionEntry.Level level, ModelExpressionEntry.Source source) {
+        if (level == ModelExpressionEntry.Level.NO_DATA && source == ModelExpressionEntry.Source.NO_SOURCE_SPECIFIED) {
+            return 0;
+        }
+        return (byte)(1 + level.ordinal() * SOURCE_COUNT + source.ordinal());
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PRIVATE INSTANCE METHODS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    private int cell(int gene, int region, int time) {
+        return (gene * regions_.size() + region) * times_.length + time;
+    }
+
+    private void fillGenes(ModelSource source, int from, int to) {
+        for (int g = from; g < to; g++) {
+            String gene = genes_.get(g);
+            for (int r = 0; r < regions_.size(); r++) {
+                String region = regions_.get(r);
+                int base = cell(g, r, 0);
+                for (int t = 0; t < times_.length; t++) {
+                    ModelExpressionEntry entry = source.getExpressionEntry(gene, region, times_[t]);
+                    cells_[base + t] = (entry == null) ? 0 : encode(entry.getLevel(), entry.getSource());
+                }
+            }
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PRIVATE STATIC METHODS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    private static Map<String, Integer> indexOf(List<String> names) {
+        Map<String, Integer> index = new HashMap<String, Integer>();
+        for (int i = 0; i < names.size(); i++) {
+            index.put(names.get(i), Integer.valueOf(i));
+        }
+        return index;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PRIVATE CLASSES
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    private class FillTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private ModelSource source_;
+        private int from_;
+        private int to_;
+
+        FillTask(ModelSource source, int from, int to) {
+            source_ = source;
+            from_ = from;
+            to_ = to;
+        }
+
+        protected void compute() {
+            if (to_ - from_ <= MIN_TASK_GENES) {
+                fillGenes(source_, from_, to_);
+                return;
+            }
+            int mid = (from_ + to_) >>> 1;
+            invokeAll(new FillTask(source_, from_, mid), new FillTask(source_, mid, to_));
+        }
+    }
+}
@@ -0,0 +1,228 @@
+/*
+**    Copyright (C) 2003-2015 Institute for Systems Biology
+**                            Seattle, Washington, USA.
+**
+**    This library is free software; you can redistribute it and/or
+**    modify it under the terms of the GNU Lesser General Public
+**    License as published by the Free Software Foundation; either
+**    version 2.1 of the License, or (at your option) any later version.
+**
+**    This library is distributed in the hope that it will be useful,
+**    but WITHOUT ANY WARRANTY; without even the implied warranty of
+**    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+**    Lesser General Public License for more details.
+**
+**    You should have received a copy of the GNU Lesser General Public
+**    License along with this library; if not, write to the Free Software
+**    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package org.systemsbiology.biotapestry.plugin.simulation.genetool;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.systemsbiology.biotapestry.simulation.ModelExpressionEntry;
+
+/***************************************************************************
+ *
+ * Run-length index of an ExpressionCube: for every gene and region, the
+ * maximal runs of time points sharing one expression level and source.
+ * Queries for the intervals of a given level cost O(runs) and never go
+ * back to the model source.
+ *
+ * An interval starts at the first time point of its run and ends at the
+ * first time point of the next run, or at the last time point when the run
+ * reaches the end of the data. This is the end time the adapter has always
+ * used for input slices.
+ *
+ */
+public class ExpressionTimeline {
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PRIVATE VARIABLES
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    private ExpressionCube cube_;
+
+    // Runs of gene g, region r are runStarts_[runOffsets_[c] .. runOffsets_[c + 1]),
+    // with c = g * regionCount + r
+    private int[] runOffsets_;
+    private int[] runStarts_;
+    private byte[] runCodes_;
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PUBLIC CONSTRUCTORS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    public ExpressionTimeline(ExpressionCube cube) {
+        cube_ = cube;
+        int regionCount = cube.getRegionCount();
+        int timeCount = cube.getTimeCount();
+        int sequences = cube.getGeneCount() * regionCount;
+
+        runOffsets_ = new int[sequences + 1];
+        int runs = 0;
+        for (int c = 0; c < sequences; c++) {
+            runOffsets_[c] = runs;
+            runs += countRuns(c / regionCount, c % regionCount, timeCount);
+        }
+        runOffsets_[sequences] = runs;
+
+        runStarts_ = new int[runs];
+        runCodes_ = new byte[runs];
+        int run = 0;
+        for (int c = 0; c < sequences; c++) {
+            int gene = c / regionCount;
+            int region = c % regionCount;
+            for (int t = 0; t < timeCount; t++) {
+                byte code = cube.getCode(gene, region, t);
+                if (t == 0 || code != runCodes_[run - 1]) {
+                    runStarts_[run] = t;
+                    runCodes_[run] = code;
+                    run++;
+                }
+            }
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PUBLIC METHODS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    public ExpressionCube getCube() {
+        return cube_;
+    }
+
+    public int getRunCount(int gene, int region) {
+        int c = sequence(gene, region);
+        return runOffsets_[c + 1] - runOffsets_[c];
+    }
+
+    /***************************************************************************
+     **
+     ** First interval of a gene in a region with the given level and source,
+     ** or null if there is none. Unknown genes and regions have no data at any
+     ** time point.
+     */
+
+    public Interval findFirstInterval(String gene, String region, ModelExpressionEntry.Level level, ModelExpressionEntry.Source source) {
+        List<Interval> intervals = findIntervals(gene, region, level, source, true);
+        return intervals.isEmpty() ? null : intervals.get(0);
+    }
+
+    /***************************************************************************
+     **
+     ** All intervals of a gene in a region with the given level and source,
+     ** in time order.
+     */
+
+    public List<Interval> findIntervals(String gene, String region, ModelExpressionEntry.Level level, ModelExpressionEntry.Source source) {
+        return findIntervals(gene, region, level, source, false);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PUBLIC CLASSES
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    public static class Interval {
+        private int startTime_;
+        private int endTime_;
+
+        public Interval(int startTime, int endTime) {
+            startTime_ = startTime;
+            endTime_ = endTime;
+        }
+
+        public int getStartTime() {
+            return startTime_;
+        }
+
+        public int getEndTime() {
+            return endTime_;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Interval)) {
+                return false;
+            }
+            Interval interval = (Interval)other;
+            return startTime_ == interval.startTime_ && endTime_ == interval.endTime_;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * startTime_ + endTime_;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + startTime_ + ", " + endTime_ + "]";
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PRIVATE INSTANCE METHODS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    private int sequence(int gene, int region) {
+        return gene * cube_.getRegionCount() + region;
+    }
+
+    private int countRuns(int gene, int region, int timeCount) {
+        int runs = 0;
+        byte previous = 0;
+        for (int t = 0; t < timeCount; t++) {
+            byte code = cube_.getCode(gene, region, t);
+            if (t == 0 || code != previous) {
+                runs++;
+                previous = code;
+            }
+        }
+        return runs;
+    }
+
+    private List<Interval> findIntervals(String gene, String region, ModelExpressionEntry.Level level,
+                                         ModelExpressionEntry.Source source, boolean firstOnly) {
+        List<Interval> intervals = new ArrayList<Interval>();
+        int timeCount = cube_.getTimeCount();
+        if (timeCount == 0) {
+            return intervals;
+        }
+        byte code = ExpressionCube.encode(level, source);
+        int geneIndex = cube_.getGeneIndex(gene);
+        int regionIndex = cube_.getRegionIndex(region);
+        int lastTime = cube_.getTime(timeCount - 1);
+
+        if (geneIndex < 0 || regionIndex < 0) {
+            if (code == 0) {
+                intervals.add(new Interval(cube_.getTime(0), lastTime));
+            }
+            return intervals;
+        }
+
+        int c = sequence(geneIndex, regionIndex);
+        int end = runOffsets_[c + 1];
+        for (int run = runOffsets_[c]; run < end; run++) {
+            if (runCodes_[run] != code) {
+                continue;
+            }
+            int endTime = (run + 1 < end) ? cube_.getTime(runStarts_[run + 1]) : lastTime;
+            intervals.add(new Interval(cube_.getTime(runStarts_[run]), endTime));
+            if (firstOnly) {
+                break;
+            }
+        }
+        return intervals;
+    }
+}
@@ -0,0 +1,262 @@
+/*
+**    Copyright (C) 2003-2015 Institute for Systems Biology
+**                            Seattle, Washington, USA.
+**
+**    This library is free software; you can redistribute it and/or
+**    modify it under the terms of the GNU Lesser General Public
+**    License as published by the Free Software Foundation; either
+**    version 2.1 of the License, or (at your option) any later version.
+**
+**    This library is distributed in the hope that it will be useful,
+**    but WITHOUT ANY WARRANTY; without even the implied warranty of
+**    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+**    Lesser General Public License for more details.
+**
+**    You should have received a copy of the GNU Lesser General Public
+**    License along with this library; if not, write to the Free Software
+**    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package org.systemsbiology.biotapestry.plugin.simulation.genetool;
+
+import java.awt.HeadlessException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import grnboolmodel.GRNBoolModel;
+import grnboolmodel.Model;
+
+import org.systemsbiology.biotapestry.plugin.simulation.genetool.synthetic.ModelSourceFile;
+import org.systemsbiology.biotapestry.plugin.simulation.genetool.synthetic.SyntheticModelGenerator;
+import org.systemsbiology.biotapestry.simulation.ModelSource;
+
+/***************************************************************************
+ *
+ * Runs convert, simulate and export without the plugin window, for sweeps
+ * on machines with no user at the screen:
+ *
+ *   GeNeToolBatchRunner (<snapshot> | -synthetic <nodes> <seed>)
+ *                       [-o <results.xml>] [-save <snapshot>]
+ *
+ * The model comes from a ModelSourceFile snapshot or from the synthetic
+ * generator. It is converted, GeNeTool computes a model of it, and the
+ * simulated expression is exported. Results go to the output file, or to
+ * standard out, in the XML the plugin prints. The adapter's progress
+ * messages and the time taken by each stage go to standard error, so that
+ * standard out only ever holds the XML.
+ *
+ * The GeNeTool engine is never init()ed, so no window or animation thread
+ * is started; its operators are set up directly instead. It is still an
+ * AWT component, though, and a JVM running with java.awt.headless=true
+ * refuses to create one; on a build box without a display, run under a
+ * virtual display such as xvfb-run.
+ *
+ */
+public class GeNeToolBatchRunner {
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PRIVATE VARIABLES
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    private Map<String, Long> stageNanos_;
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PUBLIC CONSTRUCTORS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    public GeNeToolBatchRunner() {
+        stageNanos_ = new LinkedHashMap<String, Long>();
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PUBLIC METHODS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    /***************************************************************************
+     **
+     ** Converts the model into a fresh GeNeTool engine, has GeNeTool compute
+     ** a model of it and returns the XML of the simulated expression, or null
+     ** if the engine computed no model to read back.
+     */
+
+    public String run(ModelSource source) {
+        long start = System.nanoTime();
+        GRNBoolModel engine = new GRNBoolModel();
+        // What the engine's setup() would do if it were init()ed
+        engine.pm.initOperators();
+        GeNeToolModelAdapter adapter = new GeNeToolModelAdapter(source, engine);
+        endStage("setup", start);
+
+        start = System.nanoTime();
+        adapter.convert();
+        endStage("convert", start);
+
+        start = System.nanoTime();
+        adapter.simulate();
+        ArrayList<Model> models = engine.lm.getModelArray();
+        if (models == null || models.isEmpty()) {
+            endStage("simulate", start);
+            return null;
+        }
+        HashMap<String, ArrayList<GeNeToolModelAdapter.SimulatorRow>> table =
+            adapter.getSimulatedExpressionTable(adapter.maxExpressionTimePoint());
+        endStage("simulate", start);
+
+        start = System.nanoTime();
+        String xml = new GeNeToolSimulationTranslator(table).asXMLString();
+        endStage("export", start);
+        return xml;
+    }
+
+    /**
+     * Stage names and their times in nanoseconds, in the order they ran.
+     */
+    public Map<String, Long> getStageTimes() {
+        return new LinkedHashMap<String, Long>(stageNanos_);
+    }
+
+    public String reportStageTimes() {
+        StringBuffer buf = new StringBuffer();
+        long total = 0L;
+        for (Map.Entry<String, Long> stage : stageNanos_.entrySet()) {
+            total += stage.getValue().longValue();
+            buf.append(String.format("%-10s %10.3f ms%n", stage.getKey(), stage.getValue().longValue() / 1.0E6));
+        }
+        buf.append(String.format("%-10s %10.3f ms%n", "total", total / 1.0E6));
+        return buf.toString();
+    }
+
+    public static void main(String[] args) {
+        String snapshot = null;
+        String output = null;
+        String save = null;
+        int nodeCount = -1;
+        long seed = 0L;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("-o")) {
+                    output = args[++i];
+                }
+                else if (args[i].equals("-save")) {
+                    save = args[++i];
+                }
+                else if (args[i].equals("-synthetic")) {
+                    nodeCount = Integer.parseInt(args[++i]);
+                    seed = Long.parseLong(args[++i]);
+                }
+                else {
+                    snapshot = args[i];
+                }
+            }
+        }
+        catch (RuntimeException ex) {
+            snapshot = null;
+            nodeCount = -1;
+        }
+        if ((snapshot == null) == (nodeCount < 0)) {
+            System.err.println("Usage: GeNeToolBatchRunner (<snapshot> | -synthetic <nodes> <seed>) [-o <results.xml>] [-save <snapshot>]");
+            System.exit(2);
+        }
+
+        // The adapter reports its progress on standard out; keep that for the results
+        PrintStream results = System.out;
+        System.setOut(System.err);
+
+        GeNeToolBatchRunner runner = new GeNeToolBatchRunner();
+        int status = 0;
+        try {
+            long start = System.nanoTime();
+            ModelSource source;
+            if (snapshot != null) {
+                Reader in = new InputStreamReader(new FileInputStream(snapshot), "UTF-8");
+                try {
+                    source = ModelSourceFile.read(in);
+                }
+                finally {
+                    in.close();
+                }
+            }
+            else {
+                SyntheticModelGenerator generator = new SyntheticModelGenerator(seed);
+                generator.setNodeCount(nodeCount);
+                source = generator.generate();
+            }
+            runner.endStage("load", start);
+
+            if (save != null) {
+                start = System.nanoTime();
+                writeFile(save, source);
+                runner.endStage("save", start);
+            }
+
+            String xml = runner.run(source);
+            if (xml == null) {
+                System.err.println("GeNeTool computed no model; nothing to export.");
+                status = 1;
+            }
+            else if (output == null) {
+                results.println(xml);
+                results.flush();
+            }
+            else {
+                Writer out = new OutputStreamWriter(new FileOutputStream(output), "UTF-8");
+                try {
+                    out.write(xml);
+                }
+                finally {
+                    out.close();
+                }
+            }
+        }
+        catch (HeadlessException ex) {
+            System.err.println("The GeNeTool engine needs an AWT display; run under a virtual display such as xvfb-run.");
+            status = 1;
+        }
+        catch (IOException ex) {
+            System.err.println(ex.getMessage());
+            status = 1;
+        }
+        catch (RuntimeException ex) {
+            ex.printStackTrace();
+            status = 1;
+        }
+        System.err.print(runner.reportStageTimes());
+        System.exit(status);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PRIVATE METHODS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    private void endStage(String stage, long startNanos) {
+        stageNanos_.put(stage, Long.valueOf(System.nanoTime() - startNanos));
+    }
+
+    private static void writeFile(String fileName, ModelSource source) throws IOException {
+        Writer out = new OutputStreamWriter(new FileOutputStream(fileName), "UTF-8");
+        try {
+            ModelSourceFile.write(source, out);
+        }
+        finally {
+            out.close();
+        }
+    }
+}
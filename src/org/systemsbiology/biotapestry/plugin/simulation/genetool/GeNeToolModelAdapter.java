@@ -20,10 +20,15 @@
 package org.systemsbiology.biotapestry.plugin.simulation.genetool;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 import grnboolmodel.*;
 import org.systemsbiology.biotapestry.analysis.Link;
 import org.systemsbiology.biotapestry.plugin.simulation.genetool.vectorequation.*;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.CompactGraph;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.ModelGraphAnalysis;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.ModelSnapshot;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.SpatioTemporalInfluenceGraph;
 import org.systemsbiology.biotapestry.simulation.ModelExpressionEntry;
 import org.systemsbiology.biotapestry.simulation.ModelExpressionEntry.Source;
 import org.systemsbiology.biotapestry.simulation.ModelLink;
@@ -44,17 +49,21 @@ public class GeNeToolModelAdapter {
 	private ArrayList<Domain> domains_;
 	private Map<String, Domain> domainMap_;
 
-	private Map<String, String> nodeIDsToNames_;
-	private Map<String, String> nodeIDsToModelSourceNames_;
-	private Map<String, String> geneNameMap_;
-	private Map<String, String> nonGeneNameMap_;
+	private NodeSymbolTable symbols_;
 
-	private Map<String, String> namesToNodeID_;
-    private Map<String, String> nodeIDToExpressionGeneMap_;
+	private Map<String, VectorEquationNode> gntGeneNodes_;
 
-    private Map<String, ModelNode> nodeIDToModelNode_;
+	private ModelGraphAnalysis graphAnalysis_;
 
-	private Map<String, VectorEquationNode> gntGeneNodes_;
+	// Root model of mSrc_ as of the last convert()
+	private ModelSnapshot model_;
+
+	private ExpressionCube expression_;
+	private ExpressionTimeline timeline_;
+
+	// Equations built by convert() before they are added to the genes, by node ID
+	private Map<String, VectorEquationNode> geneEquations_;
+	private Map<String, VectorEquationNode> inputEquations_;
 
 	private static int LOGIC_OP_AND = 1;
 	private static int LOGIC_OP_OR = 2;
@@ -67,6 +76,18 @@ public class GeNeToolModelAdapter {
 
     private static boolean ENABLE_UBIQUITOUS_DETECTION = false;
 
+    private static ModelGraphAnalysis.FeedbackStrategy FEEDBACK_STRATEGY = ModelGraphAnalysis.FeedbackStrategy.COMPONENT_DFS;
+    private static boolean REPORT_FEEDBACK_STRATEGIES = false;
+    // Values above 1 need a ModelSource that tolerates concurrent reads
+    private static int EXPRESSION_LOAD_PARALLELISM = 1;
+    // Drive root inputs with every expressed interval in every region, not just the first
+    // interval of the last region with one
+    private static boolean ENABLE_MULTI_INTERVAL_INPUTS = false;
+    // Pool threads for the pure conversion stages and the feedback searches they start; 1 runs
+    // convert() in sequence. Stages that read the model source or change the GRNBoolModel always
+    // run on the calling thread.
+    private static int CONVERT_PARALLELISM = Runtime.getRuntime().availableProcessors();
+
 	public GeNeToolModelAdapter(ModelSource mSrc, GRNBoolModel grnBM) {
 		mSrc_ = mSrc;
 		p = grnBM;
@@ -74,17 +95,12 @@ public class GeNeToolModelAdapter {
 
 		domains_ = new ArrayList<Domain>();
 		domainMap_ = new HashMap<String, Domain>();
-		nodeIDsToNames_ = new HashMap<String, String>();
-		nodeIDsToModelSourceNames_ = new HashMap<String, String>();
-		geneNameMap_ = new HashMap<String, String>();
-		nonGeneNameMap_ = new HashMap<String, String>();
-
-		namesToNodeID_ = new HashMap<String, String>();
-        nodeIDToExpressionGeneMap_ = new HashMap<String, String>();
 
-        nodeIDToModelNode_ = new HashMap<String, ModelNode>();
+		symbols_ = new NodeSymbolTable(new ArrayList<ModelNode>());
 
 		gntGeneNodes_ = new HashMap<String, VectorEquationNode>();
+
+		graphAnalysis_ = new ModelGraphAnalysis(mSrc_);
 	}
 	
 	/***************************************************************************
@@ -92,23 +108,77 @@ public class GeNeToolModelAdapter {
 	 * Builds a model into a GRNBoolModel instance by converting
 	 * from a BioTapestry model.
 	 *
+	 * The conversion runs as a pipeline of stages. Reading the model source
+	 * and every stage that touches the GRNBoolModel run on the calling
+	 * thread, one at a time in a fixed order, as neither is safe to use from
+	 * other threads. Only the pure computation, the symbol table, the vector
+	 * equations and the feedback searches behind them, goes to a pool of
+	 * CONVERT_PARALLELISM threads and runs alongside.
+	 *
 	 */
 	public void convert() {
 		System.out.println("GeNeToolModelAdapter::convert");
-		createNodeIdToNameMapping();
-
-		deleteModel();
-
-		buildRegions();
-		buildDomains();
-		buildDomainTopology();
-		nodesToGenes();
-		buildVectorEquationGeneNodes();
-		buildGeneExpression();
-		buildVectorEquationsForGenes();
-		buildVectorEquationsForInputs();
-		
-		updateDomainsFromGenes();
+		StagePipeline pipeline = new StagePipeline();
+
+		pipeline.addCallerStage("readModel", new Runnable() {
+			public void run() { readModel(); }
+		});
+		pipeline.addStage("symbols", new Runnable() {
+			public void run() { createNodeIdToNameMapping(); }
+		}, "readModel");
+		pipeline.addCallerStage("loadExpression", new Runnable() {
+			public void run() { loadExpression(); }
+		}, "readModel");
+		pipeline.addCallerStage("deleteModel", new Runnable() {
+			public void run() { deleteModel(); }
+		}, "readModel");
+		pipeline.addCallerStage("regions", new Runnable() {
+			public void run() { buildRegions(); }
+		}, "readModel", "deleteModel");
+		pipeline.addCallerStage("domains", new Runnable() {
+			public void run() { buildDomains(); }
+		}, "regions");
+		pipeline.addCallerStage("domainTopology", new Runnable() {
+			public void run() { buildDomainTopology(); }
+		}, "domains");
+		pipeline.addCallerStage("genes", new Runnable() {
+			public void run() { nodesToGenes(); }
+		}, "domainTopology", "symbols");
+		pipeline.addStage("geneNodes", new Runnable() {
+			public void run() { buildVectorEquationGeneNodes(); }
+		}, "symbols");
+		pipeline.addCallerStage("geneExpression", new Runnable() {
+			public void run() { buildGeneExpression(); }
+		}, "genes", "loadExpression");
+		pipeline.addStage("geneEquations", new Runnable() {
+			public void run() { buildVectorEquationsForGenes(); }
+		}, "geneNodes");
+		pipeline.addStage("inputEquations", new Runnable() {
+			public void run() { buildVectorEquationsForInputs(); }
+		}, "symbols", "loadExpression");
+		pipeline.addCallerStage("addGeneEquations", new Runnable() {
+			public void run() { addVectorEquationsToGenes(geneEquations_); }
+		}, "geneExpression", "geneEquations");
+		pipeline.addCallerStage("addInputEquations", new Runnable() {
+			public void run() { addVectorEquationsToGenes(inputEquations_); }
+		}, "addGeneEquations", "inputEquations");
+		pipeline.addCallerStage("updateDomains", new Runnable() {
+			public void run() { updateDomainsFromGenes(); }
+		}, "domainTopology", "addInputEquations");
+
+		if (CONVERT_PARALLELISM <= 1) {
+			pipeline.run(1);
+			return;
+		}
+		ForkJoinPool pool = new ForkJoinPool(CONVERT_PARALLELISM);
+		graphAnalysis_.setPool(pool);
+		try {
+			pipeline.run(pool);
+		}
+		finally {
+			graphAnalysis_.setPool(null);
+			pool.shutdown();
+		}
 	}
 	
 	/***************************************************************************
@@ -135,7 +205,7 @@ public class GeNeToolModelAdapter {
 	 *
 	 */
 	private void buildRegions() {
-		List<ModelRegion> mrl = mSrc_.getRegions();
+		List<ModelRegion> mrl = model_.getRegions();
 
 		// The maximum time point has to be known and set
 		// inside the RegionManager before doing anything else.
@@ -174,7 +244,7 @@ public class GeNeToolModelAdapter {
 	  * Can be called after the progenitors (Regions) have been created into the GeNeTool model.
 	  */
 	private void buildDomains() {		
-		List<ModelRegion> mrl = mSrc_.getRegions();
+		List<ModelRegion> mrl = model_.getRegions();
 		Set<String> regionsWithDescendants = new HashSet<String>();
 		Map<String, List<String>> regionToLineageMap = new HashMap<String, List<String>>();
 				
@@ -248,7 +318,7 @@ public class GeNeToolModelAdapter {
 	 */
 	private void buildDomainTopology() {
 		Map<String, List<Objet[]>> domainLinkMap = new HashMap<String, List<Objet[]>>();
-		Iterator<ModelRegionTopologyForTime> lit = mSrc_.getRegionTopology();
+		Iterator<ModelRegionTopologyForTime> lit = model_.getRegionTopology();
 		while (lit.hasNext()) {
 			ModelRegionTopologyForTime topo = lit.next();
 			int minTime = topo.getMinTime();
@@ -303,7 +373,8 @@ public class GeNeToolModelAdapter {
 	 * Refreshes the data inside the Domain objects.
 	 * 
 	 * Must be called after Genes are created into the GeNeTool model and
-	 * expression data has been set for the Genes. 
+	 * expression data has been set for the Genes. Domain.computeData() works
+	 * on the shared GRNBoolModel, so the domains are updated one at a time.
 	 *
 	 */
 	private void updateDomainsFromGenes() {
@@ -318,74 +389,25 @@ public class GeNeToolModelAdapter {
 	 * in the GeNeTool model.
 	 *
 	 */
-	private boolean isUbiquitousNode(String id) {
-		String name = getUniqueNodeName(id);
+	private boolean isUbiquitousNode(int symbol) {
+		String name = symbols_.getName(symbol);
 		return DataUtil.normKey(name).contains("UBIQ");
 	}
 
-	private String normalizeName(String name) {
-		return DataUtil.normKey(name);
-	}
-
 	/***************************************************************************
 	 *
 	 * Creates a unique name for each BioTapestry model node.
 	 * DataUtil.normKey is used for removing white space from node names.
-	 *
-	 * TODO: Ensure that usage of DataUtil.normKey doesn't result in aliasing.
+	 * Names that end up shared by several nodes are reported; the last
+	 * such node is the one found by name.
 	 */
 	private void createNodeIdToNameMapping() {
-		// Generate unique names first
-		Iterator<ModelNode> nit = mSrc_.getRootModelNodes();
-		while (nit.hasNext()) {
-			ModelNode modelNode = nit.next();
-			String uniqueName = normalizeName(modelNode.getUniqueName());
-			String uniqueInternalID = modelNode.getUniqueInternalID();
-			nodeIDsToModelSourceNames_.put(uniqueInternalID, modelNode.getUniqueName());
-			nodeIDsToNames_.put(uniqueInternalID, uniqueName);
-			namesToNodeID_.put(uniqueName, uniqueInternalID);
-
-			// If the node is a gene, store the BT name to GeNeTool mapping separately.
-			// This is needed when converting the expression data to the GeNeTool model.
-			if (modelNode.getType() == ModelNode.Type.GENE) {
-				geneNameMap_.put(modelNode.getName(), uniqueName);
-			}
-			else {
-				nonGeneNameMap_.put(modelNode.getName(), uniqueName);
-			}
+		symbols_ = new NodeSymbolTable(model_.getNodes());
+		for (String warning : symbols_.getAliasWarnings()) {
+			System.out.println("Warning: " + warning);
 		}
 	}
-	
-	/***************************************************************************
-	 *
-	 * Returns the GeNeTool name of a node, given a BioTapestry node ID.
-	 * 
-	 */
-	private String getUniqueNodeName(String id) {
-		return nodeIDsToNames_.get(id);
-	}
-	
-	/***************************************************************************
-	 *
-	 * Returns the GeNeTool Gene name, given the name of a BioTapestry
-	 * "expression gene" instance. 
-	 * 
-	 */
-	private String getUniqueGeneName(String name) {
-		return geneNameMap_.get(name);
-	}
-	
-	/***************************************************************************
-	 *
-	 * Returns the GeNeTool Gene name, given the name of a BioTapestry
-	 * "expression gene" instance that does not map to a BioTapestry model
-	 * gene.
-	 * 
-	 */	
-	private String getUniqueNonGeneName(String name) {
-		return nonGeneNameMap_.get(name);
-	}
-	
+
 	/***************************************************************************
 	 * 
 	 * Builds the Genes inside a GeNeTool model.
@@ -400,13 +422,10 @@ public class GeNeToolModelAdapter {
 	 * 
 	 */
 	private void nodesToGenes() {
-		Iterator<ModelNode> nit = mSrc_.getRootModelNodes();
-
-		while (nit.hasNext()) {
-			ModelNode node = nit.next();
-			String id = node.getUniqueInternalID();
-			String name = getUniqueNodeName(id);
-            nodeIDToModelNode_.put(id, node);
+		for (int symbol = 0; symbol < symbols_.size(); symbol++) {
+			ModelNode node = symbols_.getNode(symbol);
+			String id = symbols_.getNodeID(symbol);
+			String name = symbols_.getName(symbol);
 
             ModelNode.Type type = node.getType();
 			Gene gene = new Gene(p, name);
@@ -419,7 +438,7 @@ public class GeNeToolModelAdapter {
 				gene.setIsGene(false);
 			}
 			
-			boolean isUbiq = isUbiquitousNode(id) && ENABLE_UBIQUITOUS_DETECTION;
+			boolean isUbiq = isUbiquitousNode(symbol) && ENABLE_UBIQUITOUS_DETECTION;
 			gene.setIsUbiquitous(isUbiq);
 			
 			p.gm.addGene(gene);
@@ -427,10 +446,11 @@ public class GeNeToolModelAdapter {
 	}
 
 	private void buildVectorEquationGeneNodes() {
-        for (String nodeID : nodeIDsToNames_.keySet()) {
-            ModelNode.Type type = nodeIDToModelNode_.get(nodeID).getType();
+        for (int symbol = 0; symbol < symbols_.size(); symbol++) {
+            String nodeID = symbols_.getNodeID(symbol);
+            ModelNode.Type type = symbols_.getNode(symbol).getType();
             VectorEquationNode node = null;
-            GeneValueNode geneValueNode = new GeneValueNode(nodeIDsToNames_.get(nodeID), true, 0);
+            GeneValueNode geneValueNode = new GeneValueNode(symbols_.getName(symbol), true, 0);
 
             // Intercell nodes -> IN CC:R
             if (type == ModelNode.Type.INTERCELL) {
@@ -451,9 +471,10 @@ public class GeNeToolModelAdapter {
 	 *
 	 */
 	int mapExpressionLevel(ModelExpressionEntry mre) {
-		ModelExpressionEntry.Level level = mre.getLevel();
-		ModelExpressionEntry.Source source = mre.getSource();
+		return mapExpressionLevel(mre.getLevel(), mre.getSource());
+	}
 
+	int mapExpressionLevel(ModelExpressionEntry.Level level, ModelExpressionEntry.Source source) {
 		if (source == Source.MATERNAL_SOURCE) {
 			return 4;
 		} else if (level == Level.NOT_EXPRESSED) {
@@ -469,44 +490,69 @@ public class GeNeToolModelAdapter {
 		}
 	}
 
+	/***************************************************************************
+	 *
+	 * Reads the root model, regions and topology of the model source once.
+	 * All later stages of the conversion read from the snapshot.
+	 *
+	 */
+	private void readModel() {
+		model_ = new ModelSnapshot(mSrc_);
+		graphAnalysis_.setModel(model_);
+	}
+
+	/***************************************************************************
+	 *
+	 * Reads all expression data of the model source into the expression cube,
+	 * once per conversion.
+	 *
+	 */
+	private void loadExpression() {
+		SortedSet<String> genes = new TreeSet<String>(model_.getExpressionGenes());
+		ArrayList<String> regions = new ArrayList<String>();
+		for (ModelRegion mr : model_.getRegions()) {
+			regions.add(mr.getRegionName());
+		}
+		expression_ = new ExpressionCube(genes, regions, model_.getExpressionTimes());
+		expression_.fill(mSrc_, EXPRESSION_LOAD_PARALLELISM);
+		timeline_ = new ExpressionTimeline(expression_);
+	}
+
 	/***************************************************************************
 	 *
 	 * Builds the gene expression data into the GeNeTool model.
 	 *
 	 */
 	private void buildGeneExpression() {
-		SortedSet<String> mrl = new TreeSet<String>(mSrc_.getExpressionGenes());
-		SortedSet<Integer> times = mSrc_.getExpressionTimes();
-		ArrayList<String> mrn = new ArrayList<String>();
-		for (ModelRegion mr : mSrc_.getRegions()) {
-			mrn.add(mr.getRegionName());
+		int[] times = expression_.getTimes();
+		Region[] regions = new Region[expression_.getRegionCount()];
+		for (int r = 0; r < regions.length; r++) {
+			regions[r] = p.rm.getRegion(expression_.getRegion(r));
 		}
-		for (String geneName : mrl) {
+		for (int g = 0; g < expression_.getGeneCount(); g++) {
+			String geneName = expression_.getGene(g);
 			// Gene in GeNeTool model
-			String uniqueGeneName = getUniqueInternalNameForExpressionGene(geneName);
-			nodeIDToExpressionGeneMap_.put(namesToNodeID_.get(uniqueGeneName), geneName);
-            Gene geneObject = p.gm.getGene(uniqueGeneName);
+			int symbol = symbols_.findExpressionGeneSymbol(geneName);
+			String uniqueGeneName = null;
+			if (symbol >= 0) {
+				symbols_.setExpressionGene(symbol, geneName);
+				uniqueGeneName = symbols_.getName(symbol);
+			}
+            Gene geneObject = (uniqueGeneName == null) ? null : p.gm.getGene(uniqueGeneName);
 
 			if (geneObject == null) {
 				System.out.println("Gene \'" + uniqueGeneName + "\' not found in GeNeTool model, skipping.");
 				continue;
 			}
 
-			for (String reg : mrn) {
-				// Region in GeNeTool
-				Region region = p.rm.getRegion(reg);
-
-				for (Integer time : times) {
-					ModelExpressionEntry mre = mSrc_.getExpressionEntry(geneName, reg, time.intValue());
-					Double var = (mre.getLevel().equals(ModelExpressionEntry.Level.VARIABLE)) ? mre.getVariable() : null;
-					ModelExpressionEntry.Level myLev = (mre.getLevel()
-							.equals(ModelExpressionEntry.Level.EXPRESSED)) ? ModelExpressionEntry.Level.WEAK_EXPRESSION
-							: mre.getLevel();
+			for (int r = 0; r < regions.length; r++) {
+				int regionNumber = regions[r].getNumber();
 
-					int genetoolExpression = mapExpressionLevel(mre);
+				for (int t = 0; t < times.length; t++) {
+					int genetoolExpression = mapExpressionLevel(expression_.getLevel(g, r, t), expression_.getSource(g, r, t));
 
 					if (genetoolExpression != GENETOOL_EXPRESSION_INVALID) {
-						geneObject.Expression[region.getNumber()][time.intValue()] = genetoolExpression;
+						geneObject.Expression[regionNumber][times[t]] = genetoolExpression;
 					}
 				}
 			}
@@ -558,39 +604,25 @@ public class GeNeToolModelAdapter {
 	 *
 	 */
 	private RegionLevelTimeSlice findFirstTimeSliceInRegion(String geneName, String region, ModelExpressionEntry.Source source, ModelExpressionEntry.Level level) {
-		ArrayList<Integer> timepoints = new ArrayList<Integer>(mSrc_.getExpressionTimes());
-		ListIterator<Integer> iterator = timepoints.listIterator();
-
-		Integer first = null;
-		while (iterator.hasNext()) {
-			Integer timePoint = iterator.next();
-
-			ModelExpressionEntry expressionEntry = mSrc_.getExpressionEntry(geneName, region, timePoint.intValue());
-			if (expressionEntry.getSource() == source && expressionEntry.getLevel() == level) {
-				first = timePoint;
-				break;
-			}
-		}
-
-		Integer last = null;
-		while (iterator.hasNext()) {
-			Integer timePoint = iterator.next();
-			ModelExpressionEntry expressionEntry = mSrc_.getExpressionEntry(geneName, region, timePoint.intValue());
-			if (expressionEntry.getSource() != source || expressionEntry.getLevel() != level) {
-				last = timePoint;
-				break;
-			}
-		}
-
-		if (last == null) {
-			last = timepoints.get(timepoints.size() - 1);
-		}
-
-		if (first == null) {
+		ExpressionTimeline.Interval interval = timeline_.findFirstInterval(geneName, region, level, source);
+		if (interval == null) {
 			return null;
 		}
+		return new RegionLevelTimeSlice(region, geneName, interval.getStartTime(), interval.getEndTime(), source, level);
+	}
 
-		return new RegionLevelTimeSlice(region, geneName, first, last, source, level);
+	/***************************************************************************
+	 *
+	 * Finds all continuous time slices in the expression data with the given expression level,
+	 * in time order. Slices end the same way as in findFirstTimeSliceInRegion.
+	 *
+	 */
+	private List<RegionLevelTimeSlice> findTimeSlicesInRegion(String geneName, String region, ModelExpressionEntry.Source source, ModelExpressionEntry.Level level) {
+		List<RegionLevelTimeSlice> slices = new ArrayList<RegionLevelTimeSlice>();
+		for (ExpressionTimeline.Interval interval : timeline_.findIntervals(geneName, region, level, source)) {
+			slices.add(new RegionLevelTimeSlice(region, geneName, interval.getStartTime(), interval.getEndTime(), source, level));
+		}
+		return slices;
 	}
 
 	/***************************************************************************
@@ -632,19 +664,9 @@ public class GeNeToolModelAdapter {
 		}
 	}
 
-	private String getUniqueInternalNameForExpressionGene(String expressionGeneName) {
-		String uniqueGeneName = getUniqueGeneName(expressionGeneName);
-
-		if (uniqueGeneName == null) {
-			uniqueGeneName = getUniqueNonGeneName(expressionGeneName);
-		}
-
-		return uniqueGeneName;
-	}
-
 	/***************************************************************************
 	 *
-	 * Builds "always on" vector equations for root nodes.
+	 * Builds "always on" vector equations for root nodes into inputEquations_.
      *
      * BUG:
      * Currently, the earliest a manually set input can turn active is at time
@@ -653,37 +675,41 @@ public class GeNeToolModelAdapter {
 	 *
 	 */
 	private void buildVectorEquationsForInputs() {
-		Iterator<ModelLink> lit = mSrc_.getRootModelLinks();
-
-		Map<String, GeneValueNode> gntGeneNodes = new HashMap<String, GeneValueNode>();
-		for (String nodeID : nodeIDsToNames_.keySet()) {
-			gntGeneNodes.put(nodeID, new GeneValueNode(nodeIDsToNames_.get(nodeID), true, 0));
-		}
+		Iterator<ModelLink> lit = model_.getRootModelLinks();
 
-		Set<String> rootNodes = new HashSet<String>(nodeIDsToNames_.keySet());
+		boolean[] isTarget = new boolean[symbols_.size()];
 		while (lit.hasNext()) {
-			ModelLink modelLink = lit.next();
-			rootNodes.remove(modelLink.getTrg());
+			int target = symbols_.getSymbol(lit.next().getTrg());
+			if (target >= 0) {
+				isTarget[target] = true;
+			}
 		}
 
 		Set<String> expressionRootNodes = new HashSet<String>();
 		Map<String, String> rootNodeIDtoExprGeneNames = new HashMap<String, String>();
 
-		SortedSet<String> exprGeneSet = new TreeSet<String>(mSrc_.getExpressionGenes());
+		SortedSet<String> exprGeneSet = new TreeSet<String>(model_.getExpressionGenes());
 		for (String exprGeneName : exprGeneSet) {
-			String uniqueGeneName = getUniqueInternalNameForExpressionGene(exprGeneName);
-			String exprGeneID = namesToNodeID_.get(uniqueGeneName);
-			if (rootNodes.contains(exprGeneID)) {
+			int symbol = symbols_.findExpressionGeneSymbol(exprGeneName);
+			if (symbol >= 0 && !isTarget[symbol]) {
+				String exprGeneID = symbols_.getNodeID(symbol);
 				expressionRootNodes.add(exprGeneID);
 				rootNodeIDtoExprGeneNames.put(exprGeneID, exprGeneName);
 			}
 		}
 
+		inputEquations_ = new LinkedHashMap<String, VectorEquationNode>();
+		if (ENABLE_MULTI_INTERVAL_INPUTS) {
+			buildMultiIntervalInputs(rootNodeIDtoExprGeneNames);
+			return;
+		}
+
+		// Roots without an expression gene have no EXPRESSED slices, so only expression roots are scanned
 		Map<String, RegionLevelTimeSlice> slicesForRoots = new HashMap<String, RegionLevelTimeSlice>();
-		for (ModelRegion mr : mSrc_.getRegions()) {
+		for (ModelRegion mr : model_.getRegions()) {
 			String regionName = mr.getRegionName();
 
-			for (String geneNodeID : rootNodes) {
+			for (String geneNodeID : expressionRootNodes) {
 				String exprGeneName = rootNodeIDtoExprGeneNames.get(geneNodeID);
 				RegionLevelTimeSlice slice = findFirstTimeSliceInRegion(exprGeneName, regionName, Source.NO_SOURCE_SPECIFIED, Level.EXPRESSED);
 				if (slice != null) {
@@ -693,24 +719,47 @@ public class GeNeToolModelAdapter {
 		}
 
 		for (String rootNodeID : slicesForRoots.keySet()) {
-			RegionLevelTimeSlice slice = slicesForRoots.get(rootNodeID);
-			VectorEquationNode eq =	new AndNode(
-					new InRegionOperator(slice.getRegion()),
-					new AndNode(
-							new GreaterThanTimeOperator(slice.getStartTime()),
-                            // Add one to the end time point, as the operator is "less than", not including equal
-                            new LessThanTimeOperator(slice.getEndTime() + 1)));
+			inputEquations_.put(rootNodeID, buildTimeSliceEquation(slicesForRoots.get(rootNodeID)));
+		}
+	}
 
-			addVectorEquationToGene(rootNodeID, eq);
+	/***************************************************************************
+	 *
+	 * Builds one input equation per expression root, true in every EXPRESSED
+	 * time slice of every region.
+	 *
+	 */
+	private void buildMultiIntervalInputs(Map<String, String> rootNodeIDtoExprGeneNames) {
+		for (String rootNodeID : new TreeSet<String>(rootNodeIDtoExprGeneNames.keySet())) {
+			String exprGeneName = rootNodeIDtoExprGeneNames.get(rootNodeID);
+			VectorEquationNode eq = null;
+			for (ModelRegion mr : model_.getRegions()) {
+				for (RegionLevelTimeSlice slice : findTimeSlicesInRegion(exprGeneName, mr.getRegionName(), Source.NO_SOURCE_SPECIFIED, Level.EXPRESSED)) {
+					VectorEquationNode sliceEq = buildTimeSliceEquation(slice);
+					eq = (eq == null) ? sliceEq : new OrNode(eq, sliceEq);
+				}
+			}
+			if (eq != null) {
+				inputEquations_.put(rootNodeID, eq);
+			}
 		}
 	}
 
+	private VectorEquationNode buildTimeSliceEquation(RegionLevelTimeSlice slice) {
+		return new AndNode(
+				new InRegionOperator(slice.getRegion()),
+				new AndNode(
+						new GreaterThanTimeOperator(slice.getStartTime()),
+                        // Add one to the end time point, as the operator is "less than", not including equal
+                        new LessThanTimeOperator(slice.getEndTime() + 1)));
+	}
+
 	/***************************************************************************
 	 *
-	 * Builds vector equations for genes into the GeNeTool model.
+	 * Builds vector equations for genes into geneEquations_.
 	 *
 	 * General outline:
-	 * - Find back edges in the model
+	 * - Find feedback links in the model with FEEDBACK_STRATEGY
 	 * - Build the vector equation for each node
 	 *   - Build AND statements
 	 *     - For each node, build a set of incoming links
@@ -725,7 +774,7 @@ public class GeNeToolModelAdapter {
 	private void buildVectorEquationsForGenes() {
 		Set<Link> links = new HashSet<Link>();
 
-		Iterator<ModelLink> lit = mSrc_.getRootModelLinks();
+		Iterator<ModelLink> lit = model_.getRootModelLinks();
 
 		while (lit.hasNext()) {
 			ModelLink modelLink = lit.next();
@@ -736,7 +785,10 @@ public class GeNeToolModelAdapter {
 			links.add(link);
 		}
 		
-		Set<ModelLink> feedbackLinks = mSrc_.findFeedbackEdges();
+		if (REPORT_FEEDBACK_STRATEGIES) {
+			System.out.print(graphAnalysis_.reportFeedbackStrategies());
+		}
+		Set<ModelLink> feedbackLinks = graphAnalysis_.findFeedbackEdges(FEEDBACK_STRATEGY);
 
 
 		// "AND" vector equations
@@ -760,7 +812,8 @@ public class GeNeToolModelAdapter {
 		// Concatenate AND and OR equations
 		Map<String, VectorEquationNode> result = new HashMap<String, VectorEquationNode>();
 
-		for (String nodeID : nodeIDsToNames_.keySet()) {
+		for (int symbol = 0; symbol < symbols_.size(); symbol++) {
+			String nodeID = symbols_.getNodeID(symbol);
 			VectorEquationNode andTree = andEquationsPerNode.get(nodeID);
 			VectorEquationNode orTree = orEquationsPerNode.get(nodeID);
 
@@ -769,10 +822,12 @@ public class GeNeToolModelAdapter {
 			}
 		}
 
-		for (String nodeID : nodeIDsToNames_.keySet()) {
+		geneEquations_ = new LinkedHashMap<String, VectorEquationNode>();
+		for (int symbol = 0; symbol < symbols_.size(); symbol++) {
+			String nodeID = symbols_.getNodeID(symbol);
 			VectorEquationNode eqNode = result.get(nodeID);
 			if (eqNode != null) {
-				addVectorEquationToGene(nodeID, eqNode);
+				geneEquations_.put(nodeID, eqNode);
 			}
 		}
 	}
@@ -820,6 +875,15 @@ public class GeNeToolModelAdapter {
 		return vecEquationsForNodes;
 	}
 
+	/***************************************************************************
+	 * Adds vector equations to their GeNeTool gene objects, in map order.
+	 */
+	private void addVectorEquationsToGenes(Map<String, VectorEquationNode> equations) {
+		for (Map.Entry<String, VectorEquationNode> equation : equations.entrySet()) {
+			addVectorEquationToGene(equation.getKey(), equation.getValue());
+		}
+	}
+
 	/***************************************************************************
 	 * Adds a vector equation to a GeNeTool gene object.
 	 *
@@ -828,7 +892,8 @@ public class GeNeToolModelAdapter {
 	 * equation must not contain any white space.
 	 */
 	private void addVectorEquationToGene(String nodeID, VectorEquationNode eqNode) {
-		Gene gene = p.gm.getGene(nodeIDsToNames_.get(nodeID));
+		String name = symbols_.getName(symbols_.getSymbol(nodeID));
+		Gene gene = p.gm.getGene(name);
 		GeNeToolAdapterVisitor gntVisitor = new GeNeToolAdapterVisitor(p);
 		eqNode.accept(gntVisitor);
 
@@ -837,7 +902,7 @@ public class GeNeToolModelAdapter {
 		String rule = visitor.getValue();
 
 		// Debug print
-		System.out.println("VecEq " + nodeIDsToNames_.get(nodeID) + ": " + rule);
+		System.out.println("VecEq " + name + ": " + rule);
 
 		gene.addLogic("", rule, "1", "0", false, false);
 	}
@@ -872,6 +937,68 @@ public class GeNeToolModelAdapter {
 		}
 	}
 
+    /***************************************************************************
+     *
+     * Builds the gene x domain x time influence graph of the converted model,
+     * with the same link delay and cell contact topology that convert() hands
+     * to GeNeTool. Call after convert(), which builds the domains.
+     *
+     */
+    public SpatioTemporalInfluenceGraph buildInfluenceGraph() {
+        List<String> nodeIDs = new ArrayList<String>();
+        List<String> contactNodeIDs = new ArrayList<String>();
+        Iterator<ModelNode> nit = model_.getRootModelNodes();
+        while (nit.hasNext()) {
+            ModelNode modelNode = nit.next();
+            nodeIDs.add(modelNode.getUniqueInternalID());
+            if (modelNode.getType() == ModelNode.Type.INTERCELL) {
+                contactNodeIDs.add(modelNode.getUniqueInternalID());
+            }
+        }
+
+        List<org.systemsbiology.biotapestry.plugin.simulation.toolkit.Link> links =
+            new ArrayList<org.systemsbiology.biotapestry.plugin.simulation.toolkit.Link>();
+        Iterator<ModelLink> lit = model_.getRootModelLinks();
+        while (lit.hasNext()) {
+            ModelLink modelLink = lit.next();
+            links.add(new org.systemsbiology.biotapestry.plugin.simulation.toolkit.Link(modelLink.getSrc(), modelLink.getTrg()));
+        }
+
+        CompactGraph graph = new CompactGraph(nodeIDs, links);
+        BitSet contactNodes = new BitSet();
+        for (String nodeID : contactNodeIDs) {
+            contactNodes.set(graph.getNodeIndex(nodeID));
+        }
+
+        SortedSet<Integer> times = model_.getExpressionTimes();
+        int minTime = times.isEmpty() ? 0 : times.first().intValue();
+        int maxTime = times.isEmpty() ? 0 : times.last().intValue();
+        List<String> domainIDs = new ArrayList<String>(new TreeSet<String>(domainMap_.keySet()));
+        SpatioTemporalInfluenceGraph influence =
+            new SpatioTemporalInfluenceGraph(graph, contactNodes, domainIDs, minTime, maxTime, -GENE_DELAY);
+
+        Iterator<ModelRegionTopologyForTime> tit = model_.getRegionTopology();
+        while (tit.hasNext()) {
+            ModelRegionTopologyForTime topo = tit.next();
+            Iterator<ModelRegionTopologyForTime.TopoLink> tlit = topo.getLinks();
+            while (tlit.hasNext()) {
+                ModelRegionTopologyForTime.TopoLink tlink = tlit.next();
+                influence.addContact(tlink.getRegion1(), tlink.getRegion2(), topo.getMinTime(), topo.getMaxTime());
+            }
+        }
+        return influence;
+    }
+
+    /*
+     * Computes a GeNeTool model of the converted network through GeNeTool's
+     * model manager, the step a user otherwise starts from the GeNeTool
+     * window, so that getSimulatedExpressionTable() has a model to read.
+     * Call after convert(), which drops any model computed before it.
+     */
+    public void simulate() {
+        p.lm.computeModel();
+    }
+
     /*
      * Answer the maximum time point of the expression data from
      * the model source.
@@ -902,8 +1029,10 @@ public class GeNeToolModelAdapter {
 
         int maxSimulatedTimePoint = models.get(0).getStepCount() + 1;
 
-		for (String nodeID : nodeIDsToNames_.keySet()) {
-            Gene gene = p.gm.getGene(nodeIDsToNames_.get(nodeID));
+		for (int symbol = 0; symbol < symbols_.size(); symbol++) {
+            Gene gene = p.gm.getGene(symbols_.getName(symbol));
+            String modelName = symbols_.getModelName(symbol);
+            String expressionGene = symbols_.getExpressionGene(symbol);
 
 			ArrayList<SimulatorRow> geneRows = new ArrayList<SimulatorRow>();
 
@@ -912,21 +1041,21 @@ public class GeNeToolModelAdapter {
 				for (String domainName : domainMap.keySet()) {
 					ModelDomain domain = domainMap.get(domainName);
                     Level value = GeNeToolSimulationTranslator.booleanToLevel(domain.getValue(gene, time));
-					SimulatorRow row = new SimulatorRow(domain.getName(), nodeIDsToModelSourceNames_.get(nodeID), time - 1, value);
+					SimulatorRow row = new SimulatorRow(domain.getName(), modelName, time - 1, value);
 					geneRows.add(row);
 				}
 
-                result.put(nodeIDToExpressionGeneMap_.get(nodeID), geneRows);
+                result.put(expressionGene, geneRows);
 			}
 
             for (; time <= maxTime; time++) {
                 for (String domainName : domainMap.keySet()) {
                     ModelDomain domain = domainMap.get(domainName);
-                    SimulatorRow row = new SimulatorRow(domain.getName(), nodeIDsToModelSourceNames_.get(nodeID), time - 1, Level.NO_DATA);
+                    SimulatorRow row = new SimulatorRow(domain.getName(), modelName, time - 1, Level.NO_DATA);
                     geneRows.add(row);
                 }
 
-                result.put(nodeIDToExpressionGeneMap_.get(nodeID), geneRows);
+                result.put(expressionGene, geneRows);
             }
 		}
 
@@ -37,11 +37,14 @@ import java.util.*;
 
 import javax.swing.JButton;
 import javax.swing.JEditorPane;
+import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.border.EmptyBorder;
 
 import org.systemsbiology.biotapestry.plugin.SimulatorPlugIn;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.ModelGraphAnalysis;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.RegulatoryPathFinder;
 import org.systemsbiology.biotapestry.simulation.ModelExpressionEntry;
 import org.systemsbiology.biotapestry.simulation.ModelLink;
 import org.systemsbiology.biotapestry.simulation.ModelNode;
@@ -58,6 +61,9 @@ public class GeNeToolSimulatorPlugIn extends JFrame implements SimulatorPlugIn {
   ////////////////////////////////////////////////////////////////////////////
 	
   private static String menuName_ = "GeNeTool Simulator";                  
+  private static final int MAX_LOOP_LENGTH_ = 12;
+  private static final long MAX_LOOP_COUNT_ = 10000L;
+  private static final long LOOP_TIME_BUDGET_MS_ = 5000L;
 	
   ////////////////////////////////////////////////////////////////////////////
   //
@@ -69,6 +75,8 @@ public class GeNeToolSimulatorPlugIn extends JFrame implements SimulatorPlugIn {
   private JEditorPane descriptionPane_;
   private PApplet embed_;
   private GeNeToolModelAdapter modelAdapter_;
+  // Kept across calls so its cached snapshot and results are reused
+  private ModelGraphAnalysis graphAnalysis_;
   
   ////////////////////////////////////////////////////////////////////////////
   //
@@ -149,6 +157,36 @@ public class GeNeToolSimulatorPlugIn extends JFrame implements SimulatorPlugIn {
     UiUtil.gbcSet(gbc, 0, rowNum++, 1, 1, UiUtil.HOR, 0, 0, 5, 5, 5, 5, UiUtil.CEN, 0.0, 0.0);
     cp.add(buttonReadSimResults, gbc);
 
+    JButton buttonFeedbackLoops = new JButton("List feedback loops");
+    buttonFeedbackLoops.addActionListener(new ActionListener() {
+      public void actionPerformed(ActionEvent ev) {
+        try {
+          listFeedbackLoops();
+        } catch (Exception ex) {
+          System.err.println("Caught exception");
+          ex.printStackTrace();
+        }
+      }
+    });
+
+    UiUtil.gbcSet(gbc, 0, rowNum++, 1, 1, UiUtil.HOR, 0, 0, 5, 5, 5, 5, UiUtil.CEN, 0.0, 0.0);
+    cp.add(buttonFeedbackLoops, gbc);
+
+    JButton buttonRegulatoryPath = new JButton("Highlight regulatory path");
+    buttonRegulatoryPath.addActionListener(new ActionListener() {
+      public void actionPerformed(ActionEvent ev) {
+        try {
+          chooseRegulatoryPath();
+        } catch (Exception ex) {
+          System.err.println("Caught exception");
+          ex.printStackTrace();
+        }
+      }
+    });
+
+    UiUtil.gbcSet(gbc, 0, rowNum++, 1, 1, UiUtil.HOR, 0, 0, 5, 5, 5, 5, UiUtil.CEN, 0.0, 0.0);
+    cp.add(buttonRegulatoryPath, gbc);
+
     /*
     JButton buttonFeedbackLinks = new JButton("Highlight feedback links");
     buttonFeedbackLinks.addActionListener(new ActionListener() {
@@ -217,6 +255,7 @@ public class GeNeToolSimulatorPlugIn extends JFrame implements SimulatorPlugIn {
    
   public void setModelSource(ModelSource mSrc) {
     mSrc_ = mSrc;
+    graphAnalysis_ = null;
     return;
   }
   
@@ -305,6 +344,34 @@ public class GeNeToolSimulatorPlugIn extends JFrame implements SimulatorPlugIn {
     return;
   }
   
+  /***************************************************************************
+  **
+  ** List the feedback loops
+  */  
+   
+  private void listFeedbackLoops() {
+    ModelGraphAnalysis analysis = getGraphAnalysis();
+    List<ModelGraphAnalysis.FeedbackLoop> loops = 
+      analysis.findFeedbackLoops(MAX_LOOP_LENGTH_, MAX_LOOP_COUNT_, LOOP_TIME_BUDGET_MS_);
+    if (loops.isEmpty()) {
+      descriptionPane_.setText("No feedback loops");
+      return;
+    }
+    StringBuffer buf = new StringBuffer();
+    for (ModelGraphAnalysis.FeedbackLoop loop : loops) {
+      buf.append(loop.getPolarity());
+      buf.append(":");
+      for (ModelLink link : loop.getLinks()) {
+        buf.append(" \"");
+        buf.append(mSrc_.getNode(link.getSrc()).getName());
+        buf.append("\"");
+      }
+      buf.append("\n");
+    }
+    descriptionPane_.setText(buf.toString());
+    return;
+  }
+  
   /***************************************************************************
   **
   ** List the nodes
@@ -462,6 +529,79 @@ public class GeNeToolSimulatorPlugIn extends JFrame implements SimulatorPlugIn {
     }
   }
 
+  /***************************************************************************
+  **
+  ** Ask for the source, target and sign of a regulatory path, then highlight it
+  */
+
+  private void chooseRegulatoryPath() {
+    SortedMap<String, String> idsByLabel = new TreeMap<String, String>();
+    Iterator<ModelNode> nit = mSrc_.getRootModelNodes();
+    while (nit.hasNext()) {
+      ModelNode node = nit.next();
+      idsByLabel.put(node.getName() + " (" + node.getUniqueInternalID() + ")", node.getUniqueInternalID());
+    }
+    if (idsByLabel.isEmpty()) {
+      descriptionPane_.setText("No nodes in the model");
+      return;
+    }
+    Object[] labels = idsByLabel.keySet().toArray();
+    String title = "Highlight regulatory path";
+    Object src = JOptionPane.showInputDialog(this, "Source node:", title, 
+                                             JOptionPane.QUESTION_MESSAGE, null, labels, labels[0]);
+    if (src == null) {
+      return;
+    }
+    Object trg = JOptionPane.showInputDialog(this, "Target node:", title, 
+                                             JOptionPane.QUESTION_MESSAGE, null, labels, labels[0]);
+    if (trg == null) {
+      return;
+    }
+    RegulatoryPathFinder.PathSign[] signs = RegulatoryPathFinder.PathSign.values();
+    Object sign = JOptionPane.showInputDialog(this, "Path sign:", title, 
+                                              JOptionPane.QUESTION_MESSAGE, null, signs, signs[0]);
+    if (sign == null) {
+      return;
+    }
+    highlightRegulatoryPath(idsByLabel.get(src), idsByLabel.get(trg), (RegulatoryPathFinder.PathSign)sign);
+    return;
+  }
+
+  /***************************************************************************
+  **
+  ** Select the nodes and links of the shortest regulatory path between two
+  ** nodes, if there is one.
+  */
+
+  private void highlightRegulatoryPath(String srcID, String trgID, RegulatoryPathFinder.PathSign sign) {
+    ModelGraphAnalysis analysis = getGraphAnalysis();
+    List<List<ModelLink>> paths = analysis.findRegulatoryPaths(srcID, trgID, 1, sign);
+    String srcName = mSrc_.getNode(srcID).getName();
+    String trgName = mSrc_.getNode(trgID).getName();
+    if (paths.isEmpty()) {
+      descriptionPane_.setText("No " + sign + " path from \"" + srcName + "\" to \"" + trgName + "\"");
+      return;
+    }
+    descriptionPane_.setText(sign + " path from \"" + srcName + "\" to \"" + trgName + "\": " + 
+                             paths.get(0).size() + " links");
+
+    Set<String> nodeIDs = new HashSet<String>();
+    Set<String> linkIDs = new HashSet<String>();
+    nodeIDs.add(srcID);
+    for (ModelLink link : paths.get(0)) {
+      nodeIDs.add(link.getTrg());
+      linkIDs.add(link.getUniqueInternalID());
+    }
+    mSrc_.goToModelAndSelect("bioTapA", nodeIDs, linkIDs);
+  }
+
+  private ModelGraphAnalysis getGraphAnalysis() {
+    if (graphAnalysis_ == null) {
+      graphAnalysis_ = new ModelGraphAnalysis(mSrc_);
+    }
+    return graphAnalysis_;
+  }
+
   private GeNeToolModelAdapter getAdapterInstance() {
     if (this.modelAdapter_ == null) {
       modelAdapter_ = new GeNeToolModelAdapter(mSrc_, (GRNBoolModel)embed_);
@@ -0,0 +1,200 @@
+/*
+**    Copyright (C) 2003-2015 Institute for Systems Biology
+**                            Seattle, Washington, USA.
+**
+**    This library is free software; you can redistribute it and/or
+**    modify it under the terms of the GNU Lesser General Public
+**    License as published by the Free Software Foundation; either
+**    version 2.1 of the License, or (at your option) any later version.
+**
+**    This library is distributed in the hope that it will be useful,
+**    but WITHOUT ANY WARRANTY; without even the implied warranty of
+**    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+**    Lesser General Public License for more details.
+**
+**    You should have received a copy of the GNU Lesser General Public
+**    License along with this library; if not, write to the Free Software
+**    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package org.systemsbiology.biotapestry.plugin.simulation.genetool;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.systemsbiology.biotapestry.simulation.ModelNode;
+import org.systemsbiology.biotapestry.util.DataUtil;
+
+/***************************************************************************
+ *
+ * Names of the root model nodes during a conversion. Each node gets a dense
+ * symbol, 0 to size() - 1 in model order, and its internal ID, GeNeTool
+ * name, BioTapestry name and expression gene are array lookups by symbol.
+ *
+ * GeNeTool names are the BioTapestry unique names passed through
+ * DataUtil.normKey. Nodes whose names normalize to the same key are
+ * reported by getAliasWarnings(); lookups by that name find the node that
+ * came last, and so do lookups by BioTapestry name.
+ *
+ */
+public class NodeSymbolTable {
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PRIVATE VARIABLES
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    private int size_;
+    private ModelNode[] nodes_;
+    private String[] nodeIDs_;
+    private String[] names_;
+    private String[] modelNames_;
+    private String[] expressionGenes_;
+
+    private Map<String, Integer> byNodeID_;
+    private Map<String, Integer> byName_;
+    // BioTapestry node names of genes and of other nodes, as expression genes refer to them
+    private Map<String, Integer> genesByModelName_;
+    private Map<String, Integer> nonGenesByModelName_;
+
+    private List<String> aliasWarnings_;
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PUBLIC CONSTRUCTORS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    /***************************************************************************
+     **
+     ** Builds the table. A node ID that repeats keeps its first symbol and
+     ** takes the data of its last node.
+     */
+
+    public NodeSymbolTable(List<ModelNode> nodes) {
+        int count = nodes.size();
+        nodes_ = new ModelNode[count];
+        nodeIDs_ = new String[count];
+        names_ = new String[count];
+        modelNames_ = new String[count];
+        expressionGenes_ = new String[count];
+        byNodeID_ = new HashMap<String, Integer>();
+        byName_ = new HashMap<String, Integer>();
+        genesByModelName_ = new HashMap<String, Integer>();
+        nonGenesByModelName_ = new HashMap<String, Integer>();
+        aliasWarnings_ = new ArrayList<String>();
+        size_ = 0;
+
+        for (ModelNode node : nodes) {
+            String nodeID = node.getUniqueInternalID();
+            Integer existing = byNodeID_.get(nodeID);
+            int symbol = (existing == null) ? size_++ : existing.intValue();
+            Integer boxed = Integer.valueOf(symbol);
+            byNodeID_.put(nodeID, boxed);
+
+            String name = DataUtil.normKey(node.getUniqueName());
+            nodes_[symbol] = node;
+            nodeIDs_[symbol] = nodeID;
+            names_[symbol] = name;
+            modelNames_[symbol] = node.getUniqueName();
+
+            Integer aliased = byName_.put(name, boxed);
+            if ((aliased != null) && (aliased.intValue() != symbol)) {
+                aliasWarnings_.add("Nodes " + nodeIDs_[aliased.intValue()] + " (" + modelNames_[aliased.intValue()] + ") and "
+                                   + nodeID + " (" + node.getUniqueName() + ") both map to GeNeTool name " + name
+                                   + "; using " + nodeID);
+            }
+
+            if (node.getType() == ModelNode.Type.GENE) {
+                genesByModelName_.put(node.getName(), boxed);
+            }
+            else {
+                nonGenesByModelName_.put(node.getName(), boxed);
+            }
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PUBLIC METHODS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    public int size() {
+        return size_;
+    }
+
+    /**
+     * Symbol of a node ID, or -1 if there is none.
+     */
+    public int getSymbol(String nodeID) {
+        Integer symbol = byNodeID_.get(nodeID);
+        return (symbol == null) ? -1 : symbol.intValue();
+    }
+
+    /**
+     * Symbol of the last node with a GeNeTool name, or -1 if there is none.
+     */
+    public int getSymbolForName(String name) {
+        Integer symbol = byName_.get(name);
+        return (symbol == null) ? -1 : symbol.intValue();
+    }
+
+    /***************************************************************************
+     **
+     ** Symbol of the node an expression gene belongs to, or -1 if there is
+     ** none. Genes are matched by BioTapestry name first, then other nodes.
+     ** The match goes through its GeNeTool name, so an aliased name resolves
+     ** to the last node that has it.
+     */
+
+    public int findExpressionGeneSymbol(String expressionGene) {
+        Integer match = genesByModelName_.get(expressionGene);
+        if (match == null) {
+            match = nonGenesByModelName_.get(expressionGene);
+        }
+        return (match == null) ? -1 : getSymbolForName(names_[match.intValue()]);
+    }
+
+    public ModelNode getNode(int symbol) {
+        return nodes_[symbol];
+    }
+
+    public String getNodeID(int symbol) {
+        return nodeIDs_[symbol];
+    }
+
+    /**
+     * GeNeTool name of a node.
+     */
+    public String getName(int symbol) {
+        return names_[symbol];
+    }
+
+    /**
+     * BioTapestry unique name of a node.
+     */
+    public String getModelName(int symbol) {
+        return modelNames_[symbol];
+    }
+
+    /**
+     * Expression gene of a node, or null if it has none.
+     */
+    public String getExpressionGene(int symbol) {
+        return expressionGenes_[symbol];
+    }
+
+    public void setExpressionGene(int symbol, String expressionGene) {
+        expressionGenes_[symbol] = expressionGene;
+    }
+
+    /**
+     * One message for each node that took a GeNeTool name from an earlier one.
+     */
+    public List<String> getAliasWarnings() {
+        return new ArrayList<String>(aliasWarnings_);
+    }
+}
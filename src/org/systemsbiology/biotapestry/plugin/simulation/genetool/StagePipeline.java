@@ -0,0 +1,278 @@
+/*
+**    Copyright (C) 2003-2015 Institute for Systems Biology
+**                            Seattle, Washington, USA.
+**
+**    This library is free software; you can redistribute it and/or
+**    modify it under the terms of the GNU Lesser General Public
+**    License as published by the Free Software Foundation; either
+**    version 2.1 of the License, or (at your option) any later version.
+**
+**    This library is distributed in the hope that it will be useful,
+**    but WITHOUT ANY WARRANTY; without even the implied warranty of
+**    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+**    Lesser General Public License for more details.
+**
+**    You should have received a copy of the GNU Lesser General Public
+**    License along with this library; if not, write to the Free Software
+**    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package org.systemsbiology.biotapestry.plugin.simulation.genetool;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/***************************************************************************
+ *
+ * Runs named stages in dependency order. A stage may only depend on stages
+ * added before it, so the stages always form a DAG and the order they were
+ * added in is a valid sequential order.
+ *
+ * With a parallelism of 1 the stages run on the calling thread in the order
+ * they were added. Otherwise a stage is submitted to a thread pool as soon
+ * as the last of its dependencies completes. A stage added with
+ * addCallerStage() is never submitted; it runs on the thread that called
+ * run(), one at a time with the other caller stages, for work that must
+ * stay on that thread. A stage that throws stops any stage not yet
+ * started, and run() rethrows the first such exception once the running
+ * stages have finished.
+ *
+ */
+public class StagePipeline {
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PRIVATE VARIABLES
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    private List<Stage> stages_;
+    private Map<String, Stage> stagesByName_;
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PUBLIC CONSTRUCTORS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    public StagePipeline() {
+        stages_ = new ArrayList<Stage>();
+        stagesByName_ = new HashMap<String, Stage>();
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PUBLIC METHODS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    /***************************************************************************
+     **
+     ** Adds a stage that runs after all the named stages have completed.
+     */
+
+    public void addStage(String name, Runnable work, String... dependencies) {
+        add(name, work, false, dependencies);
+    }
+
+    /***************************************************************************
+     **
+     ** Adds a stage that always runs on the thread that calls run(), after all
+     ** the named stages have completed.
+     */
+
+    public void addCallerStage(String name, Runnable work, String... dependencies) {
+        add(name, work, true, dependencies);
+    }
+
+    private void add(String name, Runnable work, boolean onCaller, String... dependencies) {
+        if (stagesByName_.containsKey(name)) {
+            throw new IllegalArgumentException("Duplicate stage " + name);
+        }
+        Stage stage = new Stage(name, work, onCaller);
+        for (String dependency : dependencies) {
+            Stage before = stagesByName_.get(dependency);
+            if (before == null) {
+                throw new IllegalArgumentException("Stage " + name + " depends on unknown stage " + dependency);
+            }
+            if (!before.dependents.contains(stage)) {
+                before.dependents.add(stage);
+                stage.dependencyCount++;
+            }
+        }
+        stages_.add(stage);
+        stagesByName_.put(name, stage);
+    }
+
+    public int getStageCount() {
+        return stages_.size();
+    }
+
+    /**
+     * Wall-clock time of a stage in the last run, in nanoseconds, or -1 if
+     * it did not run.
+     */
+    public long getStageTime(String name) {
+        Stage stage = stagesByName_.get(name);
+        return (stage == null) ? -1L : stage.elapsed;
+    }
+
+    public void run(int parallelism) {
+        if (parallelism <= 1 || stages_.size() <= 1) {
+            run((ExecutorService)null);
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            run(executor);
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    /***************************************************************************
+     **
+     ** Runs the stages on an executor the caller owns and may share with the
+     ** stages themselves; it is not shut down. A null executor runs the
+     ** stages on the calling thread.
+     */
+
+    public void run(ExecutorService executor) {
+        for (Stage stage : stages_) {
+            stage.elapsed = -1L;
+        }
+        if (executor == null || stages_.size() <= 1) {
+            for (Stage stage : stages_) {
+                stage.execute();
+            }
+            return;
+        }
+        new Run(executor).await();
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PRIVATE CLASSES
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    private static class Stage {
+        String name;
+        Runnable work;
+        boolean onCaller;
+        List<Stage> dependents;
+        int dependencyCount;
+        volatile long elapsed;
+
+        Stage(String name, Runnable work, boolean onCaller) {
+            this.name = name;
+            this.work = work;
+            this.onCaller = onCaller;
+            this.dependents = new ArrayList<Stage>();
+            this.dependencyCount = 0;
+            this.elapsed = -1L;
+        }
+
+        void execute() {
+            long start = System.nanoTime();
+            work.run();
+            elapsed = System.nanoTime() - start;
+        }
+    }
+
+    /***************************************************************************
+     **
+     ** State of one parallel run. Caller stages that become ready are queued
+     ** for the calling thread, which runs them while waiting for the rest.
+     */
+
+    private class Run {
+        private ExecutorService executor_;
+        private Map<Stage, AtomicInteger> pending_;
+        private LinkedBlockingQueue<Stage> callerQueue_;
+        private int callerCount_;
+        private CountDownLatch done_;
+        private AtomicReference<Throwable> failure_;
+
+        Run(ExecutorService executor) {
+            executor_ = executor;
+            pending_ = new HashMap<Stage, AtomicInteger>();
+            callerQueue_ = new LinkedBlockingQueue<Stage>();
+            callerCount_ = 0;
+            for (Stage stage : stages_) {
+                pending_.put(stage, new AtomicInteger(stage.dependencyCount));
+                if (stage.onCaller) {
+                    callerCount_++;
+                }
+            }
+            done_ = new CountDownLatch(stages_.size());
+            failure_ = new AtomicReference<Throwable>();
+        }
+
+        void await() {
+            for (Stage stage : stages_) {
+                if (stage.dependencyCount == 0) {
+                    submit(stage);
+                }
+            }
+            try {
+                // Every caller stage is queued exactly once, even after a failure
+                for (int i = 0; i < callerCount_; i++) {
+                    complete(callerQueue_.take());
+                }
+                done_.await();
+            }
+            catch (InterruptedException iex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while running stages", iex);
+            }
+            Throwable failure = failure_.get();
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException)failure;
+            }
+            else if (failure instanceof Error) {
+                throw (Error)failure;
+            }
+        }
+
+        private void submit(final Stage stage) {
+            if (stage.onCaller) {
+                callerQueue_.add(stage);
+                return;
+            }
+            executor_.execute(new Runnable() {
+                public void run() {
+                    complete(stage);
+                }
+            });
+        }
+
+        private void complete(Stage stage) {
+            if (failure_.get() == null) {
+                try {
+                    stage.execute();
+                }
+                catch (Throwable t) {
+                    failure_.compareAndSet(null, t);
+                }
+            }
+            // After a failure the remaining stages are released without running,
+            // so the latch still reaches zero
+            for (Stage dependent : stage.dependents) {
+                if (pending_.get(dependent).decrementAndGet() == 0) {
+                    submit(dependent);
+                }
+            }
+            done_.countDown();
+        }
+    }
+}
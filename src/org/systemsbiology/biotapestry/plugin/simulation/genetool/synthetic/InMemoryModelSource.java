@@ -0,0 +1,263 @@
+/*
+**    Copyright (C) 2003-2015 Institute for Systems Biology
+**                            Seattle, Washington, USA.
+**
+**    This library is free software; you can redistribute it and/or
+**    modify it under the terms of the GNU Lesser General Public
+**    License as published by the Free Software Foundation; either
+**    version 2.1 of the License, or (at your option) any later version.
+**
+**    This library is distributed in the hope that it will be useful,
+**    but WITHOUT ANY WARRANTY; without even the implied warranty of
+**    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+**    Lesser General Public License for more details.
+**
+**    You should have received a copy of the GNU Lesser General Public
+**    License along with this library; if not, write to the Free Software
+**    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package org.systemsbiology.biotapestry.plugin.simulation.genetool.synthetic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.ModelGraphAnalysis;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.VersionedModelSource;
+import org.systemsbiology.biotapestry.simulation.ModelExpressionEntry;
+import org.systemsbiology.biotapestry.simulation.ModelLink;
+import org.systemsbiology.biotapestry.simulation.ModelNode;
+import org.systemsbiology.biotapestry.simulation.ModelRegion;
+import org.systemsbiology.biotapestry.simulation.ModelRegionTopologyForTime;
+
+/***************************************************************************
+ *
+ * A ModelSource held in memory, for running the adapter and the toolkit
+ * without a BioTapestry session.
+ *
+ * Expression data is kept as one byte per gene, region and time, and
+ * ModelExpressionEntry objects are only created when asked for, so that
+ * large expression tables stay small. Add the regions and expression times
+ * before any expression data. Cells without data answer NO_DATA, the way a
+ * BioTapestry table does.
+ *
+ */
+public class InMemoryModelSource implements VersionedModelSource {
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PRIVATE VARIABLES
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    private static final ModelExpressionEntry.Level[] LEVELS = ModelExpressionEntry.Level.values();
+    private static final ModelExpressionEntry.Source[] SOURCES = ModelExpressionEntry.Source.values();
+
+    private Map<String, ModelNode> nodes_;
+    private List<ModelLink> links_;
+    // Bumped on every node or link change
+    private long version_;
+    private List<ModelRegion> regions_;
+    private List<ModelRegionTopologyForTime> topology_;
+
+    private Map<String, Integer> regionIndex_;
+    private List<Integer> times_;
+    private Map<Integer, Integer> timeIndex_;
+
+    // Per gene, 1 + 4 * level + source for each region and time; 0 is no data
+    private Map<String, byte[]> expression_;
+
+    private String selectedModelID_;
+    private Set<String> selectedNodeIDs_;
+    private Set<String> selectedLinkIDs_;
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PUBLIC CONSTRUCTORS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    public InMemoryModelSource() {
+        nodes_ = new LinkedHashMap<String, ModelNode>();
+        links_ = new ArrayList<ModelLink>();
+        regions_ = new ArrayList<ModelRegion>();
+        topology_ = new ArrayList<ModelRegionTopologyForTime>();
+        regionIndex_ = new HashMap<String, Integer>();
+        times_ = new ArrayList<Integer>();
+        timeIndex_ = new HashMap<Integer, Integer>();
+        expression_ = new LinkedHashMap<String, byte[]>();
+        selectedNodeIDs_ = new HashSet<String>();
+        selectedLinkIDs_ = new HashSet<String>();
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PUBLIC METHODS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    public void addNode(ModelNode node) {
+        nodes_.put(node.getUniqueInternalID(), node);
+        version_++;
+    }
+
+    public void addLink(ModelLink link) {
+        links_.add(link);
+        version_++;
+    }
+
+    public void addRegion(ModelRegion region) {
+        if (!expression_.isEmpty()) {
+            throw new IllegalStateException("Regions must be added before expression data");
+        }
+        regionIndex_.put(region.getRegionName(), Integer.valueOf(regions_.size()));
+        regions_.add(region);
+    }
+
+    public void addRegionTopology(ModelRegionTopologyForTime topology) {
+        topology_.add(topology);
+    }
+
+    public void addExpressionTime(int time) {
+        if (!expression_.isEmpty()) {
+            throw new IllegalStateException("Expression times must be added before expression data");
+        }
+        Integer key = Integer.valueOf(time);
+        if (!timeIndex_.containsKey(key)) {
+            timeIndex_.put(key, Integer.valueOf(times_.size()));
+            times_.add(key);
+        }
+    }
+
+    /***************************************************************************
+     **
+     ** Sets the expression of a gene in a region at a time. The gene becomes
+     ** an expression gene; the region and time must already be known.
+     */
+
+    public void setExpression(String gene, String region, int time,
+                              ModelExpressionEntry.Level level, ModelExpressionEntry.Source source) {
+        byte[] cells = expression_.get(gene);
+        if (cells == null) {
+            cells = new byte[regions_.size() * times_.size()];
+            expression_.put(gene, cells);
+        }
+        int cell = cellIndex(region, time);
+        if (cell == -1) {
+            throw new IllegalArgumentException("Unknown region or time: " + region + ", " + time);
+        }
+        cells[cell] = (byte)(1 + 4 * level.ordinal() + source.ordinal());
+    }
+
+    public long getModelVersion() {
+        return version_;
+    }
+
+    public int getNodeCount() {
+        return nodes_.size();
+    }
+
+    public int getLinkCount() {
+        return links_.size();
+    }
+
+    public String getSelectedModelID() {
+        return selectedModelID_;
+    }
+
+    /**
+     * Node IDs of the last goToModelAndSelect() call.
+     */
+    public Set<String> getSelectedNodeIDs() {
+        return Collections.unmodifiableSet(selectedNodeIDs_);
+    }
+
+    public Set<String> getSelectedLinkIDs() {
+        return Collections.unmodifiableSet(selectedLinkIDs_);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // ModelSource
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    public Iterator<ModelNode> getRootModelNodes() {
+        return Collections.unmodifiableCollection(nodes_.values()).iterator();
+    }
+
+    public Iterator<ModelLink> getRootModelLinks() {
+        return Collections.unmodifiableList(links_).iterator();
+    }
+
+    public ModelNode getNode(String nodeID) {
+        return nodes_.get(nodeID);
+    }
+
+    public Iterator<ModelRegionTopologyForTime> getRegionTopology() {
+        return Collections.unmodifiableList(topology_).iterator();
+    }
+
+    public List<ModelRegion> getRegions() {
+        return new ArrayList<ModelRegion>(regions_);
+    }
+
+    public Set<String> getExpressionGenes() {
+        return new HashSet<String>(expression_.keySet());
+    }
+
+    public SortedSet<Integer> getExpressionTimes() {
+        return new TreeSet<Integer>(times_);
+    }
+
+    public ModelExpressionEntry getExpressionEntry(String gene, String region, int time) {
+        byte[] cells = expression_.get(gene);
+        int cell = cellIndex(region, time);
+        int value = (cells == null || cell == -1) ? 0 : cells[cell];
+        if (value == 0) {
+            return new ModelExpressionEntry(region, time, ModelExpressionEntry.Level.NO_DATA,
+                                            ModelExpressionEntry.Source.NO_SOURCE_SPECIFIED, null);
+        }
+        value -= 1;
+        return new ModelExpressionEntry(region, time, LEVELS[value / 4], SOURCES[value % 4], null);
+    }
+
+    /***************************************************************************
+     **
+     ** Same links BioTapestry would report: back edges of a depth first
+     ** search from the root nodes.
+     */
+
+    public Set<ModelLink> findFeedbackEdges() {
+        return new ModelGraphAnalysis(this).findFeedbackEdges();
+    }
+
+    public void goToModelAndSelect(String modelID, Set<String> nodeIDs, Set<String> linkIDs) {
+        selectedModelID_ = modelID;
+        selectedNodeIDs_ = new HashSet<String>(nodeIDs);
+        selectedLinkIDs_ = new HashSet<String>(linkIDs);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PRIVATE INSTANCE METHODS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    private int cellIndex(String region, int time) {
+        Integer regionIndex = regionIndex_.get(region);
+        Integer timeIndex = timeIndex_.get(Integer.valueOf(time));
+        if (regionIndex == null || timeIndex == null) {
+            return -1;
+        }
+        return regionIndex.intValue() * times_.size() + timeIndex.intValue();
+    }
+}
@@ -0,0 +1,238 @@
+/*
+**    Copyright (C) 2003-2015 Institute for Systems Biology
+**                            Seattle, Washington, USA.
+**
+**    This library is free software; you can redistribute it and/or
+**    modify it under the terms of the GNU Lesser General Public
+**    License as published by the Free Software Foundation; either
+**    version 2.1 of the License, or (at your option) any later version.
+**
+**    This library is distributed in the hope that it will be useful,
+**    but WITHOUT ANY WARRANTY; without even the implied warranty of
+**    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+**    Lesser General Public License for more details.
+**
+**    You should have received a copy of the GNU Lesser General Public
+**    License along with this library; if not, write to the Free Software
+**    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package org.systemsbiology.biotapestry.plugin.simulation.genetool.synthetic;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SortedSet;
+
+import org.systemsbiology.biotapestry.simulation.ModelExpressionEntry;
+import org.systemsbiology.biotapestry.simulation.ModelLink;
+import org.systemsbiology.biotapestry.simulation.ModelNode;
+import org.systemsbiology.biotapestry.simulation.ModelRegion;
+import org.systemsbiology.biotapestry.simulation.ModelRegionTopologyForTime;
+import org.systemsbiology.biotapestry.simulation.ModelSource;
+
+/***************************************************************************
+ *
+ * Plain text snapshot of a ModelSource, so that a model can be saved from
+ * BioTapestry once and then converted and simulated without it. One record
+ * per line, with tab separated fields:
+ *
+ *   node     id  type  name
+ *   link     id  src  trg  sign
+ *   region   name  start  end  lineage...
+ *   time     t
+ *   window   minTime  maxTime  region...
+ *   contact  region1  region2
+ *   expr     gene  region  time  level  source
+ *
+ * Contacts belong to the window above them. Regions and times must come
+ * before expression records, which list only cells with data. Blank lines
+ * and lines starting with # are skipped. Names may not contain tabs or
+ * line breaks.
+ *
+ */
+public class ModelSourceFile {
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PUBLIC STATIC METHODS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    public static void write(ModelSource source, Writer out) throws IOException {
+        PrintWriter writer = new PrintWriter(out);
+
+        Iterator<ModelNode> nit = source.getRootModelNodes();
+        while (nit.hasNext()) {
+            ModelNode node = nit.next();
+            writer.println(record("node", node.getUniqueInternalID(), node.getType().name(), node.getName()));
+        }
+        Iterator<ModelLink> lit = source.getRootModelLinks();
+        while (lit.hasNext()) {
+            ModelLink link = lit.next();
+            writer.println(record("link", link.getUniqueInternalID(), link.getSrc(), link.getTrg(), link.getSign().name()));
+        }
+
+        List<ModelRegion> regions = source.getRegions();
+        for (ModelRegion region : regions) {
+            List<String> fields = new ArrayList<String>();
+            fields.add("region");
+            fields.add(region.getRegionName());
+            fields.add(Integer.toString(region.getRegionStart()));
+            fields.add(Integer.toString(region.getRegionEnd()));
+            fields.addAll(region.getLineage());
+            writer.println(record(fields.toArray(new String[fields.size()])));
+        }
+        SortedSet<Integer> times = source.getExpressionTimes();
+        for (Integer time : times) {
+            writer.println(record("time", time.toString()));
+        }
+
+        Iterator<ModelRegionTopologyForTime> tit = source.getRegionTopology();
+        while (tit.hasNext()) {
+            ModelRegionTopologyForTime topo = tit.next();
+            List<String> fields = new ArrayList<String>();
+            fields.add("window");
+            fields.add(Integer.toString(topo.getMinTime()));
+            fields.add(Integer.toString(topo.getMaxTime()));
+            Iterator<String> rit = topo.getRegions();
+            while (rit.hasNext()) {
+                fields.add(rit.next());
+            }
+            writer.println(record(fields.toArray(new String[fields.size()])));
+            Iterator<ModelRegionTopologyForTime.TopoLink> tlit = topo.getLinks();
+            while (tlit.hasNext()) {
+                ModelRegionTopologyForTime.TopoLink tlink = tlit.next();
+                writer.println(record("contact", tlink.getRegion1(), tlink.getRegion2()));
+            }
+        }
+
+        for (String gene : source.getExpressionGenes()) {
+            for (ModelRegion region : regions) {
+                for (Integer time : times) {
+                    ModelExpressionEntry entry = source.getExpressionEntry(gene, region.getRegionName(), time.intValue());
+                    if (entry == null || entry.getLevel() == ModelExpressionEntry.Level.NO_DATA) {
+                        continue;
+                    }
+                    writer.println(record("expr", gene, region.getRegionName(), time.toString(),
+                                          entry.getLevel().name(), entry.getSource().name()));
+                }
+            }
+        }
+        writer.flush();
+        if (writer.checkError()) {
+            throw new IOException("Failed writing model snapshot");
+        }
+    }
+
+    public static InMemoryModelSource read(Reader in) throws IOException {
+        BufferedReader reader = new BufferedReader(in);
+        InMemoryModelSource source = new InMemoryModelSource();
+
+        // Window being read; added once its contacts are complete
+        String[] window = null;
+        List<ModelRegionTopologyForTime.TopoLink> contacts = new ArrayList<ModelRegionTopologyForTime.TopoLink>();
+
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.length() == 0 || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\t", -1);
+            String kind = fields[0];
+            try {
+                if (!kind.equals("contact") && window != null) {
+                    source.addRegionTopology(toTopology(window, contacts));
+                    window = null;
+                }
+
+                if (kind.equals("node")) {
+                    checkFields(fields, 4);
+                    source.addNode(new ModelNode(fields[1], fields[3], ModelNode.Type.valueOf(fields[2])));
+                }
+                else if (kind.equals("link")) {
+                    checkFields(fields, 5);
+                    source.addLink(new ModelLink(fields[1], fields[2], fields[3], ModelLink.Sign.valueOf(fields[4])));
+                }
+                else if (kind.equals("region")) {
+                    checkFields(fields, 4);
+                    List<String> lineage = new ArrayList<String>();
+                    for (int i = 4; i < fields.length; i++) {
+                        lineage.add(fields[i]);
+                    }
+                    source.addRegion(new ModelRegion(fields[1], Integer.parseInt(fields[2]), Integer.parseInt(fields[3]), lineage));
+                }
+                else if (kind.equals("time")) {
+                    checkFields(fields, 2);
+                    source.addExpressionTime(Integer.parseInt(fields[1]));
+                }
+                else if (kind.equals("window")) {
+                    checkFields(fields, 3);
+                    window = fields;
+                    contacts = new ArrayList<ModelRegionTopologyForTime.TopoLink>();
+                }
+                else if (kind.equals("contact")) {
+                    checkFields(fields, 3);
+                    if (window == null) {
+                        throw new IllegalArgumentException("Contact outside a window");
+                    }
+                    contacts.add(new ModelRegionTopologyForTime.TopoLink(fields[1], fields[2]));
+                }
+                else if (kind.equals("expr")) {
+                    checkFields(fields, 6);
+                    source.setExpression(fields[1], fields[2], Integer.parseInt(fields[3]),
+                                         ModelExpressionEntry.Level.valueOf(fields[4]),
+                                         ModelExpressionEntry.Source.valueOf(fields[5]));
+                }
+                else {
+                    throw new IllegalArgumentException("Unknown record " + kind);
+                }
+            }
+            catch (RuntimeException ex) {
+                // Bad numbers, enum names and ordering all end up here
+                throw new IOException("Line " + lineNumber + ": " + ex.getMessage(), ex);
+            }
+        }
+        if (window != null) {
+            source.addRegionTopology(toTopology(window, contacts));
+        }
+        return source;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PRIVATE STATIC METHODS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    private static String record(String... fields) {
+        StringBuffer buf = new StringBuffer();
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                buf.append('\t');
+            }
+            buf.append(fields[i]);
+        }
+        return buf.toString();
+    }
+
+    private static void checkFields(String[] fields, int count) {
+        if (fields.length < count) {
+            throw new IllegalArgumentException("Expected " + count + " fields, found " + fields.length);
+        }
+    }
+
+    private static ModelRegionTopologyForTime toTopology(String[] window, List<ModelRegionTopologyForTime.TopoLink> contacts) {
+        List<String> regions = new ArrayList<String>();
+        for (int i = 3; i < window.length; i++) {
+            regions.add(window[i]);
+        }
+        return new ModelRegionTopologyForTime(Integer.parseInt(window[1]), Integer.parseInt(window[2]), regions, contacts);
+    }
+}
@@ -0,0 +1,344 @@
+/*
+**    Copyright (C) 2003-2015 Institute for Systems Biology
+**                            Seattle, Washington, USA.
+**
+**    This library is free software; you can redistribute it and/or
+**    modify it under the terms of the GNU Lesser General Public
+**    License as published by the Free Software Foundation; either
+**    version 2.1 of the License, or (at your option) any later version.
+**
+**    This library is distributed in the hope that it will be useful,
+**    but WITHOUT ANY WARRANTY; without even the implied warranty of
+**    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+**    Lesser General Public License for more details.
+**
+**    You should have received a copy of the GNU Lesser General Public
+**    License along with this library; if not, write to the Free Software
+**    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package org.systemsbiology.biotapestry.plugin.simulation.genetool.synthetic;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.systemsbiology.biotapestry.simulation.ModelExpressionEntry;
+import org.systemsbiology.biotapestry.simulation.ModelLink;
+import org.systemsbiology.biotapestry.simulation.ModelNode;
+import org.systemsbiology.biotapestry.simulation.ModelRegion;
+import org.systemsbiology.biotapestry.simulation.ModelRegionTopologyForTime;
+
+/***************************************************************************
+ *
+ * Generates synthetic models of a chosen size and shape, for scale and
+ * stress testing of the adapter and the toolkit. The same seed and settings
+ * always give the same model.
+ *
+ * Links are drawn between node pairs, either uniformly or by preferential
+ * attachment for a scale free degree distribution. Nodes have a hidden
+ * order, and each link points along it except for about feedbackFraction of
+ * them, which point back and close cycles. Regions form a lineage tree
+ * whose leaves are the domains; they appear one tree level at a time, touch
+ * in random pairs that change between topology windows, and carry random
+ * expression data for every gene.
+ *
+ */
+public class SyntheticModelGenerator {
+
+    public enum NetworkShape {
+        RANDOM,
+        SCALE_FREE,
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PRIVATE VARIABLES
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    // Chance that a scale free endpoint is drawn uniformly instead of by degree
+    private static final double UNIFORM_ENDPOINT_CHANCE = 0.2;
+
+    private long seed_;
+    private int nodeCount_;
+    private double linksPerNode_;
+    private NetworkShape shape_;
+    private double feedbackFraction_;
+    private double negativeFraction_;
+    private double intercellFraction_;
+    private int regionBranching_;
+    private int regionDepth_;
+    private int timeCount_;
+    private int topologyWindows_;
+    private double expressedFraction_;
+    private double maternalFraction_;
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PUBLIC CONSTRUCTORS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    public SyntheticModelGenerator(long seed) {
+        seed_ = seed;
+        nodeCount_ = 1000;
+        linksPerNode_ = 2.0;
+        shape_ = NetworkShape.SCALE_FREE;
+        feedbackFraction_ = 0.05;
+        negativeFraction_ = 0.3;
+        intercellFraction_ = 0.02;
+        regionBranching_ = 2;
+        regionDepth_ = 2;
+        timeCount_ = 10;
+        topologyWindows_ = 2;
+        expressedFraction_ = 0.3;
+        maternalFraction_ = 0.05;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PUBLIC METHODS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    public void setNodeCount(int nodeCount) {
+        nodeCount_ = nodeCount;
+    }
+
+    /**
+     * Average out degree; duplicate pairs are redrawn, so dense settings on
+     * small networks can fall short.
+     */
+    public void setLinksPerNode(double linksPerNode) {
+        linksPerNode_ = linksPerNode;
+    }
+
+    public void setShape(NetworkShape shape) {
+        shape_ = shape;
+    }
+
+    public void setFeedbackFraction(double feedbackFraction) {
+        feedbackFraction_ = feedbackFraction;
+    }
+
+    public void setNegativeFraction(double negativeFraction) {
+        negativeFraction_ = negativeFraction;
+    }
+
+    public void setIntercellFraction(double intercellFraction) {
+        intercellFraction_ = intercellFraction;
+    }
+
+    /**
+     * The lineage tree has branching^depth domains at its leaves.
+     */
+    public void setRegionTree(int branching, int depth) {
+        regionBranching_ = branching;
+        regionDepth_ = depth;
+    }
+
+    public void setTimeCount(int timeCount) {
+        timeCount_ = timeCount;
+    }
+
+    public void setTopologyWindows(int topologyWindows) {
+        topologyWindows_ = topologyWindows;
+    }
+
+    public void setExpressedFraction(double expressedFraction) {
+        expressedFraction_ = expressedFraction;
+    }
+
+    public void setMaternalFraction(double maternalFraction) {
+        maternalFraction_ = maternalFraction;
+    }
+
+    public InMemoryModelSource generate() {
+        Random random = new Random(seed_);
+        InMemoryModelSource source = new InMemoryModelSource();
+
+        List<String> geneNames = generateNodes(random, source);
+        generateLinks(random, source);
+        List<ModelRegion> regions = generateRegions(source);
+        for (int time = 0; time < timeCount_; time++) {
+            source.addExpressionTime(time);
+        }
+        generateTopology(random, source, regions);
+        generateExpression(random, source, geneNames);
+        return source;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PRIVATE INSTANCE METHODS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    private static String nodeID(int node) {
+        return "N" + node;
+    }
+
+    /***************************************************************************
+     **
+     ** Adds the nodes and returns the names of the genes among them.
+     */
+
+    private List<String> generateNodes(Random random, InMemoryModelSource source) {
+        List<String> geneNames = new ArrayList<String>();
+        for (int i = 0; i < nodeCount_; i++) {
+            if (random.nextDouble() < intercellFraction_) {
+                source.addNode(new ModelNode(nodeID(i), "ic" + i, ModelNode.Type.INTERCELL));
+            }
+            else {
+                String name = "g" + i;
+                source.addNode(new ModelNode(nodeID(i), name, ModelNode.Type.GENE));
+                geneNames.add(name);
+            }
+        }
+        return geneNames;
+    }
+
+    private void generateLinks(Random random, InMemoryModelSource source) {
+        if (nodeCount_ < 2) {
+            return;
+        }
+        long linkCount = Math.round(nodeCount_ * linksPerNode_);
+        long maxLinks = (long)nodeCount_ * (nodeCount_ - 1);
+        linkCount = Math.min(linkCount, maxLinks);
+
+        Set<Long> pairs = new HashSet<Long>();
+        // Every link endpoint so far, so that drawing from it favors hubs
+        int[] endpoints = new int[(int)(2 * linkCount)];
+        int endpointCount = 0;
+        long attempts = 0;
+
+        while (pairs.size() < linkCount && attempts++ < 10 * linkCount) {
+            int a = pickNode(random, endpoints, endpointCount);
+            int b = pickNode(random, endpoints, endpointCount);
+            if (a == b) {
+                continue;
+            }
+            int src = Math.min(a, b);
+            int trg = Math.max(a, b);
+            if (random.nextDouble() < feedbackFraction_) {
+                src = Math.max(a, b);
+                trg = Math.min(a, b);
+            }
+            if (!pairs.add(Long.valueOf((long)src * nodeCount_ + trg))) {
+                continue;
+            }
+
+            ModelLink.Sign sign = (random.nextDouble() < negativeFraction_) ? ModelLink.Sign.NEGATIVE
+                                                                            : ModelLink.Sign.POSITIVE;
+            source.addLink(new ModelLink("L" + pairs.size(), nodeID(src), nodeID(trg), sign));
+            endpoints[endpointCount++] = src;
+            endpoints[endpointCount++] = trg;
+        }
+    }
+
+    private int pickNode(Random random, int[] endpoints, int endpointCount) {
+        if (shape_ == NetworkShape.RANDOM || endpointCount == 0 || random.nextDouble() < UNIFORM_ENDPOINT_CHANCE) {
+            return random.nextInt(nodeCount_);
+        }
+        return endpoints[random.nextInt(endpointCount)];
+    }
+
+    /***************************************************************************
+     **
+     ** Adds the lineage tree, root first, and returns its leaves.
+     */
+
+    private List<ModelRegion> generateRegions(InMemoryModelSource source) {
+        List<List<String>> level = new ArrayList<List<String>>();
+        List<String> root = new ArrayList<String>();
+        root.add("R");
+        level.add(root);
+        List<ModelRegion> leaves = new ArrayList<ModelRegion>();
+
+        for (int depth = 0; depth <= regionDepth_; depth++) {
+            int start = depth * timeCount_ / (regionDepth_ + 1);
+            List<List<String>> next = new ArrayList<List<String>>();
+            for (List<String> lineage : level) {
+                String name = lineage.get(lineage.size() - 1);
+                ModelRegion region = new ModelRegion(name, start, timeCount_ - 1, lineage);
+                source.addRegion(region);
+                if (depth == regionDepth_) {
+                    leaves.add(region);
+                    continue;
+                }
+                for (int child = 0; child < regionBranching_; child++) {
+                    List<String> childLineage = new ArrayList<String>(lineage);
+                    childLineage.add(name + "_" + child);
+                    next.add(childLineage);
+                }
+            }
+            level = next;
+        }
+        return leaves;
+    }
+
+    /***************************************************************************
+     **
+     ** Splits the time range into windows, each with its own random contacts
+     ** between domains, about one per domain.
+     */
+
+    private void generateTopology(Random random, InMemoryModelSource source, List<ModelRegion> domains) {
+        List<String> names = new ArrayList<String>();
+        for (ModelRegion domain : domains) {
+            names.add(domain.getRegionName());
+        }
+        if (names.size() < 2) {
+            return;
+        }
+
+        int windows = Math.max(1, Math.min(topologyWindows_, timeCount_));
+        for (int w = 0; w < windows; w++) {
+            int minTime = w * timeCount_ / windows;
+            int maxTime = (w + 1) * timeCount_ / windows - 1;
+            List<ModelRegionTopologyForTime.TopoLink> links = new ArrayList<ModelRegionTopologyForTime.TopoLink>();
+            for (int i = 0; i < names.size(); i++) {
+                int other = random.nextInt(names.size() - 1);
+                if (other >= i) {
+                    other++;
+                }
+                links.add(new ModelRegionTopologyForTime.TopoLink(names.get(i), names.get(other)));
+            }
+            source.addRegionTopology(new ModelRegionTopologyForTime(minTime, maxTime, names, links));
+        }
+    }
+
+    /***************************************************************************
+     **
+     ** Fills in every gene, region and time. Before a region appears it has
+     ** no data; a few genes are maternal at the first time point.
+     */
+
+    private void generateExpression(Random random, InMemoryModelSource source, List<String> geneNames) {
+        List<ModelRegion> regions = source.getRegions();
+        for (String gene : geneNames) {
+            boolean maternal = random.nextDouble() < maternalFraction_;
+            for (ModelRegion region : regions) {
+                for (int time = region.getRegionStart(); time < timeCount_; time++) {
+                    if (maternal && time == 0) {
+                        source.setExpression(gene, region.getRegionName(), time,
+                                             ModelExpressionEntry.Level.EXPRESSED,
+                                             ModelExpressionEntry.Source.MATERNAL_SOURCE);
+                    }
+                    else if (random.nextDouble() < expressedFraction_) {
+                        source.setExpression(gene, region.getRegionName(), time,
+                                             ModelExpressionEntry.Level.EXPRESSED,
+                                             ModelExpressionEntry.Source.ZYGOTIC_SOURCE);
+                    }
+                    else {
+                        source.setExpression(gene, region.getRegionName(), time,
+                                             ModelExpressionEntry.Level.NOT_EXPRESSED,
+                                             ModelExpressionEntry.Source.NO_SOURCE_SPECIFIED);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.systemsbiology.biotapestry.plugin.simulation.genetool.tests;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.systemsbiology.biotapestry.plugin.simulation.genetool.ExpressionCube;
+import org.systemsbiology.biotapestry.plugin.simulation.genetool.synthetic.InMemoryModelSource;
+import org.systemsbiology.biotapestry.plugin.simulation.genetool.synthetic.SyntheticModelGenerator;
+import org.systemsbiology.biotapestry.simulation.ModelExpressionEntry;
+import org.systemsbiology.biotapestry.simulation.ModelExpressionEntry.Level;
+import org.systemsbiology.biotapestry.simulation.ModelExpressionEntry.Source;
+import org.systemsbiology.biotapestry.simulation.ModelRegion;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+public class ExpressionCubeTests {
+
+	private ExpressionCube cubeFor(InMemoryModelSource source) {
+		List<String> regions = new ArrayList<String>();
+		for (ModelRegion region : source.getRegions()) {
+			regions.add(region.getRegionName());
+		}
+		return new ExpressionCube(new TreeSet<String>(source.getExpressionGenes()), regions, source.getExpressionTimes());
+	}
+
+	@Test
+	public void smallCubeTest() {
+		InMemoryModelSource source = new InMemoryModelSource();
+		source.addRegion(new ModelRegion("A", 0, 10, null));
+		source.addRegion(new ModelRegion("B", 0, 10, null));
+		source.addExpressionTime(2);
+		source.addExpressionTime(5);
+		source.addExpressionTime(9);
+		source.setExpression("g1", "B", 5, Level.EXPRESSED, Source.ZYGOTIC_SOURCE);
+		source.setExpression("g2", "A", 9, Level.WEAK_EXPRESSION, Source.MATERNAL_SOURCE);
+
+		ExpressionCube cube = cubeFor(source);
+		cube.fill(source, 1);
+
+		int g1 = cube.getGeneIndex("g1");
+		int b = cube.getRegionIndex("B");
+		Assert.assertEquals(-1, cube.getGeneIndex("g3"));
+		Assert.assertEquals(-1, cube.getGeneIndex(null));
+		Assert.assertEquals(1, cube.getTimeIndex(5));
+		Assert.assertEquals(-1, cube.getTimeIndex(6));
+		Assert.assertEquals(Level.EXPRESSED, cube.getLevel(g1, b, 1));
+		Assert.assertEquals(Source.ZYGOTIC_SOURCE, cube.getSource(g1, b, 1));
+		Assert.assertEquals(Level.NO_DATA, cube.getLevel(g1, b, 0));
+		Assert.assertEquals(Source.NO_SOURCE_SPECIFIED, cube.getSource(g1, b, 0));
+		Assert.assertTrue(cube.matches(g1, b, 2, Level.NO_DATA, Source.NO_SOURCE_SPECIFIED));
+		Assert.assertTrue(cube.matches(cube.getGeneIndex("g2"), cube.getRegionIndex("A"), 2, Level.WEAK_EXPRESSION, Source.MATERNAL_SOURCE));
+		Assert.assertFalse(cube.matches(g1, b, 1, Level.EXPRESSED, Source.NO_SOURCE_SPECIFIED));
+	}
+
+	@Test
+	public void matchesModelSourceTest() {
+		SyntheticModelGenerator generator = new SyntheticModelGenerator(11);
+		generator.setNodeCount(300);
+		generator.setMaternalFraction(0.2);
+		InMemoryModelSource source = generator.generate();
+
+		ExpressionCube sequential = cubeFor(source);
+		sequential.fill(source, 1);
+		ExpressionCube parallel = cubeFor(source);
+		parallel.fill(source, 4);
+
+		Assert.assertTrue(sequential.getGeneCount() > 16);
+		for (int g = 0; g < sequential.getGeneCount(); g++) {
+			for (int r = 0; r < sequential.getRegionCount(); r++) {
+				for (int t = 0; t < sequential.getTimeCount(); t++) {
+					ModelExpressionEntry entry = source.getExpressionEntry(sequential.getGene(g), sequential.getRegion(r), sequential.getTime(t));
+					Assert.assertEquals(entry.getLevel(), sequential.getLevel(g, r, t));
+					Assert.assertEquals(entry.getSource(), sequential.getSource(g, r, t));
+					Assert.assertEquals(entry.getLevel(), parallel.getLevel(g, r, t));
+					Assert.assertEquals(entry.getSource(), parallel.getSource(g, r, t));
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package org.systemsbiology.biotapestry.plugin.simulation.genetool.tests;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.systemsbiology.biotapestry.plugin.simulation.genetool.ExpressionCube;
+import org.systemsbiology.biotapestry.plugin.simulation.genetool.ExpressionTimeline;
+import org.systemsbiology.biotapestry.plugin.simulation.genetool.ExpressionTimeline.Interval;
+import org.systemsbiology.biotapestry.plugin.simulation.genetool.synthetic.InMemoryModelSource;
+import org.systemsbiology.biotapestry.plugin.simulation.genetool.synthetic.SyntheticModelGenerator;
+import org.systemsbiology.biotapestry.simulation.ModelExpressionEntry;
+import org.systemsbiology.biotapestry.simulation.ModelExpressionEntry.Level;
+import org.systemsbiology.biotapestry.simulation.ModelExpressionEntry.Source;
+import org.systemsbiology.biotapestry.simulation.ModelRegion;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+public class ExpressionTimelineTests {
+
+	private ExpressionTimeline timelineFor(InMemoryModelSource source) {
+		List<String> regions = new ArrayList<String>();
+		for (ModelRegion region : source.getRegions()) {
+			regions.add(region.getRegionName());
+		}
+		ExpressionCube cube = new ExpressionCube(new TreeSet<String>(source.getExpressionGenes()), regions, source.getExpressionTimes());
+		cube.fill(source, 1);
+		return new ExpressionTimeline(cube);
+	}
+
+	/*
+	 * The scan the adapter used before the timeline: the slice ends at the
+	 * first time point that differs, or at the last time point.
+	 */
+	private List<Interval> scanIntervals(InMemoryModelSource source, String gene, String region, Level level) {
+		List<Interval> intervals = new ArrayList<Interval>();
+		List<Integer> times = new ArrayList<Integer>(source.getExpressionTimes());
+		int t = 0;
+		while (t < times.size()) {
+			if (!isExpressed(source, gene, region, times.get(t), level)) {
+				t++;
+				continue;
+			}
+			int start = times.get(t);
+			t++;
+			while (t < times.size() && isExpressed(source, gene, region, times.get(t), level)) {
+				t++;
+			}
+			intervals.add(new Interval(start, times.get((t < times.size()) ? t : times.size() - 1)));
+		}
+		return intervals;
+	}
+
+	private boolean isExpressed(InMemoryModelSource source, String gene, String region, int time, Level level) {
+		ModelExpressionEntry entry = source.getExpressionEntry(gene, region, time);
+		return entry.getLevel() == level && entry.getSource() == Source.NO_SOURCE_SPECIFIED;
+	}
+
+	@Test
+	public void intervalEndTimesTest() {
+		InMemoryModelSource source = new InMemoryModelSource();
+		source.addRegion(new ModelRegion("A", 0, 30, null));
+		for (int time = 0; time <= 30; time += 5) {
+			source.addExpressionTime(time);
+		}
+		source.setExpression("g", "A", 5, Level.EXPRESSED, Source.NO_SOURCE_SPECIFIED);
+		source.setExpression("g", "A", 10, Level.EXPRESSED, Source.NO_SOURCE_SPECIFIED);
+		source.setExpression("g", "A", 15, Level.EXPRESSED, Source.ZYGOTIC_SOURCE);
+		source.setExpression("g", "A", 25, Level.EXPRESSED, Source.NO_SOURCE_SPECIFIED);
+		source.setExpression("g", "A", 30, Level.EXPRESSED, Source.NO_SOURCE_SPECIFIED);
+
+		ExpressionTimeline timeline = timelineFor(source);
+		List<Interval> intervals = timeline.findIntervals("g", "A", Level.EXPRESSED, Source.NO_SOURCE_SPECIFIED);
+		Assert.assertEquals(2, intervals.size());
+		Assert.assertEquals(new Interval(5, 15), intervals.get(0));
+		Assert.assertEquals(new Interval(25, 30), intervals.get(1));
+		Assert.assertEquals(new Interval(5, 15), timeline.findFirstInterval("g", "A", Level.EXPRESSED, Source.NO_SOURCE_SPECIFIED));
+		Assert.assertEquals(new Interval(15, 20), timeline.findFirstInterval("g", "A", Level.EXPRESSED, Source.ZYGOTIC_SOURCE));
+		Assert.assertEquals(5, timeline.getRunCount(0, 0));
+
+		Assert.assertNull(timeline.findFirstInterval("g", "A", Level.WEAK_EXPRESSION, Source.NO_SOURCE_SPECIFIED));
+		Assert.assertNull(timeline.findFirstInterval(null, "A", Level.EXPRESSED, Source.NO_SOURCE_SPECIFIED));
+		Assert.assertEquals(new Interval(0, 30), timeline.findFirstInterval("other", "A", Level.NO_DATA, Source.NO_SOURCE_SPECIFIED));
+	}
+
+	@Test
+	public void matchesTimePointScanTest() {
+		SyntheticModelGenerator generator = new SyntheticModelGenerator(17);
+		generator.setNodeCount(200);
+		generator.setTimeCount(12);
+		InMemoryModelSource source = generator.generate();
+		ExpressionTimeline timeline = timelineFor(source);
+
+		int intervals = 0;
+		for (String gene : source.getExpressionGenes()) {
+			for (ModelRegion region : source.getRegions()) {
+				for (Level level : Level.values()) {
+					List<Interval> expected = scanIntervals(source, gene, region.getRegionName(), level);
+					Assert.assertEquals(expected, timeline.findIntervals(gene, region.getRegionName(), level, Source.NO_SOURCE_SPECIFIED));
+					intervals += expected.size();
+				}
+			}
+		}
+		Assert.assertTrue(intervals > 0);
+	}
+}
@@ -0,0 +1,163 @@
+package org.systemsbiology.biotapestry.plugin.simulation.genetool.tests;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.CompactGraph;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.FeedbackLoopEnumerator;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.FeedbackLoopEnumerator.Completion;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.FeedbackLoopEnumerator.Polarity;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.FeedbackLoopHandler;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.Link;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.StronglyConnectedComponents;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class FeedbackLoopEnumeratorTests {
+
+	private CompactGraph randomGraph(int nodeCount, int linkCount, long seed) {
+		Random random = new Random(seed);
+		List<String> nodes = new ArrayList<String>();
+		List<Link> links = new ArrayList<Link>();
+		for (int i = 0; i < nodeCount; i++) {
+			nodes.add("N" + i);
+		}
+		for (int i = 0; i < linkCount; i++) {
+			links.add(new Link("N" + random.nextInt(nodeCount), "N" + random.nextInt(nodeCount)));
+		}
+		return new CompactGraph(nodes, links);
+	}
+
+	/*
+	 * Counts simple cycles by length with a plain search from each cycle's
+	 * lowest node.
+	 */
+	private void countCycles(CompactGraph graph, int start, int vertex, boolean[] onPath, int depth, int[] counts) {
+		for (int e = graph.getOutEdgeStart(vertex); e < graph.getOutEdgeEnd(vertex); e++) {
+			int w = graph.getEdgeTarget(e);
+			if (w == start) {
+				counts[depth + 1]++;
+			}
+			else if (w > start && !onPath[w]) {
+				onPath[w] = true;
+				countCycles(graph, start, w, onPath, depth + 1, counts);
+				onPath[w] = false;
+			}
+		}
+	}
+
+	private int[] countCycles(CompactGraph graph) {
+		int[] counts = new int[graph.getNodeCount() + 1];
+		boolean[] onPath = new boolean[graph.getNodeCount()];
+		for (int start = 0; start < graph.getNodeCount(); start++) {
+			onPath[start] = true;
+			countCycles(graph, start, start, onPath, 0, counts);
+			onPath[start] = false;
+		}
+		return counts;
+	}
+
+	@Test
+	public void matchesBruteForceTest() {
+		CompactGraph graph = randomGraph(14, 48, 3);
+		int[] expected = countCycles(graph);
+		int total = 0;
+		for (int count : expected) {
+			total += count;
+		}
+		Assert.assertTrue(total > 10);
+
+		int[][] loops = new FeedbackLoopEnumerator(graph).findLoops();
+		Assert.assertEquals(total, loops.length);
+		for (int[] loop : loops) {
+			for (int i = 0; i < loop.length; i++) {
+				int next = loop[(i + 1) % loop.length];
+				Assert.assertEquals(graph.getEdgeTarget(loop[i]), graph.getEdgeSource(next));
+			}
+		}
+
+		FeedbackLoopEnumerator bounded = new FeedbackLoopEnumerator(graph);
+		bounded.setMaxLength(4);
+		int shortLoops = expected[1] + expected[2] + expected[3] + expected[4];
+		Assert.assertEquals(shortLoops, bounded.findLoops().length);
+	}
+
+	@Test
+	public void limitsAndPolarityTest() {
+		List<String> nodes = new ArrayList<String>();
+		nodes.add("A");
+		nodes.add("B");
+		nodes.add("C");
+		List<Link> links = new ArrayList<Link>();
+		links.add(new Link("A", "B"));
+		links.add(new Link("B", "A"));
+		links.add(new Link("B", "C"));
+		links.add(new Link("C", "A"));
+		CompactGraph graph = new CompactGraph(nodes, links);
+
+		// A -| B is the only repressing link
+		byte[] signs = new byte[graph.getEdgeCount()];
+		for (int e = 0; e < signs.length; e++) {
+			signs[e] = FeedbackLoopEnumerator.SIGN_POSITIVE;
+		}
+		signs[graph.findEdge(graph.getNodeIndex("A"), graph.getNodeIndex("B"))] = FeedbackLoopEnumerator.SIGN_NEGATIVE;
+		signs[graph.findEdge(graph.getNodeIndex("C"), graph.getNodeIndex("A"))] = FeedbackLoopEnumerator.SIGN_NONE;
+
+		final List<Polarity> polarities = new ArrayList<Polarity>();
+		FeedbackLoopEnumerator enumerator = new FeedbackLoopEnumerator(new StronglyConnectedComponents(graph), signs);
+		Completion completion = enumerator.enumerate(new FeedbackLoopHandler() {
+			public boolean handleLoop(int[] edges, int length, Polarity polarity) {
+				polarities.add(polarity);
+				return true;
+			}
+		});
+		Assert.assertEquals(Completion.COMPLETE, completion);
+		Assert.assertEquals(2, polarities.size());
+		Assert.assertTrue(polarities.contains(Polarity.NEGATIVE));
+		Assert.assertTrue(polarities.contains(Polarity.UNDETERMINED));
+
+		enumerator.setMaxCount(1);
+		Assert.assertEquals(Completion.COUNT_LIMIT, enumerator.enumerate(new FeedbackLoopHandler() {
+			public boolean handleLoop(int[] edges, int length, Polarity polarity) {
+				return true;
+			}
+		}));
+		Assert.assertEquals(1, enumerator.getLoopCount());
+	}
+
+	@Test
+	public void timeBudgetStopsDenseNetworkTest() {
+		FeedbackLoopEnumerator enumerator = new FeedbackLoopEnumerator(randomGraph(60, 900, 7));
+		enumerator.setTimeBudget(200);
+		long start = System.currentTimeMillis();
+		Completion completion = enumerator.enumerate(new FeedbackLoopHandler() {
+			public boolean handleLoop(int[] edges, int length, Polarity polarity) {
+				return true;
+			}
+		});
+		Assert.assertEquals(Completion.TIME_LIMIT, completion);
+		Assert.assertTrue(System.currentTimeMillis() - start < 2000);
+		Assert.assertTrue(enumerator.getLoopCount() > 0);
+	}
+
+	@Test(timeout = 20000)
+	public void shortLimitOnLargeComponentTest() {
+		// One 100000 node ring plus chords i -> i + 2 keeps every search short
+		int nodeCount = 100000;
+		List<String> nodes = new ArrayList<String>();
+		List<Link> links = new ArrayList<Link>();
+		for (int i = 0; i < nodeCount; i++) {
+			nodes.add("N" + i);
+		}
+		for (int i = 0; i < nodeCount; i++) {
+			links.add(new Link("N" + i, "N" + ((i + 1) % nodeCount)));
+			links.add(new Link("N" + i, "N" + ((i + 2) % nodeCount)));
+		}
+		CompactGraph graph = new CompactGraph(nodes, links);
+
+		FeedbackLoopEnumerator enumerator = new FeedbackLoopEnumerator(graph);
+		enumerator.setMaxLength(3);
+		Assert.assertEquals(0, enumerator.findLoops().length);
+	}
+}
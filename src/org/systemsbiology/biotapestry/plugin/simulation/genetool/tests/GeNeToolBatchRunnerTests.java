@@ -0,0 +1,44 @@
+package org.systemsbiology.biotapestry.plugin.simulation.genetool.tests;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.systemsbiology.biotapestry.plugin.simulation.genetool.GeNeToolBatchRunner;
+import org.systemsbiology.biotapestry.plugin.simulation.genetool.synthetic.InMemoryModelSource;
+import org.systemsbiology.biotapestry.plugin.simulation.genetool.synthetic.SyntheticModelGenerator;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+import java.io.StringReader;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+public class GeNeToolBatchRunnerTests {
+
+	@Test
+	public void smallSyntheticModelExportsXmlTest() throws Exception {
+		SyntheticModelGenerator generator = new SyntheticModelGenerator(5);
+		generator.setNodeCount(30);
+		InMemoryModelSource source = generator.generate();
+
+		GeNeToolBatchRunner runner = new GeNeToolBatchRunner();
+		String xml = runner.run(source);
+		Assert.assertNotNull(xml);
+
+		Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new InputSource(new StringReader(xml)));
+		Assert.assertEquals("TimeCourseData", doc.getDocumentElement().getTagName());
+		NodeList timeCourses = doc.getElementsByTagName("timeCourse");
+		Assert.assertTrue(timeCourses.getLength() > 0);
+		for (int i = 0; i < timeCourses.getLength(); i++) {
+			Element timeCourse = (Element)timeCourses.item(i);
+			Assert.assertTrue(source.getExpressionGenes().contains(timeCourse.getAttribute("gene")));
+		}
+		Assert.assertTrue(doc.getElementsByTagName("data").getLength() > 0);
+
+		Map<String, Long> times = runner.getStageTimes();
+		Assert.assertTrue(times.containsKey("simulate"));
+		Assert.assertTrue(times.containsKey("export"));
+	}
+}
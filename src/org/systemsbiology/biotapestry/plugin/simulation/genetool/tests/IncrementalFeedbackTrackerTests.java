@@ -0,0 +1,216 @@
+package org.systemsbiology.biotapestry.plugin.simulation.genetool.tests;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.CompactGraph;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.IncrementalFeedbackTracker;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.Link;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.ModelGraphAnalysis;
+import org.systemsbiology.biotapestry.plugin.simulation.genetool.synthetic.InMemoryModelSource;
+import org.systemsbiology.biotapestry.plugin.simulation.genetool.synthetic.SyntheticModelGenerator;
+import org.systemsbiology.biotapestry.simulation.ModelLink;
+import org.systemsbiology.biotapestry.simulation.ModelNode;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+public class IncrementalFeedbackTrackerTests {
+
+	@Test
+	public void closingLinkBecomesFeedbackTest() {
+		IncrementalFeedbackTracker tracker = new IncrementalFeedbackTracker();
+		Assert.assertFalse(tracker.addLink("A", "B"));
+		Assert.assertFalse(tracker.addLink("B", "C"));
+		Assert.assertTrue(tracker.addLink("C", "A"));
+		Assert.assertTrue(tracker.addLink("D", "D"));
+
+		Assert.assertEquals(4, tracker.getLinkCount());
+		Assert.assertEquals(2, tracker.getFeedbackLinkCount());
+		Assert.assertTrue(tracker.isFeedbackLink("C", "A"));
+
+		// Once the cycle is broken, C -> A can be ordered with the rest
+		Assert.assertTrue(tracker.removeLink("A", "B"));
+		Assert.assertFalse(tracker.isFeedbackLink("C", "A"));
+		Assert.assertEquals(1, tracker.getFeedbackLinkCount());
+		Assert.assertFalse(tracker.removeLink("A", "B"));
+		checkInvariants(tracker, true);
+	}
+
+	@Test
+	public void backwardLinkReordersTest() {
+		IncrementalFeedbackTracker tracker = new IncrementalFeedbackTracker();
+		for (String id : new String[] {"A", "B", "C", "D"}) {
+			tracker.addNode(id);
+		}
+		Assert.assertFalse(tracker.addLink("D", "A"));
+		Assert.assertFalse(tracker.addLink("C", "D"));
+		List<String> order = tracker.getTopologicalOrder();
+		Assert.assertTrue(order.indexOf("C") < order.indexOf("D"));
+		Assert.assertTrue(order.indexOf("D") < order.indexOf("A"));
+	}
+
+	@Test
+	public void randomEditsKeepInvariantsTest() {
+		Random random = new Random(11);
+		List<String> nodes = new ArrayList<String>();
+		List<Link> links = new ArrayList<Link>();
+		for (int i = 0; i < 200; i++) {
+			nodes.add("N" + i);
+		}
+		for (int i = 0; i < 600; i++) {
+			links.add(new Link("N" + random.nextInt(200), "N" + random.nextInt(200)));
+		}
+		checkRandomEdits(random, new IncrementalFeedbackTracker(new CompactGraph(nodes, links)), false);
+		checkRandomEdits(random, new IncrementalFeedbackTracker(), true);
+	}
+
+	private void checkRandomEdits(Random random, IncrementalFeedbackTracker tracker, boolean minimal) {
+		checkInvariants(tracker, minimal);
+
+		for (int i = 0; i < 2000; i++) {
+			if (random.nextBoolean()) {
+				tracker.addLink("N" + random.nextInt(200), "N" + random.nextInt(200));
+			}
+			else if (tracker.getLinkCount() > 0) {
+				List<Link> current = tracker.getLinks();
+				tracker.removeLink(current.get(random.nextInt(current.size())));
+			}
+			if (i % 100 == 0) {
+				checkInvariants(tracker, minimal);
+			}
+		}
+		checkInvariants(tracker, minimal);
+	}
+
+	/*
+	 * Non-feedback links point forward in the order. If the tracker was built
+	 * one link at a time, every feedback link also closes a cycle through
+	 * non-feedback links; starting from a whole graph, the initial feedback
+	 * links are the heuristic's and need not.
+	 */
+	private void checkInvariants(IncrementalFeedbackTracker tracker, boolean minimal) {
+		Map<String, Integer> position = new HashMap<String, Integer>();
+		List<String> order = tracker.getTopologicalOrder();
+		for (int i = 0; i < order.size(); i++) {
+			position.put(order.get(i), Integer.valueOf(i));
+		}
+
+		Set<Link> feedback = tracker.getFeedbackLinks();
+		Map<String, List<String>> dag = new HashMap<String, List<String>>();
+		for (Link link : tracker.getLinks()) {
+			if (feedback.contains(link)) {
+				continue;
+			}
+			Assert.assertTrue(position.get(link.getSrc()).intValue() < position.get(link.getTrg()).intValue());
+			if (!dag.containsKey(link.getSrc())) {
+				dag.put(link.getSrc(), new ArrayList<String>());
+			}
+			dag.get(link.getSrc()).add(link.getTrg());
+		}
+
+		if (!minimal) {
+			return;
+		}
+		for (Link link : feedback) {
+			Assert.assertTrue(reaches(dag, link.getTrg(), link.getSrc()));
+		}
+	}
+
+	private boolean reaches(Map<String, List<String>> dag, String from, String to) {
+		Set<String> seen = new HashSet<String>();
+		List<String> stack = new ArrayList<String>();
+		stack.add(from);
+		seen.add(from);
+		while (!stack.isEmpty()) {
+			String node = stack.remove(stack.size() - 1);
+			if (node.equals(to)) {
+				return true;
+			}
+			List<String> next = dag.get(node);
+			if (next == null) {
+				continue;
+			}
+			for (String succ : next) {
+				if (seen.add(succ)) {
+					stack.add(succ);
+				}
+			}
+		}
+		return false;
+	}
+
+	@Test
+	public void analysisOnlyAppliesEditedLinksTest() {
+		SyntheticModelGenerator generator = new SyntheticModelGenerator(31);
+		generator.setNodeCount(5000);
+		InMemoryModelSource source = generator.generate();
+		ModelGraphAnalysis analysis = new ModelGraphAnalysis(source);
+
+		Set<ModelLink> before = analysis.findFeedbackEdgesIncrementally();
+		Assert.assertFalse(before.isEmpty());
+		Assert.assertEquals(before, analysis.findFeedbackEdgesIncrementally());
+		Assert.assertEquals(0, analysis.getLastIncrementalEditCount());
+
+		// N1 -> N0 closes a cycle wherever N0 reaches N1; either way only one link is new
+		ModelLink added = new ModelLink("extra", "N1", "N0", ModelLink.Sign.POSITIVE);
+		source.addLink(added);
+		List<ModelLink> none = new ArrayList<ModelLink>();
+		List<ModelLink> edit = new ArrayList<ModelLink>();
+		edit.add(added);
+		Set<ModelLink> after = analysis.findFeedbackEdgesIncrementally(none, edit);
+		Assert.assertEquals(1, analysis.getLastIncrementalEditCount());
+		Assert.assertTrue(after.containsAll(before));
+		Assert.assertTrue(after.size() <= before.size() + 1);
+
+		// The edits are not read back from the model
+		Assert.assertEquals(after, analysis.findFeedbackEdgesIncrementally());
+		Assert.assertEquals(0, analysis.getLastIncrementalEditCount());
+
+		// Taking the link out again can only free feedback links
+		Set<ModelLink> removed = analysis.findFeedbackEdgesIncrementally(edit, none);
+		Assert.assertEquals(1, analysis.getLastIncrementalEditCount());
+		Assert.assertFalse(removed.contains(added));
+		Assert.assertTrue(before.containsAll(removed));
+	}
+
+	@Test
+	public void analysisKeepsLinkWhileAnotherModelLinkRemainsTest() {
+		InMemoryModelSource source = new InMemoryModelSource();
+		String[] ids = {"A", "B", "C"};
+		for (String id : ids) {
+			source.addNode(new ModelNode(id, id, ModelNode.Type.GENE));
+		}
+		ModelLink first = new ModelLink("L1", "A", "B", ModelLink.Sign.POSITIVE);
+		ModelLink second = new ModelLink("L2", "A", "B", ModelLink.Sign.POSITIVE);
+		ModelLink back = new ModelLink("L3", "B", "A", ModelLink.Sign.NEGATIVE);
+		source.addLink(first);
+		source.addLink(new ModelLink("L4", "B", "C", ModelLink.Sign.POSITIVE));
+		ModelGraphAnalysis analysis = new ModelGraphAnalysis(source);
+		Assert.assertTrue(analysis.findFeedbackEdgesIncrementally().isEmpty());
+
+		List<ModelLink> none = new ArrayList<ModelLink>();
+		List<ModelLink> edit = new ArrayList<ModelLink>();
+		edit.add(second);
+		edit.add(back);
+		// L2 joins the existing A -> B, so only B -> A reaches the tracker
+		Set<ModelLink> feedback = analysis.findFeedbackEdgesIncrementally(none, edit);
+		Assert.assertEquals(1, analysis.getLastIncrementalEditCount());
+		Assert.assertEquals(1, feedback.size());
+
+		// A -> B is still there through L2, so the cycle stays
+		edit.clear();
+		edit.add(first);
+		Assert.assertEquals(feedback, analysis.findFeedbackEdgesIncrementally(edit, none));
+		Assert.assertEquals(0, analysis.getLastIncrementalEditCount());
+
+		edit.clear();
+		edit.add(second);
+		Assert.assertTrue(analysis.findFeedbackEdgesIncrementally(edit, none).isEmpty());
+		Assert.assertEquals(1, analysis.getLastIncrementalEditCount());
+	}
+}
@@ -0,0 +1,312 @@
+package org.systemsbiology.biotapestry.plugin.simulation.genetool.tests;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.CompactDFSState;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.CompactGraph;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.EdgeClassifiedHandler;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.EdgeCollector;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.IndexedEdgeCollector;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.GraphFeedbackFinder;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.Link;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.ModelDepthFirstSearcher;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.ModelDepthFirstSearcher.DFSState;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.ModelDepthFirstSearcher.EdgeType;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.ModelDepthFirstSearcher.TraversalMode;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+public class ModelDepthFirstSearcherTests {
+
+	private class RecordingHandler implements EdgeClassifiedHandler {
+		private List<String> events_ = new ArrayList<String>();
+
+		public void handleEdgeClassified(String source, String target, EdgeType type) {
+			events_.add(source + "->" + target + ":" + type);
+		}
+
+		public List<String> getEvents() {
+			return events_;
+		}
+	}
+
+	private Set<String> nodes(String... ids) {
+		Set<String> result = new HashSet<String>();
+		for (String id : ids) {
+			result.add(id);
+		}
+		return result;
+	}
+
+	/*
+	 * A -> B -> C -> A is a back edge, A -> C a forward edge,
+	 * D -> C a cross edge and E has a self loop.
+	 */
+	private Set<Link> mixedLinks() {
+		Set<Link> links = new HashSet<Link>();
+		links.add(new Link("A", "B"));
+		links.add(new Link("B", "C"));
+		links.add(new Link("C", "A"));
+		links.add(new Link("A", "C"));
+		links.add(new Link("B", "D"));
+		links.add(new Link("D", "C"));
+		links.add(new Link("D", "E"));
+		links.add(new Link("E", "E"));
+		return links;
+	}
+
+	private DFSState runSearch(Set<String> nodes, Set<Link> links, TraversalMode mode, RecordingHandler handler) {
+		List<EdgeClassifiedHandler> handlers = new ArrayList<EdgeClassifiedHandler>();
+		handlers.add(handler);
+		ModelDepthFirstSearcher searcher = new ModelDepthFirstSearcher(nodes, links, handlers);
+		searcher.setTraversalMode(mode);
+		return searcher.run("A");
+	}
+
+	@Test
+	public void explicitStackMatchesRecursiveTest() {
+		Set<String> nodes = nodes("A", "B", "C", "D", "E");
+		Set<Link> links = mixedLinks();
+
+		RecordingHandler recursiveEvents = new RecordingHandler();
+		RecordingHandler iterativeEvents = new RecordingHandler();
+		DFSState recursive = runSearch(nodes, links, TraversalMode.RECURSIVE, recursiveEvents);
+		DFSState iterative = runSearch(nodes, links, TraversalMode.EXPLICIT_STACK, iterativeEvents);
+
+		Assert.assertEquals(recursiveEvents.getEvents(), iterativeEvents.getEvents());
+		Assert.assertEquals(recursive.getVisitOrder(), iterative.getVisitOrder());
+
+		for (String node : nodes) {
+			Assert.assertEquals(recursive.getEntryTime(node), iterative.getEntryTime(node));
+			Assert.assertEquals(recursive.getExitTime(node), iterative.getExitTime(node));
+			Assert.assertEquals(recursive.getParent(node), iterative.getParent(node));
+		}
+
+		Assert.assertEquals(EdgeType.DFS_TREE_EDGE, iterative.getEdgeClass("A", "B"));
+		Assert.assertEquals(EdgeType.DFS_BACK_EDGE, iterative.getEdgeClass("C", "A"));
+		Assert.assertEquals(EdgeType.DFS_FORWARD_EDGE, iterative.getEdgeClass("A", "C"));
+		Assert.assertEquals(EdgeType.DFS_CROSS_EDGE, iterative.getEdgeClass("D", "C"));
+		Assert.assertEquals(EdgeType.DFS_BACK_EDGE, iterative.getEdgeClass("E", "E"));
+	}
+
+	@Test
+	public void explicitStackHandlesDeepChainTest() {
+		int length = 200000;
+		Set<String> nodes = new HashSet<String>();
+		Set<Link> links = new HashSet<Link>();
+		for (int i = 0; i < length; i++) {
+			nodes.add("N" + i);
+			if (i > 0) {
+				links.add(new Link("N" + (i - 1), "N" + i));
+			}
+		}
+
+		ModelDepthFirstSearcher searcher = new ModelDepthFirstSearcher(nodes, links);
+		searcher.setTraversalMode(TraversalMode.EXPLICIT_STACK);
+		DFSState state = searcher.run("N0");
+
+		Assert.assertEquals(length, state.getVisitOrder().size());
+		Assert.assertEquals(length - 1, state.getVisitOrder().get(length - 1).depth);
+		Assert.assertEquals(2 * length, state.getExitTime("N0"));
+	}
+
+	/*
+	 * The one-pass adjacency must list each node's neighbors in the order the
+	 * old per-source scan over the sorted link list produced.
+	 */
+	@Test
+	public void neighborOrderMatchesSortedLinksTest() {
+		int nodeCount = 60;
+		Random random = new Random(20161018L);
+		Set<String> nodes = new HashSet<String>();
+		for (int i = 0; i < nodeCount; i++) {
+			nodes.add("N" + i);
+		}
+		Set<Link> links = new HashSet<Link>();
+		while (links.size() < 400) {
+			links.add(new Link("N" + random.nextInt(nodeCount), "N" + random.nextInt(nodeCount)));
+		}
+
+		CompactGraph graph = new CompactGraph(nodes, links);
+		List<Link> sorted = new ArrayList<Link>(new TreeSet<Link>(links));
+		for (int node = 0; node < graph.getNodeCount(); node++) {
+			String nodeID = graph.getNodeID(node);
+			List<Link> expected = new ArrayList<Link>();
+			for (Link link : sorted) {
+				if (link.getSrc().equals(nodeID)) {
+					expected.add(link);
+				}
+			}
+			List<Link> actual = new ArrayList<Link>();
+			for (int edge = graph.getOutEdgeStart(node); edge < graph.getOutEdgeEnd(node); edge++) {
+				actual.add(graph.getLink(edge));
+			}
+			Assert.assertEquals(nodeID, expected, actual);
+		}
+	}
+
+	@Test
+	public void listConstructorKeepsLinkOrderTest() {
+		List<String> nodes = new ArrayList<String>();
+		nodes.add("A");
+		nodes.add("B");
+		nodes.add("C");
+
+		List<Link> links = new ArrayList<Link>();
+		links.add(new Link("A", "C"));
+		links.add(new Link("A", "B"));
+		links.add(new Link("A", "C"));
+
+		RecordingHandler handler = new RecordingHandler();
+		List<EdgeClassifiedHandler> handlers = new ArrayList<EdgeClassifiedHandler>();
+		handlers.add(handler);
+		new ModelDepthFirstSearcher(nodes, links, handlers).run("A");
+
+		List<String> expected = new ArrayList<String>();
+		expected.add("A->C:DFS_TREE_EDGE");
+		expected.add("A->B:DFS_TREE_EDGE");
+		Assert.assertEquals(expected, handler.getEvents());
+
+		handler = new RecordingHandler();
+		handlers.clear();
+		handlers.add(handler);
+		new ModelDepthFirstSearcher(new HashSet<String>(nodes), new HashSet<Link>(links), handlers).run("A");
+
+		expected.clear();
+		expected.add("A->B:DFS_TREE_EDGE");
+		expected.add("A->C:DFS_TREE_EDGE");
+		Assert.assertEquals(expected, handler.getEvents());
+	}
+
+	@Test
+	public void forestContinuesVisitedStateTest() {
+		Set<String> nodes = nodes("A", "B", "C", "D", "E", "R");
+		Set<Link> links = mixedLinks();
+		links.add(new Link("R", "D"));
+
+		List<String> roots = new ArrayList<String>();
+		roots.add("A");
+		roots.add("R");
+		DFSState state = new ModelDepthFirstSearcher(nodes, links).run(roots);
+
+		Assert.assertEquals(nodes.size(), state.getVisitOrder().size());
+		Assert.assertEquals(0, state.getVisitOrder().get(5).depth);
+		Assert.assertEquals(11, state.getEntryTime("R"));
+		Assert.assertEquals(12, state.getExitTime("R"));
+		Assert.assertEquals(EdgeType.DFS_CROSS_EDGE, state.getEdgeClass("R", "D"));
+	}
+
+	/*
+	 * Every node is its own start node. Path arrays sized to the graph must
+	 * not be allocated per start node, or this costs O(starts * V).
+	 */
+	@Test(timeout = 20000)
+	public void manyStartNodesTest() {
+		int nodeCount = 200000;
+		List<String> nodes = new ArrayList<String>();
+		List<Link> links = new ArrayList<Link>();
+		for (int i = 0; i < nodeCount; i++) {
+			nodes.add("N" + i);
+			if (i % 2 == 1) {
+				links.add(new Link("N" + (i - 1), "N" + i));
+			}
+		}
+
+		ModelDepthFirstSearcher searcher = new ModelDepthFirstSearcher(new CompactGraph(nodes, links));
+		searcher.setTraversalMode(TraversalMode.EXPLICIT_STACK);
+		CompactDFSState state = searcher.runCompact(nodes);
+
+		Assert.assertEquals(nodeCount, state.getVisitCount());
+	}
+
+	@Test
+	public void parallelRootSearchMatchesSequentialTest() {
+		Random random = new Random(5);
+		List<String> nodes = new ArrayList<String>();
+		List<Link> links = new ArrayList<Link>();
+		List<String> roots = new ArrayList<String>();
+		for (int i = 0; i < 2000; i++) {
+			nodes.add("N" + i);
+		}
+		for (int i = 0; i < 40; i++) {
+			roots.add("N" + i);
+		}
+		for (int i = 0; i < 5000; i++) {
+			links.add(new Link("N" + random.nextInt(2000), "N" + (40 + random.nextInt(1960))));
+		}
+		GraphFeedbackFinder finder = new GraphFeedbackFinder(new CompactGraph(nodes, links));
+
+		Set<Link> sequential = finder.run(roots);
+		List<Link> first = new ArrayList<Link>(finder.runParallel(roots, 4));
+		List<Link> second = new ArrayList<Link>(finder.runParallel(roots, 3));
+		Assert.assertFalse(sequential.isEmpty());
+		Assert.assertEquals(sequential, new HashSet<Link>(first));
+		Assert.assertEquals(first, second);
+		Assert.assertEquals(first, new ArrayList<Link>(finder.runParallel(roots, 1)));
+	}
+
+	@Test
+	public void compactStateMatchesDFSStateTest() {
+		Set<String> nodes = nodes("A", "B", "C", "D", "E", "R");
+		Set<Link> links = mixedLinks();
+		links.add(new Link("R", "D"));
+		List<String> roots = new ArrayList<String>();
+		roots.add("A");
+		roots.add("R");
+
+		RecordingHandler namedEvents = new RecordingHandler();
+		RecordingHandler compactEvents = new RecordingHandler();
+		List<EdgeClassifiedHandler> handlers = new ArrayList<EdgeClassifiedHandler>();
+		handlers.add(namedEvents);
+		DFSState named = new ModelDepthFirstSearcher(nodes, links, handlers).run(roots);
+		handlers.clear();
+		handlers.add(compactEvents);
+		ModelDepthFirstSearcher searcher = new ModelDepthFirstSearcher(nodes, links, handlers);
+		CompactDFSState compact = searcher.runCompact(roots);
+		CompactGraph graph = searcher.getGraph();
+
+		Assert.assertEquals(namedEvents.getEvents(), compactEvents.getEvents());
+		Assert.assertEquals(named.getVisitOrder().size(), compact.getVisitCount());
+		for (String node : nodes) {
+			int index = graph.getNodeIndex(node);
+			Assert.assertEquals(named.getEntryTime(node), compact.getEntryTime(index));
+			Assert.assertEquals(named.getExitTime(node), compact.getExitTime(index));
+			String parent = named.getParent(node);
+			Assert.assertEquals((parent == null) ? -1 : graph.getNodeIndex(parent), compact.getParent(index));
+		}
+		for (int e = 0; e < graph.getEdgeCount(); e++) {
+			Link link = graph.getLink(e);
+			Assert.assertEquals(named.getEdgeClass(link.getSrc(), link.getTrg()), compact.getEdgeClass(e));
+		}
+
+		int a = graph.getNodeIndex("A");
+		int c = graph.getNodeIndex("C");
+		int d = graph.getNodeIndex("D");
+		int r = graph.getNodeIndex("R");
+		Assert.assertTrue(compact.isAncestor(a, c));
+		Assert.assertTrue(compact.isAncestor(a, a));
+		Assert.assertFalse(compact.isAncestor(c, a));
+		Assert.assertFalse(compact.isAncestor(r, d));
+	}
+
+	@Test
+	public void indexedCollectorMatchesEdgeCollectorTest() {
+		Set<String> nodes = nodes("A", "B", "C", "D", "E");
+		ModelDepthFirstSearcher searcher = new ModelDepthFirstSearcher(nodes, mixedLinks());
+		EdgeCollector named = new EdgeCollector(EdgeType.DFS_BACK_EDGE);
+		IndexedEdgeCollector indexed = new IndexedEdgeCollector(EdgeType.DFS_BACK_EDGE);
+		searcher.addEdgeClassifiedHandler(named);
+		searcher.addIndexedEdgeHandler(indexed);
+		searcher.runCompact("A");
+
+		Assert.assertEquals(2, indexed.size());
+		Assert.assertEquals(named.getBackEdges(), indexed.toLinks(searcher.getGraph()));
+		Assert.assertEquals(searcher.getGraph().getNodeIndex("C"), indexed.getSource(0));
+		Assert.assertEquals(searcher.getGraph().getNodeIndex("A"), indexed.getTarget(0));
+	}
+}
@@ -0,0 +1,223 @@
+package org.systemsbiology.biotapestry.plugin.simulation.genetool.tests;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.systemsbiology.biotapestry.plugin.simulation.genetool.synthetic.InMemoryModelSource;
+import org.systemsbiology.biotapestry.plugin.simulation.genetool.synthetic.SyntheticModelGenerator;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.ModelGraphAnalysis;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.ModelSnapshot;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.RegulatoryPathFinder;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.VersionedModelSource;
+import org.systemsbiology.biotapestry.simulation.ModelExpressionEntry;
+import org.systemsbiology.biotapestry.simulation.ModelLink;
+import org.systemsbiology.biotapestry.simulation.ModelNode;
+import org.systemsbiology.biotapestry.simulation.ModelRegion;
+import org.systemsbiology.biotapestry.simulation.ModelRegionTopologyForTime;
+import org.systemsbiology.biotapestry.simulation.ModelSource;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedSet;
+
+public class ModelSnapshotTests {
+
+	private class CountingModelSource implements ModelSource {
+		private ModelSource source_;
+		private int reads_;
+
+		CountingModelSource(ModelSource source) {
+			source_ = source;
+		}
+
+		void setSource(ModelSource source) {
+			source_ = source;
+		}
+
+		public Iterator<ModelNode> getRootModelNodes() {
+			reads_++;
+			return source_.getRootModelNodes();
+		}
+
+		public Iterator<ModelLink> getRootModelLinks() {
+			reads_++;
+			return source_.getRootModelLinks();
+		}
+
+		public ModelNode getNode(String nodeID) {
+			reads_++;
+			return source_.getNode(nodeID);
+		}
+
+		public Iterator<ModelRegionTopologyForTime> getRegionTopology() {
+			reads_++;
+			return source_.getRegionTopology();
+		}
+
+		public List<ModelRegion> getRegions() {
+			reads_++;
+			return source_.getRegions();
+		}
+
+		public Set<String> getExpressionGenes() {
+			reads_++;
+			return source_.getExpressionGenes();
+		}
+
+		public SortedSet<Integer> getExpressionTimes() {
+			reads_++;
+			return source_.getExpressionTimes();
+		}
+
+		public ModelExpressionEntry getExpressionEntry(String gene, String region, int time) {
+			return source_.getExpressionEntry(gene, region, time);
+		}
+
+		public Set<ModelLink> findFeedbackEdges() {
+			reads_++;
+			return source_.findFeedbackEdges();
+		}
+
+		public void goToModelAndSelect(String modelID, Set<String> nodeIDs, Set<String> linkIDs) {
+			source_.goToModelAndSelect(modelID, nodeIDs, linkIDs);
+		}
+
+		public int getReads() {
+			return reads_;
+		}
+	}
+
+	private class CountingVersionedSource extends CountingModelSource implements VersionedModelSource {
+		private InMemoryModelSource source_;
+
+		CountingVersionedSource(InMemoryModelSource source) {
+			super(source);
+			source_ = source;
+		}
+
+		public long getModelVersion() {
+			return source_.getModelVersion();
+		}
+	}
+
+	// A ring of nodes, fed by a root so that ROOT_DFS has a place to start
+	private InMemoryModelSource ring(String... nodeIDs) {
+		InMemoryModelSource source = new InMemoryModelSource();
+		source.addNode(new ModelNode("root", "root", ModelNode.Type.GENE));
+		source.addLink(new ModelLink("in", "root", nodeIDs[0], ModelLink.Sign.POSITIVE));
+		for (String nodeID : nodeIDs) {
+			source.addNode(new ModelNode(nodeID, nodeID, ModelNode.Type.GENE));
+		}
+		for (int i = 0; i < nodeIDs.length; i++) {
+			String trg = nodeIDs[(i + 1) % nodeIDs.length];
+			source.addLink(new ModelLink("l" + i, nodeIDs[i], trg, ModelLink.Sign.POSITIVE));
+		}
+		return source;
+	}
+
+	@Test
+	public void readsSourceOnceTest() {
+		SyntheticModelGenerator generator = new SyntheticModelGenerator(23);
+		generator.setNodeCount(400);
+		InMemoryModelSource source = generator.generate();
+		CountingModelSource counting = new CountingModelSource(source);
+
+		ModelSnapshot model = new ModelSnapshot(counting);
+		int reads = counting.getReads();
+		Assert.assertEquals(6, reads);
+
+		ModelGraphAnalysis analysis = new ModelGraphAnalysis(model);
+		Set<ModelLink> feedback = analysis.findFeedbackEdges();
+		analysis.findComponentFeedbackEdges();
+		Assert.assertEquals(feedback, model.findFeedbackEdges());
+		Assert.assertEquals(new ModelGraphAnalysis(source).findFeedbackEdges(), feedback);
+		Assert.assertEquals(reads, counting.getReads());
+
+		Assert.assertEquals(source.getNodeCount(), model.getNodeCount());
+		Assert.assertEquals(source.getLinkCount(), model.getLinkCount());
+		Assert.assertEquals(source.getRegions().size(), model.getRegions().size());
+	}
+
+	@Test
+	public void indexesNodesAndLinksTest() {
+		InMemoryModelSource source = new InMemoryModelSource();
+		source.addNode(new ModelNode("a", "A", ModelNode.Type.GENE));
+		source.addNode(new ModelNode("b", "B", ModelNode.Type.GENE));
+		source.addLink(new ModelLink("l1", "a", "b", ModelLink.Sign.POSITIVE));
+		source.addLink(new ModelLink("l2", "b", "x", ModelLink.Sign.NEGATIVE));
+		source.addRegion(new ModelRegion("R", 0, 10, null));
+
+		ModelSnapshot model = new ModelSnapshot(source);
+		Assert.assertEquals(1, model.getNodeIndex("b"));
+		Assert.assertEquals(-1, model.getNodeIndex("x"));
+		Assert.assertEquals("B", model.getNode("b").getName());
+		Assert.assertNull(model.getNode("x"));
+		Assert.assertEquals(0, model.getLinkSource(0));
+		Assert.assertEquals(1, model.getLinkTarget(0));
+		Assert.assertEquals(-1, model.getLinkTarget(1));
+		Assert.assertEquals(10, model.getRegion("R").getRegionEnd());
+
+		source.addNode(new ModelNode("c", "C", ModelNode.Type.GENE));
+		Assert.assertEquals(2, model.getNodeCount());
+		Assert.assertEquals(3, new ModelSnapshot(source).getNodeCount());
+	}
+
+	@Test
+	public void unchangedVersionSkipsReadTest() {
+		InMemoryModelSource source = ring("a", "b", "c");
+		CountingVersionedSource counting = new CountingVersionedSource(source);
+		ModelGraphAnalysis analysis = new ModelGraphAnalysis(counting);
+
+		Set<ModelLink> feedback = analysis.findFeedbackEdges();
+		Assert.assertEquals(1, feedback.size());
+		int reads = counting.getReads();
+		Assert.assertEquals(feedback, analysis.findFeedbackEdges());
+		analysis.findFeedbackLoops(10, 10, 1000L);
+		Assert.assertEquals(reads, counting.getReads());
+
+		source.addNode(new ModelNode("d", "d", ModelNode.Type.GENE));
+		source.addLink(new ModelLink("l3", "c", "d", ModelLink.Sign.POSITIVE));
+		source.addLink(new ModelLink("l4", "d", "c", ModelLink.Sign.NEGATIVE));
+		Assert.assertEquals(2, analysis.findFeedbackEdges().size());
+		Assert.assertTrue(counting.getReads() > reads);
+
+		reads = counting.getReads();
+		analysis.invalidate();
+		Assert.assertEquals(2, analysis.findFeedbackEdges().size());
+		Assert.assertTrue(counting.getReads() > reads);
+	}
+
+	@Test
+	public void unchangedContentKeepsResultsTest() {
+		CountingModelSource counting = new CountingModelSource(ring("a", "b", "c"));
+		ModelGraphAnalysis analysis = new ModelGraphAnalysis(counting);
+
+		Set<ModelLink> feedback = analysis.findFeedbackEdges();
+		counting.setSource(ring("a", "b", "c"));
+		Assert.assertEquals(feedback, analysis.findFeedbackEdges());
+
+		counting.setSource(ring("a", "b", "c", "d"));
+		Set<ModelLink> changed = analysis.findFeedbackEdges();
+		Assert.assertEquals(1, changed.size());
+		Assert.assertEquals("d", changed.iterator().next().getSrc());
+	}
+
+	@Test
+	public void collidingRenameInvalidatesTest() {
+		Assert.assertEquals("Aa".hashCode(), "BB".hashCode());
+		CountingModelSource counting = new CountingModelSource(ring("Aa", "x"));
+		ModelGraphAnalysis analysis = new ModelGraphAnalysis(counting);
+		analysis.findFeedbackEdges();
+		List<List<ModelLink>> paths = analysis.findRegulatoryPaths("x", "Aa", 1, RegulatoryPathFinder.PathSign.ANY);
+		Assert.assertEquals(1, paths.size());
+
+		counting.setSource(ring("BB", "x"));
+		Assert.assertTrue(analysis.findRegulatoryPaths("x", "Aa", 1, RegulatoryPathFinder.PathSign.ANY).isEmpty());
+		paths = analysis.findRegulatoryPaths("x", "BB", 1, RegulatoryPathFinder.PathSign.ANY);
+		Assert.assertEquals(1, paths.size());
+		Assert.assertEquals("BB", paths.get(0).get(0).getTrg());
+		for (ModelLink link : analysis.findFeedbackEdges()) {
+			Assert.assertFalse("Aa".equals(link.getSrc()) || "Aa".equals(link.getTrg()));
+		}
+	}
+}
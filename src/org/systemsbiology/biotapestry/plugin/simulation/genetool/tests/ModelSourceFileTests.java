@@ -0,0 +1,65 @@
+package org.systemsbiology.biotapestry.plugin.simulation.genetool.tests;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.systemsbiology.biotapestry.plugin.simulation.genetool.synthetic.InMemoryModelSource;
+import org.systemsbiology.biotapestry.plugin.simulation.genetool.synthetic.ModelSourceFile;
+import org.systemsbiology.biotapestry.plugin.simulation.genetool.synthetic.SyntheticModelGenerator;
+import org.systemsbiology.biotapestry.simulation.ModelExpressionEntry;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+public class ModelSourceFileTests {
+
+	private String[] sortedLines(String text) {
+		String[] lines = text.split("\n");
+		Arrays.sort(lines);
+		return lines;
+	}
+
+	@Test
+	public void roundTripTest() throws IOException {
+		SyntheticModelGenerator generator = new SyntheticModelGenerator(5);
+		generator.setNodeCount(100);
+		InMemoryModelSource source = generator.generate();
+
+		StringWriter first = new StringWriter();
+		ModelSourceFile.write(source, first);
+		InMemoryModelSource copy = ModelSourceFile.read(new StringReader(first.toString()));
+		StringWriter second = new StringWriter();
+		ModelSourceFile.write(copy, second);
+
+		Assert.assertEquals(source.getNodeCount(), copy.getNodeCount());
+		Assert.assertEquals(source.getLinkCount(), copy.getLinkCount());
+		Assert.assertTrue(Arrays.equals(sortedLines(first.toString()), sortedLines(second.toString())));
+	}
+
+	@Test
+	public void readsHandWrittenSnapshotTest() throws IOException {
+		String text =
+			"# two genes\n" +
+			"node\tA\tGENE\ta\n" +
+			"node\tB\tGENE\tb\n" +
+			"link\tL1\tA\tB\tNEGATIVE\n" +
+			"region\tR\t0\t3\tR\n" +
+			"time\t0\n" +
+			"time\t1\n" +
+			"window\t0\t1\tR\n" +
+			"expr\ta\tR\t1\tEXPRESSED\tZYGOTIC_SOURCE\n";
+		InMemoryModelSource source = ModelSourceFile.read(new StringReader(text));
+
+		Assert.assertEquals(2, source.getNodeCount());
+		Assert.assertEquals("B", source.getRootModelLinks().next().getTrg());
+		Assert.assertFalse(source.getRegionTopology().next().getLinks().hasNext());
+		Assert.assertEquals(ModelExpressionEntry.Level.EXPRESSED, source.getExpressionEntry("a", "R", 1).getLevel());
+		Assert.assertEquals(ModelExpressionEntry.Level.NO_DATA, source.getExpressionEntry("a", "R", 0).getLevel());
+	}
+
+	@Test(expected = IOException.class)
+	public void rejectsBadRecordTest() throws IOException {
+		ModelSourceFile.read(new StringReader("node\tA\tNOT_A_TYPE\ta\n"));
+	}
+}
@@ -0,0 +1,107 @@
+package org.systemsbiology.biotapestry.plugin.simulation.genetool.tests;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.CompactGraph;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.FeedbackLoopEnumerator;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.Link;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.NetworkMotifCounter;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.NetworkMotifCounter.MotifCounts;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class NetworkMotifCounterTests {
+
+	@Test
+	public void smallNetworkTest() {
+		List<String> nodes = Arrays.asList("X", "Y", "Z", "A", "B");
+		List<Link> links = new ArrayList<Link>();
+		links.add(new Link("X", "Y"));
+		links.add(new Link("Y", "Z"));
+		links.add(new Link("X", "Z"));
+		links.add(new Link("A", "Y"));
+		links.add(new Link("A", "Z"));
+		links.add(new Link("Z", "B"));
+		links.add(new Link("B", "Z"));
+		links.add(new Link("Z", "Z"));
+		CompactGraph graph = new CompactGraph(nodes, links);
+		byte[] signs = new byte[graph.getEdgeCount()];
+		Arrays.fill(signs, (byte)FeedbackLoopEnumerator.SIGN_POSITIVE);
+		signs[graph.findEdge(graph.getNodeIndex("Y"), graph.getNodeIndex("Z"))] = FeedbackLoopEnumerator.SIGN_NEGATIVE;
+
+		MotifCounts counts = new NetworkMotifCounter(graph, signs).count();
+		Assert.assertEquals(2, counts.getFeedForwardLoops());
+		Assert.assertEquals(2, counts.getIncoherentFeedForwardLoops());
+		Assert.assertEquals(1, counts.getBiFans());
+		Assert.assertEquals(1, counts.getMutualPairs());
+		Assert.assertEquals(2, new NetworkMotifCounter(graph).count().getUndeterminedFeedForwardLoops());
+	}
+
+	@Test
+	public void matchesBruteForceTest() {
+		Random random = new Random(21);
+		int nodeCount = 40;
+		List<String> nodes = new ArrayList<String>();
+		List<Link> links = new ArrayList<Link>();
+		for (int i = 0; i < nodeCount; i++) {
+			nodes.add("N" + i);
+		}
+		for (int i = 0; i < 300; i++) {
+			links.add(new Link("N" + random.nextInt(nodeCount), "N" + random.nextInt(nodeCount)));
+		}
+		CompactGraph graph = new CompactGraph(nodes, links);
+		byte[] signs = new byte[graph.getEdgeCount()];
+		for (int e = 0; e < signs.length; e++) {
+			signs[e] = (byte)(random.nextInt(3) - 1);
+		}
+
+		long[] expected = new long[5];
+		for (int x = 0; x < nodeCount; x++) {
+			for (int y = 0; y < nodeCount; y++) {
+				int xy = graph.findEdge(x, y);
+				if (y == x || xy == -1) {
+					continue;
+				}
+				if (x < y && graph.findEdge(y, x) != -1) {
+					expected[4]++;
+				}
+				for (int z = 0; z < nodeCount; z++) {
+					int yz = graph.findEdge(y, z);
+					int xz = graph.findEdge(x, z);
+					if (z == x || z == y || yz == -1 || xz == -1) {
+						continue;
+					}
+					int indirect = signs[xy] * signs[yz];
+					if (indirect == 0 || signs[xz] == 0) {
+						expected[2]++;
+					}
+					else {
+						expected[(indirect == signs[xz]) ? 0 : 1]++;
+					}
+				}
+			}
+			for (int w = x + 1; w < nodeCount; w++) {
+				long common = 0;
+				for (int y = 0; y < nodeCount; y++) {
+					if (y != x && y != w && graph.findEdge(x, y) != -1 && graph.findEdge(w, y) != -1) {
+						common++;
+					}
+				}
+				expected[3] += common * (common - 1) / 2;
+			}
+		}
+
+		NetworkMotifCounter counter = new NetworkMotifCounter(graph, signs);
+		counter.setParallelism(3);
+		for (MotifCounts counts : new MotifCounts[] {new NetworkMotifCounter(graph, signs).count(), counter.count()}) {
+			Assert.assertEquals(expected[0], counts.getCoherentFeedForwardLoops());
+			Assert.assertEquals(expected[1], counts.getIncoherentFeedForwardLoops());
+			Assert.assertEquals(expected[2], counts.getUndeterminedFeedForwardLoops());
+			Assert.assertEquals(expected[3], counts.getBiFans());
+			Assert.assertEquals(expected[4], counts.getMutualPairs());
+		}
+	}
+}
@@ -0,0 +1,54 @@
+package org.systemsbiology.biotapestry.plugin.simulation.genetool.tests;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.systemsbiology.biotapestry.plugin.simulation.genetool.NodeSymbolTable;
+import org.systemsbiology.biotapestry.simulation.ModelNode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class NodeSymbolTableTests {
+
+	@Test
+	public void lookupsTest() {
+		List<ModelNode> nodes = new ArrayList<ModelNode>();
+		nodes.add(new ModelNode("n0", "Alx1", ModelNode.Type.GENE));
+		nodes.add(new ModelNode("n1", "Wnt8", ModelNode.Type.INTERCELL));
+		nodes.add(new ModelNode("n2", "Tbr", ModelNode.Type.GENE));
+		NodeSymbolTable symbols = new NodeSymbolTable(nodes);
+
+		Assert.assertEquals(3, symbols.size());
+		Assert.assertEquals(1, symbols.getSymbol("n1"));
+		Assert.assertEquals(-1, symbols.getSymbol("n9"));
+		Assert.assertEquals("n2", symbols.getNodeID(2));
+		Assert.assertEquals("Wnt8", symbols.getModelName(1));
+		Assert.assertEquals(1, symbols.getSymbolForName(symbols.getName(1)));
+		Assert.assertEquals(0, symbols.findExpressionGeneSymbol("Alx1"));
+		Assert.assertEquals(1, symbols.findExpressionGeneSymbol("Wnt8"));
+		Assert.assertEquals(-1, symbols.findExpressionGeneSymbol("Delta"));
+		Assert.assertTrue(symbols.getAliasWarnings().isEmpty());
+
+		Assert.assertNull(symbols.getExpressionGene(0));
+		symbols.setExpressionGene(0, "Alx1");
+		Assert.assertEquals("Alx1", symbols.getExpressionGene(0));
+	}
+
+	@Test
+	public void aliasedNamesTest() {
+		List<ModelNode> nodes = new ArrayList<ModelNode>();
+		nodes.add(new ModelNode("n0", "Hox", ModelNode.Type.GENE));
+		nodes.add(new ModelNode("n1", "Hox", ModelNode.Type.BOX));
+		nodes.add(new ModelNode("n2", "Gcm", ModelNode.Type.GENE));
+		nodes.add(new ModelNode("n2", "Gcm2", ModelNode.Type.GENE));
+		NodeSymbolTable symbols = new NodeSymbolTable(nodes);
+
+		Assert.assertEquals(3, symbols.size());
+		Assert.assertEquals(1, symbols.getAliasWarnings().size());
+		Assert.assertTrue(symbols.getAliasWarnings().get(0).contains("n0"));
+		Assert.assertEquals(1, symbols.getSymbolForName(symbols.getName(0)));
+		// The gene matches by name, but its GeNeTool name now belongs to n1
+		Assert.assertEquals(1, symbols.findExpressionGeneSymbol("Hox"));
+		Assert.assertEquals("Gcm2", symbols.getModelName(symbols.getSymbol("n2")));
+	}
+}
@@ -0,0 +1,93 @@
+package org.systemsbiology.biotapestry.plugin.simulation.genetool.tests;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.CompactGraph;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.Link;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.ReachabilityIndex;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+public class ReachabilityIndexTests {
+
+	private BitSet reachableFrom(CompactGraph graph, int start) {
+		BitSet reached = new BitSet();
+		List<Integer> stack = new ArrayList<Integer>();
+		stack.add(Integer.valueOf(start));
+		while (!stack.isEmpty()) {
+			int v = stack.remove(stack.size() - 1).intValue();
+			for (int e = graph.getOutEdgeStart(v); e < graph.getOutEdgeEnd(v); e++) {
+				int w = graph.getEdgeTarget(e);
+				if (!reached.get(w)) {
+					reached.set(w);
+					stack.add(Integer.valueOf(w));
+				}
+			}
+		}
+		return reached;
+	}
+
+	@Test
+	public void smallNetworkTest() {
+		List<String> nodes = new ArrayList<String>();
+		for (String id : new String[] {"R", "A", "B", "C", "D", "E"}) {
+			nodes.add(id);
+		}
+		List<Link> links = new ArrayList<Link>();
+		links.add(new Link("R", "A"));
+		links.add(new Link("A", "B"));
+		links.add(new Link("B", "A"));
+		links.add(new Link("B", "C"));
+		links.add(new Link("D", "C"));
+		ReachabilityIndex index = new ReachabilityIndex(new CompactGraph(nodes, links));
+
+		Assert.assertTrue(index.reaches("R", "C"));
+		Assert.assertTrue(index.reaches("A", "A"));
+		Assert.assertFalse(index.reaches("R", "R"));
+		Assert.assertFalse(index.reaches("C", "R"));
+		Assert.assertFalse(index.reaches("D", "A"));
+		Assert.assertFalse(index.reaches("E", "C"));
+
+		Set<String> upstream = new HashSet<String>();
+		upstream.add("R");
+		upstream.add("A");
+		upstream.add("B");
+		upstream.add("D");
+		Assert.assertEquals(upstream, index.getUpstreamNodeIDs("C"));
+
+		Set<String> downstream = new HashSet<String>();
+		downstream.add("A");
+		downstream.add("B");
+		downstream.add("C");
+		Assert.assertEquals(downstream, index.getDownstreamNodeIDs("A"));
+	}
+
+	@Test
+	public void matchesSearchOnRandomGraphTest() {
+		Random random = new Random(23);
+		List<String> nodes = new ArrayList<String>();
+		List<Link> links = new ArrayList<Link>();
+		for (int i = 0; i < 300; i++) {
+			nodes.add("N" + i);
+		}
+		for (int i = 0; i < 450; i++) {
+			links.add(new Link("N" + random.nextInt(300), "N" + random.nextInt(300)));
+		}
+		CompactGraph graph = new CompactGraph(nodes, links);
+		ReachabilityIndex index = new ReachabilityIndex(graph);
+
+		for (int v = 0; v < graph.getNodeCount(); v++) {
+			BitSet expected = reachableFrom(graph, v);
+			Assert.assertEquals(expected, index.getDownstreamNodes(v));
+			for (int w = 0; w < graph.getNodeCount(); w++) {
+				Assert.assertEquals(expected.get(w), index.reaches(v, w));
+				Assert.assertEquals(expected.get(w), index.getUpstreamNodes(w).get(v));
+			}
+		}
+	}
+}
@@ -0,0 +1,196 @@
+package org.systemsbiology.biotapestry.plugin.simulation.genetool.tests;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.CompactGraph;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.FeedbackLoopEnumerator;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.Link;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.RegulatoryPathFinder;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.RegulatoryPathFinder.PathSign;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class RegulatoryPathFinderTests {
+
+	private CompactGraph randomGraph(Random random, int nodeCount, int linkCount) {
+		List<String> nodes = new ArrayList<String>();
+		List<Link> links = new ArrayList<Link>();
+		for (int i = 0; i < nodeCount; i++) {
+			nodes.add("N" + i);
+		}
+		for (int i = 0; i < linkCount; i++) {
+			links.add(new Link("N" + random.nextInt(nodeCount), "N" + random.nextInt(nodeCount)));
+		}
+		return new CompactGraph(nodes, links);
+	}
+
+	@Test
+	public void smallNetworkTest() {
+		List<String> nodes = Arrays.asList("A", "B", "C", "D", "E");
+		List<Link> links = new ArrayList<Link>();
+		links.add(new Link("A", "B"));
+		links.add(new Link("B", "E"));
+		links.add(new Link("A", "C"));
+		links.add(new Link("C", "D"));
+		links.add(new Link("D", "E"));
+		CompactGraph graph = new CompactGraph(nodes, links);
+		byte[] signs = new byte[graph.getEdgeCount()];
+		Arrays.fill(signs, (byte)FeedbackLoopEnumerator.SIGN_POSITIVE);
+		signs[graph.findEdge(graph.getNodeIndex("C"), graph.getNodeIndex("D"))] = FeedbackLoopEnumerator.SIGN_NEGATIVE;
+		RegulatoryPathFinder finder = new RegulatoryPathFinder(graph, signs);
+
+		List<List<Link>> paths = finder.findShortestPaths("A", "E", 5, PathSign.ANY);
+		Assert.assertEquals(2, paths.size());
+		Assert.assertEquals(Arrays.asList(new Link("A", "B"), new Link("B", "E")), paths.get(0));
+		Assert.assertEquals(3, paths.get(1).size());
+
+		paths = finder.findShortestPaths("A", "E", 5, PathSign.NEGATIVE);
+		Assert.assertEquals(1, paths.size());
+		Assert.assertEquals(new Link("C", "D"), paths.get(0).get(1));
+
+		Assert.assertNull(finder.findShortestPath(graph.getNodeIndex("E"), graph.getNodeIndex("A")));
+		Assert.assertEquals(0, finder.findShortestPath(graph.getNodeIndex("A"), graph.getNodeIndex("A")).length);
+		Assert.assertNull(new RegulatoryPathFinder(graph).findShortestPath(0, 4, PathSign.POSITIVE));
+	}
+
+	@Test
+	public void matchesBreadthFirstSearchTest() {
+		Random random = new Random(3);
+		CompactGraph graph = randomGraph(random, 400, 900);
+		RegulatoryPathFinder finder = new RegulatoryPathFinder(graph);
+
+		for (int source = 0; source < graph.getNodeCount(); source += 7) {
+			int[] dist = distances(graph, source);
+			for (int target = 0; target < graph.getNodeCount(); target++) {
+				int[] path = finder.findShortestPath(source, target);
+				if (dist[target] == -1) {
+					Assert.assertNull(path);
+					continue;
+				}
+				Assert.assertEquals(dist[target], path.length);
+				checkPath(graph, source, target, path);
+			}
+		}
+	}
+
+	@Test
+	public void kShortestMatchesEnumerationTest() {
+		Random random = new Random(8);
+		for (int round = 0; round < 40; round++) {
+			CompactGraph graph = randomGraph(random, 9, 24);
+			byte[] signs = new byte[graph.getEdgeCount()];
+			for (int e = 0; e < signs.length; e++) {
+				signs[e] = (byte)(random.nextInt(3) - 1);
+			}
+			RegulatoryPathFinder finder = new RegulatoryPathFinder(graph, signs);
+			for (PathSign sign : PathSign.values()) {
+				int source = random.nextInt(9);
+				int target = random.nextInt(9);
+				List<Integer> expected = new ArrayList<Integer>();
+				allPaths(graph, signs, sign, source, target, new ArrayList<Integer>(), new boolean[9], expected);
+				Collections.sort(expected);
+
+				List<int[]> paths = finder.findShortestPaths(source, target, 6, sign);
+				List<Integer> lengths = new ArrayList<Integer>();
+				for (int[] path : paths) {
+					checkPath(graph, source, target, path);
+					lengths.add(Integer.valueOf(path.length));
+				}
+				Assert.assertEquals(expected.subList(0, Math.min(6, expected.size())), lengths);
+			}
+		}
+	}
+
+	@Test
+	public void signedShortestMatchesEnumerationTest() {
+		Random random = new Random(15);
+		for (int round = 0; round < 300; round++) {
+			CompactGraph graph = randomGraph(random, 7, 14);
+			byte[] signs = new byte[graph.getEdgeCount()];
+			for (int e = 0; e < signs.length; e++) {
+				signs[e] = (byte)(random.nextBoolean() ? FeedbackLoopEnumerator.SIGN_POSITIVE : FeedbackLoopEnumerator.SIGN_NEGATIVE);
+			}
+			RegulatoryPathFinder finder = new RegulatoryPathFinder(graph, signs);
+			for (int source = 0; source < 7; source++) {
+				for (int target = 0; target < 7; target++) {
+					for (PathSign sign : new PathSign[] {PathSign.POSITIVE, PathSign.NEGATIVE}) {
+						List<Integer> expected = new ArrayList<Integer>();
+						allPaths(graph, signs, sign, source, target, new ArrayList<Integer>(), new boolean[7], expected);
+						int[] path = finder.findShortestPath(source, target, sign);
+						if (expected.isEmpty()) {
+							Assert.assertNull(path);
+							continue;
+						}
+						checkPath(graph, source, target, path);
+						Assert.assertEquals(Collections.min(expected).intValue(), path.length);
+					}
+				}
+			}
+		}
+	}
+
+	private void checkPath(CompactGraph graph, int source, int target, int[] path) {
+		int node = source;
+		boolean[] seen = new boolean[graph.getNodeCount()];
+		seen[node] = true;
+		for (int edge : path) {
+			Assert.assertEquals(node, graph.getEdgeSource(edge));
+			node = graph.getEdgeTarget(edge);
+			Assert.assertFalse(seen[node]);
+			seen[node] = true;
+		}
+		Assert.assertEquals(target, node);
+	}
+
+	private int[] distances(CompactGraph graph, int source) {
+		int[] dist = new int[graph.getNodeCount()];
+		Arrays.fill(dist, -1);
+		List<Integer> queue = new ArrayList<Integer>();
+		dist[source] = 0;
+		queue.add(Integer.valueOf(source));
+		for (int i = 0; i < queue.size(); i++) {
+			int v = queue.get(i).intValue();
+			for (int e = graph.getOutEdgeStart(v); e < graph.getOutEdgeEnd(v); e++) {
+				int w = graph.getEdgeTarget(e);
+				if (dist[w] == -1) {
+					dist[w] = dist[v] + 1;
+					queue.add(Integer.valueOf(w));
+				}
+			}
+		}
+		return dist;
+	}
+
+	private void allPaths(CompactGraph graph, byte[] signs, PathSign sign, int node, int target,
+			List<Integer> path, boolean[] onPath, List<Integer> lengths) {
+		if (node == target) {
+			int negatives = 0;
+			for (Integer edge : path) {
+				if (signs[edge.intValue()] == FeedbackLoopEnumerator.SIGN_NONE && sign != PathSign.ANY) {
+					return;
+				}
+				if (signs[edge.intValue()] == FeedbackLoopEnumerator.SIGN_NEGATIVE) {
+					negatives++;
+				}
+			}
+			if (sign == PathSign.ANY || (sign == PathSign.NEGATIVE) == (negatives % 2 == 1)) {
+				lengths.add(Integer.valueOf(path.size()));
+			}
+			return;
+		}
+		onPath[node] = true;
+		for (int e = graph.getOutEdgeStart(node); e < graph.getOutEdgeEnd(node); e++) {
+			int w = graph.getEdgeTarget(e);
+			if (!onPath[w]) {
+				path.add(Integer.valueOf(e));
+				allPaths(graph, signs, sign, w, target, path, onPath, lengths);
+				path.remove(path.size() - 1);
+			}
+		}
+		onPath[node] = false;
+	}
+}
@@ -0,0 +1,113 @@
+package org.systemsbiology.biotapestry.plugin.simulation.genetool.tests;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.CompactGraph;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.Link;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.SpatioTemporalInfluenceGraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+public class SpatioTemporalInfluenceGraphTests {
+
+	/*
+	 * A -> R -> B within a domain; R acts through cell contact, and the two
+	 * domains touch from time 2 to 3 only.
+	 */
+	@Test
+	public void cellContactTest() {
+		List<Link> links = new ArrayList<Link>();
+		links.add(new Link("A", "R"));
+		links.add(new Link("R", "B"));
+		CompactGraph graph = new CompactGraph(Arrays.asList("A", "R", "B"), links);
+		BitSet contact = new BitSet();
+		contact.set(graph.getNodeIndex("R"));
+		SpatioTemporalInfluenceGraph influence =
+			new SpatioTemporalInfluenceGraph(graph, contact, Arrays.asList("D1", "D2"), 0, 10, 1);
+		influence.addContact("D1", "D2", 2, 3);
+		influence.addContact("D1", "Missing", 0, 10);
+
+		Assert.assertTrue(influence.canInfluence("A", "D1", 1, "R", "D1", 2));
+		Assert.assertTrue(influence.canInfluence("A", "D1", 1, "B", "D2", 3));
+		Assert.assertFalse(influence.canInfluence("A", "D1", 1, "B", "D1", 3));
+		Assert.assertFalse(influence.canInfluence("A", "D1", 3, "B", "D2", 5));
+		Assert.assertFalse(influence.canInfluence("A", "D1", 1, "B", "D2", 4));
+
+		int a = graph.getNodeIndex("A");
+		int b = graph.getNodeIndex("B");
+		Assert.assertEquals(3, influence.findEarliestInfluence(a, 0, 1, b, 1, 10));
+		Assert.assertEquals(-1, influence.findEarliestInfluence(a, 0, 3, b, 1, 10));
+		Assert.assertEquals(-1, influence.findEarliestInfluence(a, 0, 1, b, 1, 2));
+		Assert.assertEquals(2 * 3 * 11, influence.getStateCount());
+	}
+
+	@Test
+	public void matchesMaterializedProductTest() {
+		Random random = new Random(17);
+		int nodeCount = 12;
+		int domainCount = 4;
+		int times = 8;
+		List<String> nodes = new ArrayList<String>();
+		List<Link> links = new ArrayList<Link>();
+		for (int i = 0; i < nodeCount; i++) {
+			nodes.add("N" + i);
+		}
+		for (int i = 0; i < 20; i++) {
+			links.add(new Link("N" + random.nextInt(nodeCount), "N" + random.nextInt(nodeCount)));
+		}
+		CompactGraph graph = new CompactGraph(nodes, links);
+		BitSet contact = new BitSet();
+		for (int i = 0; i < nodeCount; i += 3) {
+			contact.set(i);
+		}
+		SpatioTemporalInfluenceGraph influence =
+			new SpatioTemporalInfluenceGraph(graph, contact, Arrays.asList("D0", "D1", "D2", "D3"), 0, times - 1, 1);
+		boolean[][][] touching = new boolean[times][domainCount][domainCount];
+		for (int i = 0; i < 5; i++) {
+			int first = random.nextInt(domainCount);
+			int second = random.nextInt(domainCount);
+			int from = random.nextInt(times);
+			int to = from + random.nextInt(times - from);
+			influence.addContact("D" + first, "D" + second, from, to);
+			for (int t = from; t <= to; t++) {
+				touching[t][first][second] = true;
+				touching[t][second][first] = true;
+			}
+		}
+
+		// Forward closure of every state in the materialized product
+		int layer = nodeCount * domainCount;
+		for (int start = 0; start < layer; start++) {
+			boolean[] reached = new boolean[layer * times];
+			reached[start] = true;
+			for (int t = 0; t + 1 < times; t++) {
+				for (int s = 0; s < layer; s++) {
+					if (!reached[t * layer + s]) {
+						continue;
+					}
+					int node = s % nodeCount;
+					int domain = s / nodeCount;
+					for (int e = graph.getOutEdgeStart(node); e < graph.getOutEdgeEnd(node); e++) {
+						int target = graph.getEdgeTarget(e);
+						for (int d = 0; d < domainCount; d++) {
+							boolean next = contact.get(node) ? touching[t][domain][d] : (d == domain);
+							if (next) {
+								reached[(t + 1) * layer + d * nodeCount + target] = true;
+							}
+						}
+					}
+				}
+			}
+			for (int t = 0; t < times; t++) {
+				BitSet states = influence.getInfluencedStates(start % nodeCount, start / nodeCount, 0, t);
+				for (int s = 0; s < layer; s++) {
+					Assert.assertEquals(reached[t * layer + s], states.get(s));
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,192 @@
+package org.systemsbiology.biotapestry.plugin.simulation.genetool.tests;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.systemsbiology.biotapestry.plugin.simulation.genetool.StagePipeline;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class StagePipelineTests {
+
+	private static class SumTask extends RecursiveTask<Long> {
+		private static final long serialVersionUID = 1L;
+
+		private int from_;
+		private int to_;
+
+		SumTask(int from, int to) {
+			from_ = from;
+			to_ = to;
+		}
+
+		protected Long compute() {
+			if (to_ - from_ <= 64) {
+				long sum = 0L;
+				for (int i = from_; i < to_; i++) {
+					sum += i;
+				}
+				return Long.valueOf(sum);
+			}
+			int mid = (from_ + to_) >>> 1;
+			SumTask left = new SumTask(from_, mid);
+			left.fork();
+			long right = new SumTask(mid, to_).compute().longValue();
+			return Long.valueOf(left.join().longValue() + right);
+		}
+	}
+
+	private class RecordingStage implements Runnable {
+		private String name_;
+		private List<String> finished_;
+
+		RecordingStage(String name, List<String> finished) {
+			name_ = name;
+			finished_ = finished;
+		}
+
+		public void run() {
+			try {
+				Thread.sleep(1);
+			}
+			catch (InterruptedException iex) {
+				Thread.currentThread().interrupt();
+			}
+			finished_.add(name_);
+		}
+	}
+
+	@Test
+	public void dependenciesRespectedTest() {
+		Random random = new Random(9);
+		for (int parallelism = 1; parallelism <= 4; parallelism += 3) {
+			List<String> finished = Collections.synchronizedList(new ArrayList<String>());
+			List<int[]> edges = new ArrayList<int[]>();
+			StagePipeline pipeline = new StagePipeline();
+			for (int i = 0; i < 40; i++) {
+				List<String> dependencies = new ArrayList<String>();
+				for (int j = 0; j < i; j++) {
+					if (random.nextInt(8) == 0) {
+						dependencies.add("S" + j);
+						edges.add(new int[] {j, i});
+					}
+				}
+				pipeline.addStage("S" + i, new RecordingStage("S" + i, finished), dependencies.toArray(new String[0]));
+			}
+			pipeline.run(parallelism);
+
+			Assert.assertEquals(40, finished.size());
+			for (int[] edge : edges) {
+				Assert.assertTrue(finished.indexOf("S" + edge[0]) < finished.indexOf("S" + edge[1]));
+			}
+			Assert.assertTrue(pipeline.getStageTime("S0") >= 0);
+		}
+	}
+
+	@Test
+	public void failureStopsLaterStagesTest() {
+		final AtomicInteger ran = new AtomicInteger();
+		Runnable count = new Runnable() {
+			public void run() {
+				ran.incrementAndGet();
+			}
+		};
+		StagePipeline pipeline = new StagePipeline();
+		pipeline.addStage("first", count);
+		pipeline.addStage("broken", new Runnable() {
+			public void run() {
+				throw new IllegalStateException("broken stage");
+			}
+		}, "first");
+		pipeline.addStage("after", count, "broken");
+
+		try {
+			pipeline.run(3);
+			Assert.fail();
+		}
+		catch (IllegalStateException isex) {
+			Assert.assertEquals("broken stage", isex.getMessage());
+		}
+		Assert.assertEquals(1, ran.get());
+		Assert.assertEquals(-1L, pipeline.getStageTime("after"));
+
+		try {
+			pipeline.addStage("orphan", count, "missing");
+			Assert.fail();
+		}
+		catch (IllegalArgumentException iaex) {
+			// Dependencies must be added first
+		}
+	}
+
+	@Test(timeout = 20000)
+	public void sharedPoolTest() {
+		final ForkJoinPool pool = new ForkJoinPool(2);
+		final AtomicInteger ran = new AtomicInteger();
+		StagePipeline pipeline = new StagePipeline();
+		for (int i = 0; i < 8; i++) {
+			pipeline.addStage("S" + i, new Runnable() {
+				public void run() {
+					// Stages may hand work to the pool they run on
+					Assert.assertEquals(Long.valueOf(49995000L), pool.invoke(new SumTask(0, 10000)));
+					ran.incrementAndGet();
+				}
+			});
+		}
+		try {
+			pipeline.run(pool);
+			Assert.assertEquals(8, ran.get());
+			Assert.assertFalse(pool.isShutdown());
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test(timeout = 20000)
+	public void callerStagesStayOnCallerTest() {
+		final Thread caller = Thread.currentThread();
+		final List<String> finished = Collections.synchronizedList(new ArrayList<String>());
+		final AtomicInteger offCaller = new AtomicInteger();
+		StagePipeline pipeline = new StagePipeline();
+		pipeline.addCallerStage("read", new Runnable() {
+			public void run() {
+				Assert.assertSame(caller, Thread.currentThread());
+				finished.add("read");
+			}
+		});
+		for (int i = 0; i < 6; i++) {
+			final String name = "compute" + i;
+			pipeline.addStage(name, new Runnable() {
+				public void run() {
+					if (Thread.currentThread() != caller) {
+						offCaller.incrementAndGet();
+					}
+					finished.add(name);
+				}
+			}, "read");
+			pipeline.addCallerStage("apply" + i, new Runnable() {
+				public void run() {
+					Assert.assertSame(caller, Thread.currentThread());
+					Assert.assertTrue(finished.contains(name));
+					finished.add("apply");
+				}
+			}, name);
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(2);
+		try {
+			pipeline.run(pool);
+		}
+		finally {
+			pool.shutdown();
+		}
+		Assert.assertEquals(13, finished.size());
+		Assert.assertEquals(6, offCaller.get());
+	}
+}
@@ -0,0 +1,179 @@
+package org.systemsbiology.biotapestry.plugin.simulation.genetool.tests;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.CompactGraph;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.EadesFeedbackArcSet;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.GraphFeedbackFinder;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.Link;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.StronglyConnectedComponents;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.TopologicalLayering;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+public class StronglyConnectedComponentsTests {
+
+	/*
+	 * R -> A -> B -> C -> A is reachable from the root R,
+	 * C -> D -> E, and the loop X <-> Y can't be reached from any root
+	 * node because Y is also fed by itself. Z has a self loop.
+	 */
+	private CompactGraph buildGraph() {
+		List<String> nodes = new ArrayList<String>();
+		for (String id : new String[] {"R", "A", "B", "C", "D", "E", "X", "Y", "Z"}) {
+			nodes.add(id);
+		}
+
+		List<Link> links = new ArrayList<Link>();
+		links.add(new Link("R", "A"));
+		links.add(new Link("A", "B"));
+		links.add(new Link("B", "C"));
+		links.add(new Link("C", "A"));
+		links.add(new Link("C", "D"));
+		links.add(new Link("D", "E"));
+		links.add(new Link("X", "Y"));
+		links.add(new Link("Y", "X"));
+		links.add(new Link("Y", "E"));
+		links.add(new Link("Z", "Z"));
+		return new CompactGraph(nodes, links);
+	}
+
+	private int node(CompactGraph graph, String id) {
+		return graph.getNodeIndex(id);
+	}
+
+	@Test
+	public void componentsTest() {
+		CompactGraph graph = buildGraph();
+		StronglyConnectedComponents scc = new StronglyConnectedComponents(graph);
+
+		Assert.assertEquals(6, scc.getComponentCount());
+		Assert.assertEquals(3, scc.getCyclicComponentCount());
+
+		int abc = scc.getComponent(node(graph, "A"));
+		Assert.assertEquals(abc, scc.getComponent(node(graph, "B")));
+		Assert.assertEquals(abc, scc.getComponent(node(graph, "C")));
+		Assert.assertArrayEquals(new int[] {node(graph, "A"), node(graph, "B"), node(graph, "C")}, scc.getComponentMembers(abc));
+		Assert.assertTrue(scc.isCyclic(abc));
+		Assert.assertFalse(scc.isCyclic(scc.getComponent(node(graph, "R"))));
+		Assert.assertTrue(scc.isCyclic(scc.getComponent(node(graph, "Z"))));
+
+		Set<Link> intra = new HashSet<Link>();
+		for (int edge : scc.getIntraComponentEdges()) {
+			intra.add(graph.getLink(edge));
+		}
+		Assert.assertEquals(6, intra.size());
+		Assert.assertTrue(intra.contains(new Link("C", "A")));
+		Assert.assertTrue(intra.contains(new Link("Y", "X")));
+		Assert.assertTrue(intra.contains(new Link("Z", "Z")));
+		Assert.assertFalse(intra.contains(new Link("C", "D")));
+	}
+
+	@Test
+	public void condensationIsTopologicallyNumberedTest() {
+		CompactGraph graph = buildGraph();
+		StronglyConnectedComponents scc = new StronglyConnectedComponents(graph);
+
+		for (int e = 0; e < graph.getEdgeCount(); e++) {
+			int src = scc.getComponent(graph.getEdgeSource(e));
+			int trg = scc.getComponent(graph.getEdgeTarget(e));
+			Assert.assertTrue(src <= trg);
+		}
+
+		int abc = scc.getComponent(node(graph, "A"));
+		Assert.assertEquals(1, scc.getSuccessorEnd(abc) - scc.getSuccessorStart(abc));
+		Assert.assertEquals(scc.getComponent(node(graph, "D")), scc.getSuccessor(scc.getSuccessorStart(abc)));
+	}
+
+	@Test
+	public void componentBackEdgesBreakAllCyclesTest() {
+		CompactGraph graph = buildGraph();
+		StronglyConnectedComponents scc = new StronglyConnectedComponents(graph);
+		int[] backEdges = new GraphFeedbackFinder(graph).findComponentBackEdges(scc);
+
+		Set<Link> feedback = new HashSet<Link>();
+		for (int edge : backEdges) {
+			feedback.add(graph.getLink(edge));
+		}
+
+		// A is entered from R, so the loop closes on C -> A
+		Assert.assertTrue(feedback.contains(new Link("C", "A")));
+		Assert.assertTrue(feedback.contains(new Link("Z", "Z")));
+		Assert.assertEquals(3, feedback.size());
+
+		List<Link> remaining = new ArrayList<Link>();
+		for (int e = 0; e < graph.getEdgeCount(); e++) {
+			if (!feedback.contains(graph.getLink(e))) {
+				remaining.add(graph.getLink(e));
+			}
+		}
+		StronglyConnectedComponents acyclic = new StronglyConnectedComponents(new CompactGraph(graph.getNodeIDs(), remaining));
+		Assert.assertEquals(0, acyclic.getCyclicComponentCount());
+	}
+
+	@Test
+	public void eadesFeedbackArcSetBreaksAllCyclesTest() {
+		Random random = new Random(17);
+		List<String> nodes = new ArrayList<String>();
+		List<Link> links = new ArrayList<Link>();
+		for (int i = 0; i < 500; i++) {
+			nodes.add("N" + i);
+		}
+		for (int i = 0; i < 2500; i++) {
+			links.add(new Link("N" + random.nextInt(500), "N" + random.nextInt(500)));
+		}
+		CompactGraph graph = new CompactGraph(nodes, links);
+		StronglyConnectedComponents scc = new StronglyConnectedComponents(graph);
+
+		int[] feedback = new EadesFeedbackArcSet(graph).findFeedbackEdges(scc);
+		int[] backEdges = new GraphFeedbackFinder(graph).findComponentBackEdges(scc);
+		Assert.assertTrue(feedback.length > 0);
+		Assert.assertTrue(feedback.length <= backEdges.length);
+
+		Set<Integer> removed = new HashSet<Integer>();
+		for (int edge : feedback) {
+			Assert.assertTrue(scc.isIntraComponentEdge(edge));
+			removed.add(Integer.valueOf(edge));
+		}
+		List<Link> remaining = new ArrayList<Link>();
+		for (int e = 0; e < graph.getEdgeCount(); e++) {
+			if (!removed.contains(Integer.valueOf(e))) {
+				remaining.add(graph.getLink(e));
+			}
+		}
+		StronglyConnectedComponents acyclic = new StronglyConnectedComponents(new CompactGraph(graph.getNodeIDs(), remaining));
+		Assert.assertEquals(0, acyclic.getCyclicComponentCount());
+	}
+
+	@Test
+	public void layeringWithoutFeedbackTest() {
+		CompactGraph graph = buildGraph();
+		StronglyConnectedComponents scc = new StronglyConnectedComponents(graph);
+		TopologicalLayering layering = new TopologicalLayering(graph, new GraphFeedbackFinder(graph).findComponentBackEdges(scc));
+
+		// R -> A -> B -> C -> D -> E is the longest path
+		Assert.assertEquals(6, layering.getLevelCount());
+		Assert.assertEquals(0, layering.getLevel(node(graph, "R")));
+		Assert.assertEquals(5, layering.getLevel(node(graph, "E")));
+		Assert.assertArrayEquals(new int[] {node(graph, "R"), node(graph, "X"), node(graph, "Z")}, layering.getLevelNodes(0));
+
+		int[][] levels = layering.getLevels();
+		int total = 0;
+		for (int[] level : levels) {
+			total += level.length;
+		}
+		Assert.assertEquals(graph.getNodeCount(), total);
+
+		try {
+			new TopologicalLayering(graph, new int[0]);
+			Assert.fail();
+		}
+		catch (IllegalStateException ise) {
+			// expected, the cycles are still there
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package org.systemsbiology.biotapestry.plugin.simulation.genetool.tests;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.systemsbiology.biotapestry.plugin.simulation.genetool.synthetic.InMemoryModelSource;
+import org.systemsbiology.biotapestry.plugin.simulation.genetool.synthetic.SyntheticModelGenerator;
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.ModelGraphAnalysis;
+import org.systemsbiology.biotapestry.simulation.ModelExpressionEntry;
+import org.systemsbiology.biotapestry.simulation.ModelLink;
+import org.systemsbiology.biotapestry.simulation.ModelRegion;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+public class SyntheticModelGeneratorTests {
+
+	private List<String> linkKeys(InMemoryModelSource source) {
+		List<String> keys = new ArrayList<String>();
+		Iterator<ModelLink> lit = source.getRootModelLinks();
+		while (lit.hasNext()) {
+			ModelLink link = lit.next();
+			keys.add(link.getSrc() + "->" + link.getTrg() + ":" + link.getSign());
+		}
+		return keys;
+	}
+
+	@Test
+	public void sameSeedSameModelTest() {
+		SyntheticModelGenerator generator = new SyntheticModelGenerator(42);
+		generator.setNodeCount(500);
+		InMemoryModelSource first = generator.generate();
+		InMemoryModelSource second = generator.generate();
+
+		Assert.assertEquals(500, first.getNodeCount());
+		Assert.assertEquals(1000, first.getLinkCount());
+		Assert.assertEquals(linkKeys(first), linkKeys(second));
+		Assert.assertFalse(linkKeys(first).equals(linkKeys(new SyntheticModelGenerator(43).generate())));
+	}
+
+	@Test
+	public void feedbackFractionTest() {
+		SyntheticModelGenerator generator = new SyntheticModelGenerator(7);
+		generator.setNodeCount(2000);
+		generator.setShape(SyntheticModelGenerator.NetworkShape.RANDOM);
+		generator.setFeedbackFraction(0.0);
+		Assert.assertTrue(new ModelGraphAnalysis(generator.generate()).findComponentFeedbackEdges().isEmpty());
+
+		generator.setFeedbackFraction(0.1);
+		InMemoryModelSource source = generator.generate();
+		int feedback = new ModelGraphAnalysis(source).findComponentFeedbackEdges().size();
+		Assert.assertTrue(feedback > 0);
+		Assert.assertTrue(feedback <= 0.15 * source.getLinkCount());
+	}
+
+	@Test
+	public void regionsAndExpressionTest() {
+		SyntheticModelGenerator generator = new SyntheticModelGenerator(3);
+		generator.setNodeCount(50);
+		generator.setIntercellFraction(0.0);
+		generator.setRegionTree(3, 2);
+		generator.setTimeCount(9);
+		InMemoryModelSource source = generator.generate();
+
+		List<ModelRegion> regions = source.getRegions();
+		Assert.assertEquals(1 + 3 + 9, regions.size());
+		ModelRegion leaf = regions.get(regions.size() - 1);
+		Assert.assertEquals(3, leaf.getLineage().size());
+		Assert.assertEquals(6, leaf.getRegionStart());
+		Assert.assertEquals(50, source.getExpressionGenes().size());
+		Assert.assertEquals(9, source.getExpressionTimes().size());
+		Assert.assertTrue(source.getRegionTopology().hasNext());
+
+		ModelExpressionEntry before = source.getExpressionEntry("g0", leaf.getRegionName(), 5);
+		ModelExpressionEntry after = source.getExpressionEntry("g0", leaf.getRegionName(), 6);
+		Assert.assertEquals(ModelExpressionEntry.Level.NO_DATA, before.getLevel());
+		Assert.assertTrue(after.getLevel() != ModelExpressionEntry.Level.NO_DATA);
+		Assert.assertEquals(6, after.getTime());
+	}
+}
@@ -0,0 +1,222 @@
+/*
+**    Copyright (C) 2003-2016 Institute for Systems Biology
+**                            Seattle, Washington, USA.
+**
+**    This library is free software; you can redistribute it and/or
+**    modify it under the terms of the GNU Lesser General Public
+**    License as published by the Free Software Foundation; either
+**    version 2.1 of the License, or (at your option) any later version.
+**
+**    This library is distributed in the hope that it will be useful,
+**    but WITHOUT ANY WARRANTY; without even the implied warranty of
+**    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+**    Lesser General Public License for more details.
+**
+**    You should have received a copy of the GNU Lesser General Public
+**    License along with this library; if not, write to the Free Software
+**    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package org.systemsbiology.biotapestry.plugin.simulation.toolkit;
+
+import java.util.Arrays;
+
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.ModelDepthFirstSearcher.EdgeType;
+
+/***************************************************************************
+ *
+ * Depth first search state over the node and edge indices of a
+ * CompactGraph. Holds the same information as ModelDepthFirstSearcher.DFSState
+ * in flat arrays, so a search allocates nothing per vertex or edge.
+ *
+ * Entry and exit times follow the parenthesis property: u is an ancestor of
+ * v in the search forest exactly when u's interval [entry, exit] contains
+ * v's, which makes isAncestor() O(1).
+ *
+ */
+public class CompactDFSState {
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PRIVATE VARIABLES
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    private static final byte UNCLASSIFIED = -1;
+    private static final EdgeType[] EDGE_TYPES = EdgeType.values();
+
+    private CompactGraph graph_;
+    private int time_;
+
+    // Times start at 1; 0 means not yet entered / exited
+    private int[] entryTimes_;
+    private int[] exitTimes_;
+    private int[] parents_;
+    private int[] depths_;
+    private byte[] edgeClasses_;
+
+    private int[] visitOrder_;
+    private int visitCount_;
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PUBLIC CONSTRUCTORS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    public CompactDFSState(CompactGraph graph) {
+        int nodeCount = graph.getNodeCount();
+        graph_ = graph;
+        time_ = 0;
+        entryTimes_ = new int[nodeCount];
+        exitTimes_ = new int[nodeCount];
+        parents_ = new int[nodeCount];
+        depths_ = new int[nodeCount];
+        edgeClasses_ = new byte[graph.getEdgeCount()];
+        visitOrder_ = new int[nodeCount];
+        visitCount_ = 0;
+        Arrays.fill(parents_, -1);
+        Arrays.fill(edgeClasses_, UNCLASSIFIED);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PUBLIC METHODS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    public CompactGraph getGraph() {
+        return graph_;
+    }
+
+    public boolean isVisited(int vertex) {
+        return entryTimes_[vertex] != 0;
+    }
+
+    public boolean isFinished(int vertex) {
+        return exitTimes_[vertex] != 0;
+    }
+
+    /**
+     * Entry time of a vertex, or 0 if it was not visited.
+     */
+    public int getEntryTime(int vertex) {
+        return entryTimes_[vertex];
+    }
+
+    /**
+     * Exit time of a vertex, or 0 if it has not been finished.
+     */
+    public int getExitTime(int vertex) {
+        return exitTimes_[vertex];
+    }
+
+    /**
+     * Parent of a vertex in the search forest, or -1 for tree roots and
+     * unvisited vertices.
+     */
+    public int getParent(int vertex) {
+        return parents_[vertex];
+    }
+
+    public int getDepth(int vertex) {
+        return depths_[vertex];
+    }
+
+    /**
+     * Class of an edge, or null if the search never reached its source.
+     */
+    public EdgeType getEdgeClass(int edge) {
+        byte edgeClass = edgeClasses_[edge];
+        return (edgeClass == UNCLASSIFIED) ? null : EDGE_TYPES[edgeClass];
+    }
+
+    /***************************************************************************
+     **
+     ** Answers if ancestor is an ancestor of vertex in the search forest. A
+     ** vertex counts as its own ancestor. While the search is still running, a
+     ** vertex that has not been exited yet is treated as exiting last.
+     */
+
+    public boolean isAncestor(int ancestor, int vertex) {
+        if (entryTimes_[ancestor] == 0 || entryTimes_[vertex] == 0) {
+            return false;
+        }
+        if (entryTimes_[ancestor] > entryTimes_[vertex]) {
+            return false;
+        }
+        int ancestorExit = exitTimes_[ancestor];
+        if (ancestorExit == 0) {
+            return true;
+        }
+        int vertexExit = exitTimes_[vertex];
+        return (vertexExit != 0) && (vertexExit <= ancestorExit);
+    }
+
+    public int getVisitCount() {
+        return visitCount_;
+    }
+
+    /**
+     * Vertices in the order they were discovered.
+     */
+    public int[] getVisitOrder() {
+        return Arrays.copyOf(visitOrder_, visitCount_);
+    }
+
+    public int getTime() {
+        return time_;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PACKAGE-VISIBLE METHODS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    void markVertexParent(int vertex, int parent) {
+        parents_[vertex] = parent;
+    }
+
+    void visit(int vertex, int depth) {
+        if (entryTimes_[vertex] == 0) {
+            time_ += 1;
+            entryTimes_[vertex] = time_;
+            depths_[vertex] = depth;
+            visitOrder_[visitCount_++] = vertex;
+        }
+    }
+
+    void exitVertex(int vertex) {
+        time_ += 1;
+        exitTimes_[vertex] = time_;
+    }
+
+    /***************************************************************************
+     **
+     ** Same rules as DFSState.classifyEdge().
+     */
+
+    EdgeType classifyEdge(int edge, int source, int target) {
+        EdgeType type;
+
+        if (source == target) {
+            type = EdgeType.DFS_BACK_EDGE;
+        }
+        else if (parents_[target] == source) {
+            type = EdgeType.DFS_TREE_EDGE;
+        }
+        else if (entryTimes_[target] != 0 && exitTimes_[target] == 0) {
+            type = EdgeType.DFS_BACK_EDGE;
+        }
+        else if (exitTimes_[target] != 0 && entryTimes_[target] > entryTimes_[source]) {
+            type = EdgeType.DFS_FORWARD_EDGE;
+        }
+        else {
+            type = EdgeType.DFS_CROSS_EDGE;
+        }
+
+        edgeClasses_[edge] = (byte)type.ordinal();
+        return type;
+    }
+}
@@ -0,0 +1,363 @@
+/*
+**    Copyright (C) 2003-2016 Institute for Systems Biology
+**                            Seattle, Washington, USA.
+**
+**    This library is free software; you can redistribute it and/or
+**    modify it under the terms of the GNU Lesser General Public
+**    License as published by the Free Software Foundation; either
+**    version 2.1 of the License, or (at your option) any later version.
+**
+**    This library is distributed in the hope that it will be useful,
+**    but WITHOUT ANY WARRANTY; without even the implied warranty of
+**    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+**    Lesser General Public License for more details.
+**
+**    You should have received a copy of the GNU Lesser General Public
+**    License along with this library; if not, write to the Free Software
+**    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package org.systemsbiology.biotapestry.plugin.simulation.toolkit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+/***************************************************************************
+ *
+ * Immutable snapshot of a directed graph for the toolkit algorithms.
+ *
+ * Node identifiers are mapped once to dense ints 0..n-1, in the order the
+ * nodes were given, followed by any link endpoints that were not in the
+ * node collection. Edges are numbered 0..m-1 and stored in compressed
+ * sparse row form: the outbound edges of node v are the edge IDs
+ * getOutEdgeStart(v) .. getOutEdgeEnd(v) - 1, and the inbound edges of v are
+ * listed the same way through getInEdge(). Duplicate links are dropped.
+ *
+ */
+public class CompactGraph {
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PRIVATE VARIABLES
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    private String[] nodeIDs_;
+    private HashMap<String, Integer> nodeIndex_;
+
+    // outOffsets_[v] .. outOffsets_[v + 1] - 1 are the edge IDs leaving v
+    private int[] outOffsets_;
+    private int[] edgeTargets_;
+    private int[] edgeSources_;
+
+    // inOffsets_[v] .. inOffsets_[v + 1] - 1 index into inEdges_, which holds edge IDs
+    private int[] inOffsets_;
+    private int[] inEdges_;
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PUBLIC CONSTRUCTORS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Constructor. The outbound edges of each node are ordered by target
+     * using the comparator of the Link-class.
+     *
+     * @param nodes Node identifiers.
+     * @param links Links between nodes.
+     */
+    public CompactGraph(Collection<String> nodes, Collection<? extends Link> links) {
+        this(nodes, links, true, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param nodes Node identifiers.
+     * @param links Links between nodes.
+     * @param sortNeighbors If true, outbound edges are ordered using the comparator
+     *                      of the Link-class, otherwise in the order the links were given.
+     */
+    public CompactGraph(Collection<String> nodes, Collection<? extends Link> links, boolean sortNeighbors) {
+        this(nodes, links, sortNeighbors, null);
+    }
+
+    /**
+     * Constructor. If edgeForLink is not null, it receives the edge ID assigned to
+     * each input link, in iteration order of links. Duplicate links all receive
+     * the ID of the single stored edge.
+     */
+    CompactGraph(Collection<String> nodes, Collection<? extends Link> links, boolean sortNeighbors, int[] edgeForLink) {
+        nodeIndex_ = new HashMap<String, Integer>();
+        ArrayList<String> nodeOrder = new ArrayList<String>();
+
+        for (String node : nodes) {
+            addNode(node, nodeOrder);
+        }
+
+        int linkCount = links.size();
+        int[] linkSources = new int[linkCount];
+        int[] linkTargets = new int[linkCount];
+        int count = 0;
+        for (Link link : links) {
+            linkSources[count] = addNode(link.getSrc(), nodeOrder);
+            linkTargets[count] = addNode(link.getTrg(), nodeOrder);
+            count++;
+        }
+
+        nodeIDs_ = nodeOrder.toArray(new String[nodeOrder.size()]);
+        int nodeCount = nodeIDs_.length;
+
+        //
+        // Order the links by source, and within a source either by the target
+        // rank or by input position. Both passes are stable counting sorts, so
+        // the whole ordering is linear in the number of links.
+        //
+
+        int[] order = new int[linkCount];
+        for (int i = 0; i < linkCount; i++) {
+            order[i] = i;
+        }
+        if (sortNeighbors) {
+            order = countingSort(order, linkTargets, rankNodeIDs(), nodeCount);
+        }
+        order = countingSort(order, linkSources, null, nodeCount);
+
+        //
+        // Within each source row, drop repeated targets. lastSourceForTarget
+        // remembers which row last stored an edge to a target, and
+        // edgeForTarget the ID of that edge.
+        //
+
+        outOffsets_ = new int[nodeCount + 1];
+        int[] sources = new int[linkCount];
+        int[] targets = new int[linkCount];
+        int[] lastSourceForTarget = new int[nodeCount];
+        int[] edgeForTarget = new int[nodeCount];
+        Arrays.fill(lastSourceForTarget, -1);
+
+        int[] edgeOfInput = new int[linkCount];
+        int edgeCount = 0;
+        for (int i = 0; i < linkCount; i++) {
+            int link = order[i];
+            int src = linkSources[link];
+            int trg = linkTargets[link];
+            if (lastSourceForTarget[trg] != src) {
+                lastSourceForTarget[trg] = src;
+                edgeForTarget[trg] = edgeCount;
+                sources[edgeCount] = src;
+                targets[edgeCount] = trg;
+                outOffsets_[src + 1]++;
+                edgeCount++;
+            }
+            edgeOfInput[link] = edgeForTarget[trg];
+        }
+
+        for (int v = 0; v < nodeCount; v++) {
+            outOffsets_[v + 1] += outOffsets_[v];
+        }
+
+        edgeSources_ = (edgeCount == linkCount) ? sources : Arrays.copyOf(sources, edgeCount);
+        edgeTargets_ = (edgeCount == linkCount) ? targets : Arrays.copyOf(targets, edgeCount);
+
+        buildInboundEdges();
+
+        if (edgeForLink != null) {
+            System.arraycopy(edgeOfInput, 0, edgeForLink, 0, linkCount);
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PUBLIC METHODS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    public int getNodeCount() {
+        return nodeIDs_.length;
+    }
+
+    public int getEdgeCount() {
+        return edgeTargets_.length;
+    }
+
+    public String getNodeID(int node) {
+        return nodeIDs_[node];
+    }
+
+    /***************************************************************************
+     **
+     ** Returns the dense index of a node, or -1 if the node is not in the graph.
+     */
+
+    public int getNodeIndex(String nodeID) {
+        Integer index = nodeIndex_.get(nodeID);
+        return (index == null) ? -1 : index.intValue();
+    }
+
+    public List<String> getNodeIDs() {
+        List<String> result = new ArrayList<String>(nodeIDs_.length);
+        Collections.addAll(result, nodeIDs_);
+        return result;
+    }
+
+    public int getOutEdgeStart(int node) {
+        return outOffsets_[node];
+    }
+
+    public int getOutEdgeEnd(int node) {
+        return outOffsets_[node + 1];
+    }
+
+    public int getOutDegree(int node) {
+        return outOffsets_[node + 1] - outOffsets_[node];
+    }
+
+    public int getInEdgeStart(int node) {
+        return inOffsets_[node];
+    }
+
+    public int getInEdgeEnd(int node) {
+        return inOffsets_[node + 1];
+    }
+
+    public int getInDegree(int node) {
+        return inOffsets_[node + 1] - inOffsets_[node];
+    }
+
+    /***************************************************************************
+     **
+     ** Returns the edge ID at the given position of the inbound edge listing.
+     */
+
+    public int getInEdge(int position) {
+        return inEdges_[position];
+    }
+
+    public int getEdgeSource(int edge) {
+        return edgeSources_[edge];
+    }
+
+    public int getEdgeTarget(int edge) {
+        return edgeTargets_[edge];
+    }
+
+    /***************************************************************************
+     **
+     ** Returns the ID of the edge from src to trg, or -1 if there is none.
+     */
+
+    public int findEdge(int src, int trg) {
+        for (int e = outOffsets_[src]; e < outOffsets_[src + 1]; e++) {
+            if (edgeTargets_[e] == trg) {
+                return e;
+            }
+        }
+        return -1;
+    }
+
+    public Link getLink(int edge) {
+        return new Link(nodeIDs_[edgeSources_[edge]], nodeIDs_[edgeTargets_[edge]]);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PRIVATE INSTANCE METHODS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    private int addNode(String nodeID, List<String> nodeOrder) {
+        Integer index = nodeIndex_.get(nodeID);
+        if (index == null) {
+            index = Integer.valueOf(nodeOrder.size());
+            nodeIndex_.put(nodeID, index);
+            nodeOrder.add(nodeID);
+        }
+        return index.intValue();
+    }
+
+    /***************************************************************************
+     **
+     ** Returns the position of each node in the order the comparator of the
+     ** Link-class uses for targets. Identifiers that only differ by case are
+     ** ordered case-sensitively, so the result does not depend on input order.
+     */
+
+    private int[] rankNodeIDs() {
+        int nodeCount = nodeIDs_.length;
+        Integer[] sorted = new Integer[nodeCount];
+        for (int v = 0; v < nodeCount; v++) {
+            sorted[v] = Integer.valueOf(v);
+        }
+
+        Arrays.sort(sorted, new Comparator<Integer>() {
+            public int compare(Integer a, Integer b) {
+                String idA = nodeIDs_[a.intValue()];
+                String idB = nodeIDs_[b.intValue()];
+                int result = idA.compareToIgnoreCase(idB);
+                return (result != 0) ? result : idA.compareTo(idB);
+            }
+        });
+
+        int[] rank = new int[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            rank[sorted[i].intValue()] = i;
+        }
+        return rank;
+    }
+
+    /***************************************************************************
+     **
+     ** Stable counting sort of the link positions in order by the key
+     ** keys[link], optionally mapped through rank.
+     */
+
+    private static int[] countingSort(int[] order, int[] keys, int[] rank, int keyCount) {
+        int[] offsets = new int[keyCount + 1];
+        for (int link : order) {
+            int key = (rank == null) ? keys[link] : rank[keys[link]];
+            offsets[key + 1]++;
+        }
+        for (int k = 0; k < keyCount; k++) {
+            offsets[k + 1] += offsets[k];
+        }
+
+        int[] result = new int[order.length];
+        for (int link : order) {
+            int key = (rank == null) ? keys[link] : rank[keys[link]];
+            result[offsets[key]++] = link;
+        }
+        return result;
+    }
+
+    /***************************************************************************
+     **
+     ** Builds the inbound listing with a counting pass over the edge targets.
+     ** Inbound edges of a node are ordered by edge ID.
+     */
+
+    private void buildInboundEdges() {
+        int nodeCount = nodeIDs_.length;
+        inOffsets_ = new int[nodeCount + 1];
+        inEdges_ = new int[edgeTargets_.length];
+
+        for (int e = 0; e < edgeTargets_.length; e++) {
+            inOffsets_[edgeTargets_[e] + 1]++;
+        }
+        for (int v = 0; v < nodeCount; v++) {
+            inOffsets_[v + 1] += inOffsets_[v];
+        }
+
+        int[] fill = new int[nodeCount];
+        System.arraycopy(inOffsets_, 0, fill, 0, nodeCount);
+        for (int e = 0; e < edgeTargets_.length; e++) {
+            inEdges_[fill[edgeTargets_[e]]++] = e;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+/*
+**    Copyright (C) 2003-2016 Institute for Systems Biology
+**                            Seattle, Washington, USA.
+**
+**    This library is free software; you can redistribute it and/or
+**    modify it under the terms of the GNU Lesser General Public
+**    License as published by the Free Software Foundation; either
+**    version 2.1 of the License, or (at your option) any later version.
+**
+**    This library is distributed in the hope that it will be useful,
+**    but WITHOUT ANY WARRANTY; without even the implied warranty of
+**    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+**    Lesser General Public License for more details.
+**
+**    You should have received a copy of the GNU Lesser General Public
+**    License along with this library; if not, write to the Free Software
+**    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package org.systemsbiology.biotapestry.plugin.simulation.toolkit;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/***************************************************************************
+ *
+ * Feedback arc set heuristic of Eades, Lin and Smyth (1993).
+ *
+ * Vertices are arranged in a sequence by repeatedly moving sinks to the
+ * right end, sources to the left end, and otherwise the vertex with the
+ * largest (outdegree - indegree) to the left end. Edges that point backwards
+ * in the final sequence form the feedback set. Degrees are kept in bucket
+ * lists, so the whole computation is O(V + E). The result depends only on
+ * the graph, not on a traversal order or on which nodes are roots.
+ *
+ * Only edges inside cyclic strongly connected components are considered,
+ * since no other edge can be on a cycle. Self loops are always feedback.
+ *
+ */
+public class EadesFeedbackArcSet {
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PRIVATE VARIABLES
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    private CompactGraph graph_;
+
+    // Working state of one run
+    private StronglyConnectedComponents components_;
+    private int[] inDegree_;
+    private int[] outDegree_;
+    private int[] next_;
+    private int[] prev_;
+    private int[] listOf_;
+    private int[] heads_;
+    private int bucketOffset_;
+    private int maxBucket_;
+
+    private static final int SINKS = 0;
+    private static final int SOURCES = 1;
+    private static final int FIRST_BUCKET = 2;
+    private static final int NO_LIST = -1;
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PUBLIC CONSTRUCTORS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    public EadesFeedbackArcSet(CompactGraph graph) {
+        graph_ = graph;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PUBLIC METHODS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    public Set<Link> run() {
+        Set<Link> result = new HashSet<Link>();
+        for (int edge : findFeedbackEdges(new StronglyConnectedComponents(graph_))) {
+            result.add(graph_.getLink(edge));
+        }
+        return result;
+    }
+
+    /***************************************************************************
+     **
+     ** Returns the IDs of the feedback edges, in increasing order. The
+     ** components must have been computed for the same graph.
+     */
+
+    public int[] findFeedbackEdges(StronglyConnectedComponents components) {
+        int[] position = arrange(components);
+
+        int count = 0;
+        boolean[] isFeedback = new boolean[graph_.getEdgeCount()];
+        for (int e = 0; e < graph_.getEdgeCount(); e++) {
+            if (components.isIntraComponentEdge(e) &&
+                position[graph_.getEdgeSource(e)] >= position[graph_.getEdgeTarget(e)]) {
+                isFeedback[e] = true;
+                count++;
+            }
+        }
+
+        int[] result = new int[count];
+        count = 0;
+        for (int e = 0; e < isFeedback.length; e++) {
+            if (isFeedback[e]) {
+                result[count++] = e;
+            }
+        }
+        return result;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PRIVATE INSTANCE METHODS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    /***************************************************************************
+     **
+     ** Returns the position of every vertex of a cyclic component in the
+     ** sequence. Other vertices get position -1; they have no edges that
+     ** matter here.
+     */
+
+    private int[] arrange(StronglyConnectedComponents components) {
+        int nodeCount = graph_.getNodeCount();
+        components_ = components;
+        inDegree_ = new int[nodeCount];
+        outDegree_ = new int[nodeCount];
+        next_ = new int[nodeCount];
+        prev_ = new int[nodeCount];
+        listOf_ = new int[nodeCount];
+
+        // (outdegree - indegree) lies in [-(n - 1), n - 1]
+        bucketOffset_ = FIRST_BUCKET + nodeCount - 1;
+        heads_ = new int[FIRST_BUCKET + 2 * nodeCount];
+        Arrays.fill(heads_, -1);
+        Arrays.fill(listOf_, NO_LIST);
+        maxBucket_ = FIRST_BUCKET - 1;
+
+        int remaining = 0;
+        for (int v = 0; v < nodeCount; v++) {
+            if (!components.isCyclic(components.getComponent(v))) {
+                continue;
+            }
+            for (int e = graph_.getOutEdgeStart(v); e < graph_.getOutEdgeEnd(v); e++) {
+                if (counts(e)) {
+                    outDegree_[v]++;
+                    inDegree_[graph_.getEdgeTarget(e)]++;
+                }
+            }
+        }
+        for (int v = 0; v < nodeCount; v++) {
+            if (components.isCyclic(components.getComponent(v))) {
+                insert(v);
+                remaining++;
+            }
+        }
+
+        int[] position = new int[nodeCount];
+        Arrays.fill(position, -1);
+        int left = 0;
+        int right = remaining - 1;
+
+        while (remaining > 0) {
+            int v;
+            if (heads_[SINKS] != -1) {
+                v = heads_[SINKS];
+                position[v] = right--;
+            }
+            else if (heads_[SOURCES] != -1) {
+                v = heads_[SOURCES];
+                position[v] = left++;
+            }
+            else {
+                while (heads_[maxBucket_] == -1) {
+                    maxBucket_--;
+                }
+                v = heads_[maxBucket_];
+                position[v] = left++;
+            }
+
+            remove(v);
+            remaining--;
+            detach(v);
+        }
+
+        components_ = null;
+        inDegree_ = outDegree_ = next_ = prev_ = listOf_ = heads_ = null;
+        return position;
+    }
+
+    /***************************************************************************
+     **
+     ** Edges that take part in the arrangement: inside a cyclic component and
+     ** not a self loop.
+     */
+
+    private boolean counts(int edge) {
+        int src = graph_.getEdgeSource(edge);
+        int trg = graph_.getEdgeTarget(edge);
+        return (src != trg) && (components_.getComponent(src) == components_.getComponent(trg));
+    }
+
+    /***************************************************************************
+     **
+     ** Updates the degrees of the remaining neighbors of a vertex that has just
+     ** been placed, moving each to its new list.
+     */
+
+    private void detach(int v) {
+        for (int e = graph_.getOutEdgeStart(v); e < graph_.getOutEdgeEnd(v); e++) {
+            int w = graph_.getEdgeTarget(e);
+            if (counts(e) && listOf_[w] != NO_LIST) {
+                remove(w);
+                inDegree_[w]--;
+                insert(w);
+            }
+        }
+        for (int i = graph_.getInEdgeStart(v); i < graph_.getInEdgeEnd(v); i++) {
+            int e = graph_.getInEdge(i);
+            int w = graph_.getEdgeSource(e);
+            if (counts(e) && listOf_[w] != NO_LIST) {
+                remove(w);
+                outDegree_[w]--;
+                insert(w);
+            }
+        }
+    }
+
+    private void insert(int v) {
+        int list;
+        if (outDegree_[v] == 0) {
+            list = SINKS;
+        }
+        else if (inDegree_[v] == 0) {
+            list = SOURCES;
+        }
+        else {
+            list = bucketOffset_ + outDegree_[v] - inDegree_[v];
+            if (list > maxBucket_) {
+                maxBucket_ = list;
+            }
+        }
+
+        listOf_[v] = list;
+        prev_[v] = -1;
+        next_[v] = heads_[list];
+        if (heads_[list] != -1) {
+            prev_[heads_[list]] = v;
+        }
+        heads_[list] = v;
+    }
+
+    private void remove(int v) {
+        int list = listOf_[v];
+        if (prev_[v] != -1) {
+            next_[prev_[v]] = next_[v];
+        }
+        else {
+            heads_[list] = next_[v];
+        }
+        if (next_[v] != -1) {
+            prev_[next_[v]] = prev_[v];
+        }
+        listOf_[v] = NO_LIST;
+    }
+}
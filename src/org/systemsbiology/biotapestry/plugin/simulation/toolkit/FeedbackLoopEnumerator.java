@@ -0,0 +1,344 @@
+/*
+**    Copyright (C) 2003-2015 Institute for Systems Biology
+**                            Seattle, Washington, USA.
+**
+**    This library is free software; you can redistribute it and/or
+**    modify it under the terms of the GNU Lesser General Public
+**    License as published by the Free Software Foundation; either
+**    version 2.1 of the License, or (at your option) any later version.
+**
+**    This library is distributed in the hope that it will be useful,
+**    but WITHOUT ANY WARRANTY; without even the implied warranty of
+**    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+**    Lesser General Public License for more details.
+**
+**    You should have received a copy of the GNU Lesser General Public
+**    License along with this library; if not, write to the Free Software
+**    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package org.systemsbiology.biotapestry.plugin.simulation.toolkit;
+
+import java.util.Arrays;
+
+/***************************************************************************
+ *
+ * Enumerates the elementary cycles (feedback loops) of a CompactGraph with
+ * the algorithm of Johnson (1975), handing each loop to a
+ * FeedbackLoopHandler as soon as it is found. Nothing is kept per loop, so
+ * memory stays O(V + E) however many loops the network has.
+ *
+ * Each loop is reported once, starting from its lowest indexed node. Only
+ * nodes in the same strongly connected component as that node are searched.
+ * The enumeration can be limited by loop length, by number of loops and by
+ * time. With a length limit, a search cut off at the limit does not leave
+ * its nodes blocked. This keeps the enumeration complete for loops within
+ * the limit, at some cost in speed.
+ *
+ * If edge signs are given, each loop is classified by the product of its
+ * signs. A loop with an unsigned link is UNDETERMINED.
+ *
+ */
+public class FeedbackLoopEnumerator {
+
+    public enum Polarity {
+        POSITIVE,
+        NEGATIVE,
+        UNDETERMINED,
+    }
+
+    /**
+     * Why an enumeration ended.
+     */
+    public enum Completion {
+        COMPLETE,
+        COUNT_LIMIT,
+        TIME_LIMIT,
+        STOPPED_BY_HANDLER,
+    }
+
+    public static final int SIGN_POSITIVE = 1;
+    public static final int SIGN_NEGATIVE = -1;
+    public static final int SIGN_NONE = 0;
+
+    public static final int NO_LIMIT = -1;
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PRIVATE VARIABLES
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    // How many search steps between clock checks
+    private static final int TIME_CHECK_INTERVAL = 1024;
+
+    private CompactGraph graph_;
+    private StronglyConnectedComponents components_;
+    private byte[] edgeSigns_;
+
+    private int maxLength_ = NO_LIMIT;
+    private long maxCount_ = NO_LIMIT;
+    private long timeBudgetNanos_ = NO_LIMIT;
+
+    private long loopCount_;
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PUBLIC CONSTRUCTORS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    public FeedbackLoopEnumerator(CompactGraph graph) {
+        this(new StronglyConnectedComponents(graph), null);
+    }
+
+    /***************************************************************************
+     **
+     ** Signs are indexed by edge ID and hold SIGN_POSITIVE, SIGN_NEGATIVE or
+     ** SIGN_NONE. Without signs every loop is UNDETERMINED.
+     */
+
+    public FeedbackLoopEnumerator(StronglyConnectedComponents components, byte[] edgeSigns) {
+        graph_ = components.getGraph();
+        components_ = components;
+        edgeSigns_ = edgeSigns;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PUBLIC METHODS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Longest loop, in links, to report. NO_LIMIT by default.
+     */
+    public void setMaxLength(int maxLength) {
+        maxLength_ = maxLength;
+    }
+
+    /**
+     * Most loops to report. NO_LIMIT by default.
+     */
+    public void setMaxCount(long maxCount) {
+        maxCount_ = maxCount;
+    }
+
+    /**
+     * Time after which the enumeration stops, in milliseconds. NO_LIMIT by default.
+     */
+    public void setTimeBudget(long millis) {
+        timeBudgetNanos_ = (millis == NO_LIMIT) ? NO_LIMIT : millis * 1000000L;
+    }
+
+    /**
+     * Number of loops reported by the last enumeration.
+     */
+    public long getLoopCount() {
+        return loopCount_;
+    }
+
+    public Polarity getPolarity(int[] edges, int length) {
+        if (edgeSigns_ == null) {
+            return Polarity.UNDETERMINED;
+        }
+        int negatives = 0;
+        for (int i = 0; i < length; i++) {
+            byte sign = edgeSigns_[edges[i]];
+            if (sign == SIGN_NONE) {
+                return Polarity.UNDETERMINED;
+            }
+            if (sign == SIGN_NEGATIVE) {
+                negatives++;
+            }
+        }
+        return ((negatives % 2) == 0) ? Polarity.POSITIVE : Polarity.NEGATIVE;
+    }
+
+    /***************************************************************************
+     **
+     ** Runs the enumeration, passing every loop to the handler.
+     */
+
+    public Completion enumerate(FeedbackLoopHandler handler) {
+        int nodeCount = graph_.getNodeCount();
+        long deadline = (timeBudgetNanos_ == NO_LIMIT) ? 0L : System.nanoTime() + timeBudgetNanos_;
+        int steps = 0;
+        loopCount_ = 0;
+
+        boolean[] blocked = new boolean[nodeCount];
+        IntList[] blockedBy = new IntList[nodeCount];
+        int[] pathVertices = new int[nodeCount];
+        int[] pathNextEdge = new int[nodeCount];
+        boolean[] pathClosed = new boolean[nodeCount];
+        int[] pathEdges = new int[nodeCount];
+        IntList unblockStack = new IntList();
+        // Nodes the last search blocked or gave a blockedBy entry, possibly repeated
+        IntList touched = new IntList();
+
+        for (int start = 0; start < nodeCount; start++) {
+            int component = components_.getComponent(start);
+            if (!components_.isCyclic(component)) {
+                continue;
+            }
+
+            //
+            // The previous search may have left nodes blocked. Only the nodes it
+            // touched are reset, so the cost follows that search, not the
+            // component size:
+            //
+
+            for (int i = 0; i < touched.size(); i++) {
+                int node = touched.get(i);
+                blocked[node] = false;
+                if (blockedBy[node] != null) {
+                    blockedBy[node].clear();
+                }
+            }
+            touched.clear();
+
+            int top = 0;
+            pathVertices[0] = start;
+            pathNextEdge[0] = graph_.getOutEdgeStart(start);
+            pathClosed[0] = false;
+            blocked[start] = true;
+            touched.add(start);
+
+            while (top >= 0) {
+                if (deadline != 0L && ++steps == TIME_CHECK_INTERVAL) {
+                    steps = 0;
+                    if (System.nanoTime() > deadline) {
+                        return Completion.TIME_LIMIT;
+                    }
+                }
+
+                int v = pathVertices[top];
+                int e = pathNextEdge[top];
+
+                if (e < graph_.getOutEdgeEnd(v)) {
+                    pathNextEdge[top] = e + 1;
+                    int w = graph_.getEdgeTarget(e);
+                    if (w < start || components_.getComponent(w) != component) {
+                        continue;
+                    }
+                    if (w == start) {
+                        pathEdges[top] = e;
+                        pathClosed[top] = true;
+                        int length = top + 1;
+                        loopCount_++;
+                        if (!handler.handleLoop(pathEdges, length, getPolarity(pathEdges, length))) {
+                            return Completion.STOPPED_BY_HANDLER;
+                        }
+                        if (maxCount_ != NO_LIMIT && loopCount_ >= maxCount_) {
+                            return Completion.COUNT_LIMIT;
+                        }
+                    }
+                    else if (!blocked[w]) {
+                        if (maxLength_ != NO_LIMIT && top + 2 > maxLength_) {
+                            // Any loop through w would be too long; w stays unblocked
+                            pathClosed[top] = true;
+                            continue;
+                        }
+                        pathEdges[top] = e;
+                        top++;
+                        pathVertices[top] = w;
+                        pathNextEdge[top] = graph_.getOutEdgeStart(w);
+                        pathClosed[top] = false;
+                        blocked[w] = true;
+                        touched.add(w);
+                    }
+                    continue;
+                }
+
+                //
+                // Done with v:
+                //
+
+                if (pathClosed[top]) {
+                    unblock(v, blocked, blockedBy, unblockStack);
+                }
+                else {
+                    for (int out = graph_.getOutEdgeStart(v); out < graph_.getOutEdgeEnd(v); out++) {
+                        int w = graph_.getEdgeTarget(out);
+                        if (w < start || components_.getComponent(w) != component) {
+                            continue;
+                        }
+                        if (blockedBy[w] == null) {
+                            blockedBy[w] = new IntList();
+                        }
+                        if (!blockedBy[w].contains(v)) {
+                            blockedBy[w].add(v);
+                            touched.add(w);
+                        }
+                    }
+                }
+
+                top--;
+                if (top >= 0 && pathClosed[top + 1]) {
+                    pathClosed[top] = true;
+                }
+            }
+        }
+
+        return Completion.COMPLETE;
+    }
+
+    /***************************************************************************
+     **
+     ** Returns the loops as arrays of edge IDs, up to the count limit. Meant for
+     ** small networks or tight limits; use enumerate() to stream.
+     */
+
+    public int[][] findLoops() {
+        LoopCollector collector = new LoopCollector();
+        enumerate(collector);
+        return Arrays.copyOf(collector.loops_, collector.count_);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PRIVATE INSTANCE METHODS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    private void unblock(int vertex, boolean[] blocked, IntList[] blockedBy, IntList stack) {
+        stack.clear();
+        stack.add(vertex);
+        while (stack.size() > 0) {
+            int u = stack.removeLast();
+            if (!blocked[u]) {
+                continue;
+            }
+            blocked[u] = false;
+            IntList waiting = blockedBy[u];
+            if (waiting == null) {
+                continue;
+            }
+            for (int i = 0; i < waiting.size(); i++) {
+                int w = waiting.get(i);
+                if (blocked[w]) {
+                    stack.add(w);
+                }
+            }
+            waiting.clear();
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PRIVATE INNER CLASSES
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    private static class LoopCollector implements FeedbackLoopHandler {
+        private int[][] loops_ = new int[16][];
+        private int count_ = 0;
+
+        public boolean handleLoop(int[] edges, int length, Polarity polarity) {
+            if (count_ == loops_.length) {
+                loops_ = Arrays.copyOf(loops_, count_ * 2);
+            }
+            loops_[count_++] = Arrays.copyOf(edges, length);
+            return true;
+        }
+    }
+}
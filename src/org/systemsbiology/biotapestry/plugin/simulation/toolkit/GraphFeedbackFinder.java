@@ -21,8 +21,11 @@ package org.systemsbiology.biotapestry.plugin.simulation.toolkit;
 
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 
 /***************************************************************************
@@ -31,30 +34,261 @@ import java.util.Set;
  *
  */
 public class GraphFeedbackFinder {
-    private Set<String> allNodes_;
-    private Set<Link> allEdges_;
+    private CompactGraph graph_;
 
     public GraphFeedbackFinder(Set<String> nodes, Set<Link> links) {
-        allNodes_ = new HashSet<String>(nodes);
-        allEdges_ = new HashSet<Link>(links);
+        graph_ = new CompactGraph(nodes, links);
+    }
+
+    /**
+     * Constructor. Searches run directly on the given snapshot.
+     */
+    public GraphFeedbackFinder(CompactGraph graph) {
+        graph_ = graph;
     }
 
     public Set<Link> run(List<String> startNodeIDList) {
         Set<Link> result = new HashSet<Link>();
 
         for (String startNodeID : startNodeIDList) {
-            List<EdgeClassifiedHandler> echs = new ArrayList<EdgeClassifiedHandler>();
-            EdgeCollector collector = new EdgeCollector(ModelDepthFirstSearcher.EdgeType.DFS_BACK_EDGE);
-            echs.add(collector);
+            result.addAll(searchFromRoot(startNodeID));
+        }
+
+        return result;
+    }
+
+    /***************************************************************************
+     **
+     ** Same result as run(), with the searches from the start nodes spread over
+     ** a ForkJoinPool of the given parallelism. Each search has its own searcher
+     ** and state; only the graph, which is never modified, is shared. The back
+     ** edges are merged in start node order, then in the order each search
+     ** found them, so the iteration order does not depend on thread timing.
+     ** A parallelism of 1 or less runs on the calling thread.
+     */
+
+    public Set<Link> runParallel(List<String> startNodeIDList, int parallelism) {
+        if (parallelism <= 1 || startNodeIDList.size() <= 1) {
+            return runParallel(startNodeIDList, (ForkJoinPool)null);
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return runParallel(startNodeIDList, pool);
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    /***************************************************************************
+     **
+     ** Same as above, on a pool shared with other work. It may be called from
+     ** one of the pool's own threads, which then helps with the searches. A
+     ** null pool runs on the calling thread.
+     */
+
+    public Set<Link> runParallel(List<String> startNodeIDList, ForkJoinPool pool) {
+        int rootCount = startNodeIDList.size();
+        List<List<Link>> found = new ArrayList<List<Link>>(rootCount);
+        for (int i = 0; i < rootCount; i++) {
+            found.add(null);
+        }
+
+        if (pool == null || rootCount <= 1) {
+            for (int i = 0; i < rootCount; i++) {
+                found.set(i, searchFromRoot(startNodeIDList.get(i)));
+            }
+        }
+        else {
+            pool.invoke(new RootSearchTask(startNodeIDList, found, 0, rootCount));
+        }
+
+        Set<Link> result = new LinkedHashSet<Link>();
+        for (List<Link> backEdges : found) {
+            result.addAll(backEdges);
+        }
+        return result;
+    }
+
+    /***************************************************************************
+     **
+     ** Single pass alternative to run(): one depth first forest over all start
+     ** nodes, with each start node that was not already reached beginning a new
+     ** tree. The total cost is O(V + E) regardless of the number of start nodes.
+     **
+     ** Every cycle reachable from a start node contains at least one of the
+     ** returned back edges. The set equals the one from run() when the start
+     ** nodes reach disjoint parts of the graph. Where their downstream graphs
+     ** overlap the sets can differ, since run() searches a shared cycle again
+     ** from every start node and may enter it at a different vertex each time.
+     */
+
+    public Set<Link> runSinglePass(List<String> startNodeIDList) {
+        IndexedEdgeCollector collector = new IndexedEdgeCollector(ModelDepthFirstSearcher.EdgeType.DFS_BACK_EDGE);
+
+        ModelDepthFirstSearcher searcher = new ModelDepthFirstSearcher(graph_);
+        searcher.addIndexedEdgeHandler(collector);
+        searcher.setTraversalMode(ModelDepthFirstSearcher.TraversalMode.EXPLICIT_STACK);
+        searcher.runCompact(startNodeIDList);
+
+        return new HashSet<Link>(collector.toLinks(graph_));
+    }
 
-            ModelDepthFirstSearcher searcher = new ModelDepthFirstSearcher(allNodes_, allEdges_, echs);
-            searcher.run(startNodeID);
+    /***************************************************************************
+     **
+     ** Finds back edges component by component. Only cyclic components are
+     ** searched, and the search never leaves the component, so the acyclic part
+     ** of the network costs nothing beyond computing the components. Unlike the
+     ** root based searches this also breaks cycles that no root can reach.
+     **
+     ** Each component is entered at its lowest indexed member that has inbound
+     ** edges from outside the component, so that the search follows regulation
+     ** into the loop the way a search from the roots would. Components without
+     ** such a member start at their lowest indexed member.
+     **
+     ** @return IDs of the back edges, in increasing order.
+     */
 
-            Set<Link> found = new HashSet<Link>(collector.getBackEdges());
+    public int[] findComponentBackEdges(StronglyConnectedComponents components) {
+        int nodeCount = graph_.getNodeCount();
+        // 0 = unvisited, 1 = on the current path, 2 = finished
+        byte[] status = new byte[nodeCount];
+        int[] pathVertices = new int[nodeCount];
+        int[] pathNextEdge = new int[nodeCount];
+        boolean[] isBackEdge = new boolean[graph_.getEdgeCount()];
+        int backEdgeCount = 0;
 
-            result.addAll(found);
+        for (int c = 0; c < components.getComponentCount(); c++) {
+            if (!components.isCyclic(c)) {
+                continue;
+            }
+
+            int[] members = components.getComponentMembers(c);
+            int entry = members[0];
+            for (int member : members) {
+                if (hasInboundFromOutside(member, c, components)) {
+                    entry = member;
+                    break;
+                }
+            }
+
+            // Start at the entry, then pick up anything it cannot reach
+            for (int i = -1; i < members.length; i++) {
+                int start = (i == -1) ? entry : members[i];
+                if (status[start] != 0) {
+                    continue;
+                }
+
+                int top = 0;
+                pathVertices[0] = start;
+                pathNextEdge[0] = graph_.getOutEdgeStart(start);
+                status[start] = 1;
+
+                while (top >= 0) {
+                    int vertex = pathVertices[top];
+                    int e = pathNextEdge[top];
+                    if (e == graph_.getOutEdgeEnd(vertex)) {
+                        status[vertex] = 2;
+                        top--;
+                        continue;
+                    }
+
+                    pathNextEdge[top] = e + 1;
+                    int targ = graph_.getEdgeTarget(e);
+                    if (components.getComponent(targ) != c) {
+                        continue;
+                    }
+                    if (status[targ] == 0) {
+                        status[targ] = 1;
+                        top++;
+                        pathVertices[top] = targ;
+                        pathNextEdge[top] = graph_.getOutEdgeStart(targ);
+                    }
+                    else if (status[targ] == 1) {
+                        isBackEdge[e] = true;
+                        backEdgeCount++;
+                    }
+                }
+            }
+        }
+
+        int[] result = new int[backEdgeCount];
+        int count = 0;
+        for (int e = 0; e < isBackEdge.length; e++) {
+            if (isBackEdge[e]) {
+                result[count++] = e;
+            }
         }
+        return result;
+    }
 
+    /***************************************************************************
+     **
+     ** Same as findComponentBackEdges(), returning links.
+     */
+
+    public Set<Link> runOnComponents() {
+        Set<Link> result = new HashSet<Link>();
+        for (int edge : findComponentBackEdges(new StronglyConnectedComponents(graph_))) {
+            result.add(graph_.getLink(edge));
+        }
         return result;
     }
+
+    /**
+     * Back edges of one search from a start node. The search state is the
+     * array backed CompactDFSState; only the back edges become links.
+     */
+    private List<Link> searchFromRoot(String startNodeID) {
+        IndexedEdgeCollector collector = new IndexedEdgeCollector(ModelDepthFirstSearcher.EdgeType.DFS_BACK_EDGE);
+
+        ModelDepthFirstSearcher searcher = new ModelDepthFirstSearcher(graph_);
+        searcher.addIndexedEdgeHandler(collector);
+        searcher.setTraversalMode(ModelDepthFirstSearcher.TraversalMode.EXPLICIT_STACK);
+        searcher.runCompact(startNodeID);
+
+        return collector.toLinks(graph_);
+    }
+
+    private boolean hasInboundFromOutside(int node, int component, StronglyConnectedComponents components) {
+        for (int i = graph_.getInEdgeStart(node); i < graph_.getInEdgeEnd(node); i++) {
+            int src = graph_.getEdgeSource(graph_.getInEdge(i));
+            if (components.getComponent(src) != component) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /***************************************************************************
+     **
+     ** Searches from the start nodes in [from, to), halving the range until a
+     ** single start node is left. Each search writes only its own slot.
+     */
+
+    private class RootSearchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private List<String> startNodeIDList_;
+        private List<List<Link>> found_;
+        private int from_;
+        private int to_;
+
+        RootSearchTask(List<String> startNodeIDList, List<List<Link>> found, int from, int to) {
+            startNodeIDList_ = startNodeIDList;
+            found_ = found;
+            from_ = from;
+            to_ = to;
+        }
+
+        protected void compute() {
+            if (to_ - from_ == 1) {
+                found_.set(from_, searchFromRoot(startNodeIDList_.get(from_)));
+                return;
+            }
+            int mid = (from_ + to_) >>> 1;
+            invokeAll(new RootSearchTask(startNodeIDList_, found_, from_, mid),
+                      new RootSearchTask(startNodeIDList_, found_, mid, to_));
+        }
+    }
 }
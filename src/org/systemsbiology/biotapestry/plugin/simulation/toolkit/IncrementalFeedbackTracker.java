@@ -0,0 +1,543 @@
+/*
+**    Copyright (C) 2003-2016 Institute for Systems Biology
+**                            Seattle, Washington, USA.
+**
+**    This library is free software; you can redistribute it and/or
+**    modify it under the terms of the GNU Lesser General Public
+**    License as published by the Free Software Foundation; either
+**    version 2.1 of the License, or (at your option) any later version.
+**
+**    This library is distributed in the hope that it will be useful,
+**    but WITHOUT ANY WARRANTY; without even the implied warranty of
+**    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+**    Lesser General Public License for more details.
+**
+**    You should have received a copy of the GNU Lesser General Public
+**    License along with this library; if not, write to the Free Software
+**    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package org.systemsbiology.biotapestry.plugin.simulation.toolkit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/***************************************************************************
+ *
+ * Keeps a feedback link set and a topological order of the remaining links
+ * up to date while links are added and removed.
+ *
+ * Links that keep the graph acyclic are held in a DAG whose topological
+ * order is maintained with the algorithm of Pearce and Kelly (2006): adding
+ * a link only reorders the nodes between its two ends in the current order,
+ * and only if the link points backwards. A link that would close a cycle is
+ * recorded as feedback instead. When a DAG link is removed, feedback links
+ * whose cycle could have run through it are offered to the DAG again.
+ *
+ * The cost of an edit depends on the part of the order it affects and, for
+ * a removal, on the number of feedback links, not on the size of the
+ * network.
+ *
+ */
+public class IncrementalFeedbackTracker {
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PRIVATE VARIABLES
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    private HashMap<String, Integer> nodeIndex_;
+    private ArrayList<String> nodeIDs_;
+
+    private ArrayList<IntList> dagOut_;
+    private ArrayList<IntList> dagIn_;
+    private ArrayList<IntList> feedbackOut_;
+    // Nodes with at least one outbound feedback link
+    private IntList feedbackSources_;
+    private int linkCount_;
+    private int feedbackCount_;
+
+    // ord_[v] is the position of v in the topological order, nodeAt_ the inverse
+    private int[] ord_;
+    private int[] nodeAt_;
+
+    // Search marks: a node is marked in the current search if mark_[v] == epoch_
+    private int[] mark_;
+    private int epoch_;
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PUBLIC CONSTRUCTORS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    public IncrementalFeedbackTracker() {
+        nodeIndex_ = new HashMap<String, Integer>();
+        nodeIDs_ = new ArrayList<String>();
+        dagOut_ = new ArrayList<IntList>();
+        dagIn_ = new ArrayList<IntList>();
+        feedbackOut_ = new ArrayList<IntList>();
+        feedbackSources_ = new IntList();
+        ord_ = new int[16];
+        nodeAt_ = new int[16];
+        mark_ = new int[16];
+        epoch_ = 0;
+    }
+
+    /***************************************************************************
+     **
+     ** Starts from a whole graph: the initial feedback links are those chosen
+     ** by EadesFeedbackArcSet, and the initial order is a topological order of
+     ** the rest. This is O(V + E), much cheaper than adding the links one at
+     ** a time.
+     */
+
+    public IncrementalFeedbackTracker(CompactGraph graph) {
+        this();
+
+        int nodeCount = graph.getNodeCount();
+        for (int v = 0; v < nodeCount; v++) {
+            addNode(graph.getNodeID(v));
+        }
+
+        int[] feedback = new EadesFeedbackArcSet(graph).findFeedbackEdges(new StronglyConnectedComponents(graph));
+        boolean[] isFeedback = new boolean[graph.getEdgeCount()];
+        for (int edge : feedback) {
+            isFeedback[edge] = true;
+        }
+
+        int[] pending = new int[nodeCount];
+        for (int e = 0; e < graph.getEdgeCount(); e++) {
+            int src = graph.getEdgeSource(e);
+            int trg = graph.getEdgeTarget(e);
+            if (isFeedback[e]) {
+                addFeedback(src, trg);
+            }
+            else {
+                dagOut_.get(src).add(trg);
+                dagIn_.get(trg).add(src);
+                pending[trg]++;
+            }
+            linkCount_++;
+        }
+
+        //
+        // Kahn's algorithm gives the initial order:
+        //
+
+        int[] queue = new int[nodeCount];
+        int head = 0;
+        int tail = 0;
+        for (int v = 0; v < nodeCount; v++) {
+            if (pending[v] == 0) {
+                queue[tail++] = v;
+            }
+        }
+        while (head < tail) {
+            int v = queue[head];
+            ord_[v] = head;
+            nodeAt_[head] = v;
+            head++;
+            IntList out = dagOut_.get(v);
+            for (int i = 0; i < out.size(); i++) {
+                int w = out.get(i);
+                if (--pending[w] == 0) {
+                    queue[tail++] = w;
+                }
+            }
+        }
+
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PUBLIC METHODS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    public void addNode(String nodeID) {
+        if (nodeIndex_.containsKey(nodeID)) {
+            return;
+        }
+
+        int node = nodeIDs_.size();
+        nodeIndex_.put(nodeID, Integer.valueOf(node));
+        nodeIDs_.add(nodeID);
+        dagOut_.add(new IntList());
+        dagIn_.add(new IntList());
+        feedbackOut_.add(new IntList());
+
+        if (node == ord_.length) {
+            ord_ = Arrays.copyOf(ord_, node * 2);
+            nodeAt_ = Arrays.copyOf(nodeAt_, node * 2);
+            mark_ = Arrays.copyOf(mark_, node * 2);
+        }
+        ord_[node] = node;
+        nodeAt_[node] = node;
+    }
+
+    /***************************************************************************
+     **
+     ** Adds a link, adding its nodes if needed. Returns true if the link closes
+     ** a cycle and was recorded as feedback. Adding a link that is already
+     ** present changes nothing and returns whether it is feedback.
+     */
+
+    public boolean addLink(String src, String trg) {
+        addNode(src);
+        addNode(trg);
+        int x = nodeIndex_.get(src).intValue();
+        int y = nodeIndex_.get(trg).intValue();
+
+        if (feedbackOut_.get(x).contains(y)) {
+            return true;
+        }
+        if (dagOut_.get(x).contains(y)) {
+            return false;
+        }
+
+        linkCount_++;
+        if (insertIntoDag(x, y)) {
+            return false;
+        }
+        addFeedback(x, y);
+        return true;
+    }
+
+    public boolean addLink(Link link) {
+        return addLink(link.getSrc(), link.getTrg());
+    }
+
+    /***************************************************************************
+     **
+     ** Removes a link. Returns false if there was no such link.
+     */
+
+    public boolean removeLink(String src, String trg) {
+        Integer srcIndex = nodeIndex_.get(src);
+        Integer trgIndex = nodeIndex_.get(trg);
+        if (srcIndex == null || trgIndex == null) {
+            return false;
+        }
+        int u = srcIndex.intValue();
+        int v = trgIndex.intValue();
+
+        if (removeFeedback(u, v)) {
+            linkCount_--;
+            return true;
+        }
+        if (!dagOut_.get(u).removeValue(v)) {
+            return false;
+        }
+        dagIn_.get(v).removeValue(u);
+        linkCount_--;
+
+        readmitFeedback(u, v);
+        return true;
+    }
+
+    public boolean removeLink(Link link) {
+        return removeLink(link.getSrc(), link.getTrg());
+    }
+
+    public boolean isFeedbackLink(String src, String trg) {
+        Integer srcIndex = nodeIndex_.get(src);
+        Integer trgIndex = nodeIndex_.get(trg);
+        if (srcIndex == null || trgIndex == null) {
+            return false;
+        }
+        return feedbackOut_.get(srcIndex.intValue()).contains(trgIndex.intValue());
+    }
+
+    public boolean hasLink(String src, String trg) {
+        Integer srcIndex = nodeIndex_.get(src);
+        Integer trgIndex = nodeIndex_.get(trg);
+        if (srcIndex == null || trgIndex == null) {
+            return false;
+        }
+        int u = srcIndex.intValue();
+        int v = trgIndex.intValue();
+        return dagOut_.get(u).contains(v) || feedbackOut_.get(u).contains(v);
+    }
+
+    public int getLinkCount() {
+        return linkCount_;
+    }
+
+    public int getFeedbackLinkCount() {
+        return feedbackCount_;
+    }
+
+    public Set<Link> getFeedbackLinks() {
+        Set<Link> result = new HashSet<Link>();
+        for (int k = 0; k < feedbackSources_.size(); k++) {
+            int u = feedbackSources_.get(k);
+            IntList out = feedbackOut_.get(u);
+            for (int i = 0; i < out.size(); i++) {
+                result.add(new Link(nodeIDs_.get(u), nodeIDs_.get(out.get(i))));
+            }
+        }
+        return result;
+    }
+
+    public List<Link> getLinks() {
+        List<Link> result = new ArrayList<Link>(linkCount_);
+        for (int u = 0; u < nodeIDs_.size(); u++) {
+            IntList out = dagOut_.get(u);
+            for (int i = 0; i < out.size(); i++) {
+                result.add(new Link(nodeIDs_.get(u), nodeIDs_.get(out.get(i))));
+            }
+            out = feedbackOut_.get(u);
+            for (int i = 0; i < out.size(); i++) {
+                result.add(new Link(nodeIDs_.get(u), nodeIDs_.get(out.get(i))));
+            }
+        }
+        return result;
+    }
+
+    /***************************************************************************
+     **
+     ** Returns all nodes in an order where every non-feedback link points
+     ** forward.
+     */
+
+    public List<String> getTopologicalOrder() {
+        List<String> result = new ArrayList<String>(nodeIDs_.size());
+        for (int pos = 0; pos < nodeIDs_.size(); pos++) {
+            result.add(nodeIDs_.get(nodeAt_[pos]));
+        }
+        return result;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PRIVATE INSTANCE METHODS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    private void addFeedback(int src, int trg) {
+        IntList out = feedbackOut_.get(src);
+        if (out.size() == 0) {
+            feedbackSources_.add(src);
+        }
+        out.add(trg);
+        feedbackCount_++;
+    }
+
+    private boolean removeFeedback(int src, int trg) {
+        IntList out = feedbackOut_.get(src);
+        if (!out.removeValue(trg)) {
+            return false;
+        }
+        if (out.size() == 0) {
+            feedbackSources_.removeValue(src);
+        }
+        feedbackCount_--;
+        return true;
+    }
+
+    /***************************************************************************
+     **
+     ** Pearce-Kelly insertion of x -> y. Returns false, leaving everything
+     ** unchanged, if y already reaches x.
+     */
+
+    private boolean insertIntoDag(int x, int y) {
+        if (x == y) {
+            return false;
+        }
+
+        int lowerBound = ord_[y];
+        int upperBound = ord_[x];
+
+        if (lowerBound < upperBound) {
+            //
+            // The link points backwards. Find what y reaches up to x's position;
+            // reaching x means a cycle.
+            //
+
+            IntList forward = new IntList();
+            if (!searchForward(y, x, upperBound, forward)) {
+                return false;
+            }
+            IntList backward = new IntList();
+            searchBackward(x, lowerBound, backward);
+            reorder(backward, forward);
+        }
+
+        dagOut_.get(x).add(y);
+        dagIn_.get(y).add(x);
+        return true;
+    }
+
+    /***************************************************************************
+     **
+     ** Collects the nodes reachable from start through DAG links without
+     ** passing beyond position upperBound. Returns false as soon as it reaches
+     ** the node stop.
+     */
+
+    private boolean searchForward(int start, int stop, int upperBound, IntList found) {
+        epoch_++;
+        IntList stack = new IntList();
+        stack.add(start);
+        mark_[start] = epoch_;
+
+        while (stack.size() > 0) {
+            int v = stack.removeLast();
+            found.add(v);
+            IntList out = dagOut_.get(v);
+            for (int i = 0; i < out.size(); i++) {
+                int w = out.get(i);
+                if (w == stop) {
+                    return false;
+                }
+                if (mark_[w] != epoch_ && ord_[w] < upperBound) {
+                    mark_[w] = epoch_;
+                    stack.add(w);
+                }
+            }
+        }
+        return true;
+    }
+
+    /***************************************************************************
+     **
+     ** Collects the nodes that reach start through DAG links without passing
+     ** below position lowerBound.
+     */
+
+    private void searchBackward(int start, int lowerBound, IntList found) {
+        epoch_++;
+        IntList stack = new IntList();
+        stack.add(start);
+        mark_[start] = epoch_;
+
+        while (stack.size() > 0) {
+            int v = stack.removeLast();
+            found.add(v);
+            IntList in = dagIn_.get(v);
+            for (int i = 0; i < in.size(); i++) {
+                int w = in.get(i);
+                if (mark_[w] != epoch_ && ord_[w] > lowerBound) {
+                    mark_[w] = epoch_;
+                    stack.add(w);
+                }
+            }
+        }
+    }
+
+    /***************************************************************************
+     **
+     ** Gives the affected nodes their pooled positions: first everything that
+     ** reaches x, then everything y reaches, each group in its old order.
+     */
+
+    private void reorder(IntList backward, IntList forward) {
+        long[] backwardByOrd = sortByOrd(backward);
+        long[] forwardByOrd = sortByOrd(forward);
+
+        int[] positions = new int[backwardByOrd.length + forwardByOrd.length];
+        int count = 0;
+        for (long entry : backwardByOrd) {
+            positions[count++] = (int)(entry >>> 32);
+        }
+        for (long entry : forwardByOrd) {
+            positions[count++] = (int)(entry >>> 32);
+        }
+        Arrays.sort(positions);
+
+        count = 0;
+        for (long entry : backwardByOrd) {
+            place((int)entry, positions[count++]);
+        }
+        for (long entry : forwardByOrd) {
+            place((int)entry, positions[count++]);
+        }
+    }
+
+    private long[] sortByOrd(IntList nodes) {
+        long[] result = new long[nodes.size()];
+        for (int i = 0; i < nodes.size(); i++) {
+            int v = nodes.get(i);
+            result[i] = ((long)ord_[v] << 32) | v;
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    private void place(int node, int position) {
+        ord_[node] = position;
+        nodeAt_[position] = node;
+    }
+
+    /***************************************************************************
+     **
+     ** After removing the DAG link u -> v, a feedback link a -> b can only have
+     ** lost its cycle if the cycle ran b ... u -> v ... a. If u still reaches v
+     ** another way, nothing changed. Otherwise only feedback links spanning
+     ** the removed one in the order, with ord(b) <= ord(u) and ord(v) <= ord(a),
+     ** can qualify. Their ends give the window of the order that both searches
+     ** stay inside: forward from v no further than the last such a, and back
+     ** from u no further than the first such b. The links found are chosen
+     ** before any is readmitted, since readmitting one can reorder the nodes.
+     */
+
+    private void readmitFeedback(int u, int v) {
+        if (!searchForward(u, v, ord_[v], new IntList())) {
+            return;
+        }
+
+        int lowerBound = Integer.MAX_VALUE;
+        int upperBound = Integer.MIN_VALUE;
+        for (int i = 0; i < feedbackSources_.size(); i++) {
+            int a = feedbackSources_.get(i);
+            if (ord_[a] < ord_[v]) {
+                continue;
+            }
+            IntList out = feedbackOut_.get(a);
+            for (int j = 0; j < out.size(); j++) {
+                int b = out.get(j);
+                if (ord_[b] <= ord_[u]) {
+                    lowerBound = Math.min(lowerBound, ord_[b]);
+                    upperBound = Math.max(upperBound, ord_[a]);
+                }
+            }
+        }
+        if (upperBound == Integer.MIN_VALUE) {
+            return;
+        }
+
+        IntList fromV = new IntList();
+        searchForward(v, -1, upperBound + 1, fromV);
+
+        // Left marked with the current epoch for the check below
+        searchBackward(u, lowerBound - 1, new IntList());
+
+        IntList candidates = new IntList();
+        for (int i = 0; i < fromV.size(); i++) {
+            int a = fromV.get(i);
+            IntList out = feedbackOut_.get(a);
+            for (int j = 0; j < out.size(); j++) {
+                int b = out.get(j);
+                if (a != b && mark_[b] == epoch_) {
+                    candidates.add(a);
+                    candidates.add(b);
+                }
+            }
+        }
+
+        for (int i = 0; i < candidates.size(); i += 2) {
+            int a = candidates.get(i);
+            int b = candidates.get(i + 1);
+            if (insertIntoDag(a, b)) {
+                removeFeedback(a, b);
+            }
+        }
+    }
+}
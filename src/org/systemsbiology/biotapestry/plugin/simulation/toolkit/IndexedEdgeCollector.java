@@ -0,0 +1,80 @@
+/*
+**    Copyright (C) 2003-2015 Institute for Systems Biology
+**                            Seattle, Washington, USA.
+**
+**    This library is free software; you can redistribute it and/or
+**    modify it under the terms of the GNU Lesser General Public
+**    License as published by the Free Software Foundation; either
+**    version 2.1 of the License, or (at your option) any later version.
+**
+**    This library is distributed in the hope that it will be useful,
+**    but WITHOUT ANY WARRANTY; without even the implied warranty of
+**    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+**    Lesser General Public License for more details.
+**
+**    You should have received a copy of the GNU Lesser General Public
+**    License along with this library; if not, write to the Free Software
+**    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package org.systemsbiology.biotapestry.plugin.simulation.toolkit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.systemsbiology.biotapestry.plugin.simulation.toolkit.ModelDepthFirstSearcher.EdgeType;
+
+/***************************************************************************
+ *
+ * Retains all edges of one type from a depth first search, as CompactGraph
+ * node index pairs packed into a growable long array. Collecting an edge
+ * allocates nothing except when the buffer doubles.
+ *
+ */
+public class IndexedEdgeCollector implements IndexedEdgeHandler {
+    private int typeOrdinal_;
+    private long[] edges_;
+    private int size_;
+
+    public IndexedEdgeCollector(EdgeType edgeType) {
+        typeOrdinal_ = edgeType.ordinal();
+        edges_ = new long[16];
+        size_ = 0;
+    }
+
+    public void handleEdgeClassified(int source, int target, int typeOrdinal) {
+        if (typeOrdinal == typeOrdinal_) {
+            if (size_ == edges_.length) {
+                edges_ = Arrays.copyOf(edges_, size_ * 2);
+            }
+            edges_[size_++] = ((long)source << 32) | (target & 0xFFFFFFFFL);
+        }
+    }
+
+    public int size() {
+        return size_;
+    }
+
+    public int getSource(int index) {
+        return (int)(edges_[index] >>> 32);
+    }
+
+    public int getTarget(int index) {
+        return (int)edges_[index];
+    }
+
+    public void clear() {
+        size_ = 0;
+    }
+
+    /**
+     * Collected edges as links, in the order they were found.
+     */
+    public List<Link> toLinks(CompactGraph graph) {
+        List<Link> result = new ArrayList<Link>(size_);
+        for (int i = 0; i < size_; i++) {
+            result.add(new Link(graph.getNodeID(getSource(i)), graph.getNodeID(getTarget(i))));
+        }
+        return result;
+    }
+}
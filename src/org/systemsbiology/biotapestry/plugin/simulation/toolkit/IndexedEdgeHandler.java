@@ -0,0 +1,31 @@
+/*
+**    Copyright (C) 2003-2015 Institute for Systems Biology
+**                            Seattle, Washington, USA.
+**
+**    This library is free software; you can redistribute it and/or
+**    modify it under the terms of the GNU Lesser General Public
+**    License as published by the Free Software Foundation; either
+**    version 2.1 of the License, or (at your option) any later version.
+**
+**    This library is distributed in the hope that it will be useful,
+**    but WITHOUT ANY WARRANTY; without even the implied warranty of
+**    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+**    Lesser General Public License for more details.
+**
+**    You should have received a copy of the GNU Lesser General Public
+**    License along with this library; if not, write to the Free Software
+**    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package org.systemsbiology.biotapestry.plugin.simulation.toolkit;
+
+/***************************************************************************
+ *
+ * Interface for handlers to be run immediately after an edge is classified
+ * during a depth first graph traversal, given the CompactGraph indices of the
+ * edge's ends and the ordinal of its ModelDepthFirstSearcher.EdgeType. Unlike
+ * EdgeClassifiedHandler, nothing has to be looked up or allocated per call.
+ *
+ */
+public interface IndexedEdgeHandler {
+    public void handleEdgeClassified(int source, int target, int typeOrdinal);
+}
@@ -0,0 +1,97 @@
+/*
+**    Copyright (C) 2003-2016 Institute for Systems Biology
+**                            Seattle, Washington, USA.
+**
+**    This library is free software; you can redistribute it and/or
+**    modify it under the terms of the GNU Lesser General Public
+**    License as published by the Free Software Foundation; either
+**    version 2.1 of the License, or (at your option) any later version.
+**
+**    This library is distributed in the hope that it will be useful,
+**    but WITHOUT ANY WARRANTY; without even the implied warranty of
+**    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+**    Lesser General Public License for more details.
+**
+**    You should have received a copy of the GNU Lesser General Public
+**    License along with this library; if not, write to the Free Software
+**    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package org.systemsbiology.biotapestry.plugin.simulation.toolkit;
+
+import java.util.Arrays;
+
+/***************************************************************************
+ *
+ * Growable list of ints, for toolkit structures that change size and
+ * should not box their entries.
+ *
+ */
+class IntList {
+    private int[] values_;
+    private int size_;
+
+    IntList() {
+        values_ = new int[4];
+        size_ = 0;
+    }
+
+    int size() {
+        return size_;
+    }
+
+    int get(int index) {
+        return values_[index];
+    }
+
+    void set(int index, int value) {
+        values_[index] = value;
+    }
+
+    void add(int value) {
+        if (size_ == values_.length) {
+            values_ = Arrays.copyOf(values_, size_ * 2);
+        }
+        values_[size_++] = value;
+    }
+
+    int removeLast() {
+        return values_[--size_];
+    }
+
+    void clear() {
+        size_ = 0;
+    }
+
+    boolean contains(int value) {
+        return indexOf(value) != -1;
+    }
+
+    int indexOf(int value) {
+        for (int i = 0; i < size_; i++) {
+            if (values_[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /***************************************************************************
+     **
+     ** Removes one occurrence of the value by moving the last entry into its
+     ** place. Order is not kept. Returns false if the value is not present.
+     */
+
+    boolean removeValue(int value) {
+        int index = indexOf(value);
+        if (index == -1) {
+            return false;
+        }
+        values_[index] = values_[--size_];
+        return true;
+    }
+
+    int[] toArray() {
+        return Arrays.copyOf(values_, size_);
+    }
+}
@@ -24,9 +24,7 @@ import java.util.List;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.Set;
-import java.util.Collections;
 
 public class ModelDepthFirstSearcher {
     public enum EdgeType {
@@ -36,6 +34,17 @@ public class ModelDepthFirstSearcher {
         DFS_CROSS_EDGE,
     }
 
+    /**
+     * How the search walks the graph. RECURSIVE uses one Java stack frame per
+     * vertex on the current path, EXPLICIT_STACK keeps the path in a heap
+     * allocated stack so that deep cascades cannot overflow the thread stack.
+     * Both produce identical edge classifications, times and callbacks.
+     */
+    public enum TraversalMode {
+        RECURSIVE,
+        EXPLICIT_STACK,
+    }
+
     public class DFSState {
         private int time_;
         private HashSet<String> visited_;
@@ -176,127 +185,221 @@ public class ModelDepthFirstSearcher {
     //
     ////////////////////////////////////////////////////////////////////////////
 
-    private Set<String> allNodes_;
-    private Set<Link> allEdges_;
-    // private ArrayList<String> nodeOrder_;
-    private ArrayList<Link> edgeOrder_;
+    private CompactGraph graph_;
 
-    private List<EdgeClassifiedHandler> edgeClassifiedHandlers_;
+    private static final List<EdgeClassifiedHandler> NO_NAMED_HANDLERS = new ArrayList<EdgeClassifiedHandler>();
+
+    // Named handlers are wrapped in a NamedEdgeHandlerAdapter
+    private List<IndexedEdgeHandler> edgeHandlers_;
+    private TraversalMode traversalMode_ = TraversalMode.RECURSIVE;
+
+    // Path stack of visitIteratively(), shared by all the start nodes of a run
+    private int[] pathVertices_;
+    private int[] pathNextEdge_;
 
     /**
-     * Constructor.
+     * Constructor. Outbound edges are followed in the order given by the
+     * comparator of the Link-class.
      *
      * @param nodes Set of nodes identifiers.
      * @param links Set of links.
      */
     public ModelDepthFirstSearcher(Set<String> nodes, Set<Link> links) {
-        allNodes_ = new HashSet<String>();
-        allEdges_ = new HashSet<Link>();
-        edgeClassifiedHandlers_ = new ArrayList<EdgeClassifiedHandler>();
-
-        Iterator<String> ni = nodes.iterator();
-        Iterator<Link> li = links.iterator();
-
-        while (ni.hasNext()) {
-            allNodes_.add(ni.next());
-        }
-
-        while (li.hasNext()) {
-            Link link = li.next();
-            allEdges_.add(link.clone());
-        }
-
-        edgeOrder_ = buildEdgeOrder(links);
+        this(new CompactGraph(nodes, links, true));
     }
 
     public ModelDepthFirstSearcher(Set<String> nodes, Set<Link> links, List<EdgeClassifiedHandler> handlers) {
-        this(nodes, links);
-
-        for (EdgeClassifiedHandler handler : handlers) {
-            edgeClassifiedHandlers_.add(handler);
-        }
+        this(new CompactGraph(nodes, links, true), handlers);
     }
 
     /**
-     * Constructor.
+     * Constructor. Outbound edges are followed in the order the links are listed.
      *
      * @param nodes List of nodes identifiers.
      * @param links List of links.
      */
     public ModelDepthFirstSearcher(List<String> nodes, List<Link> links) {
-        allNodes_ = new HashSet<String>();
-        allEdges_ = new HashSet<Link>();
-        edgeOrder_ = new ArrayList<Link>();
-        edgeClassifiedHandlers_ = new ArrayList<EdgeClassifiedHandler>();
+        this(new CompactGraph(nodes, links, false));
+    }
 
-        Iterator<Link> li = links.iterator();
+    public ModelDepthFirstSearcher(List<String> nodes, List<Link> links, List<EdgeClassifiedHandler> handlers) {
+        this(new CompactGraph(nodes, links, false), handlers);
+    }
 
-        allNodes_.addAll(nodes);
+    /**
+     * Constructor. The graph is shared, not copied, so one snapshot can back
+     * any number of searchers.
+     *
+     * @param graph Graph to search.
+     */
+    public ModelDepthFirstSearcher(CompactGraph graph) {
+        graph_ = graph;
+        edgeHandlers_ = new ArrayList<IndexedEdgeHandler>();
+    }
 
-        while (li.hasNext()) {
-            Link link = li.next();
-            if (!allEdges_.contains(link)) {
-                edgeOrder_.add(link.clone());
-            }
-            allEdges_.add(link.clone());
+    public ModelDepthFirstSearcher(CompactGraph graph, List<EdgeClassifiedHandler> handlers) {
+        this(graph);
+        for (EdgeClassifiedHandler handler : handlers) {
+            addEdgeClassifiedHandler(handler);
         }
     }
 
-    public ModelDepthFirstSearcher(List<String> nodes, List<Link> links, List<EdgeClassifiedHandler> handlers) {
-        this(nodes, links);
+    /***************************************************************************
+     **
+     ** Adds a handler. All handlers are called in the order they were added,
+     ** whichever kind they are.
+     */
 
-        for (EdgeClassifiedHandler handler : handlers) {
-            edgeClassifiedHandlers_.add(handler);
-        }
+    public void addEdgeClassifiedHandler(EdgeClassifiedHandler handler) {
+        edgeHandlers_.add(new NamedEdgeHandlerAdapter(graph_, handler));
+    }
+
+    public void addIndexedEdgeHandler(IndexedEdgeHandler handler) {
+        edgeHandlers_.add(handler);
+    }
+
+    public void setTraversalMode(TraversalMode mode) {
+        traversalMode_ = mode;
+    }
+
+    public TraversalMode getTraversalMode() {
+        return traversalMode_;
+    }
+
+    public CompactGraph getGraph() {
+        return graph_;
     }
 
     public DFSState run(String startNodeID) {
-        Map<String, ArrayList<String>> outEdges = calcOutboundEdges(allEdges_);
-        List<QueueEntry> retval = new ArrayList<QueueEntry>();
+        DFSState state = new DFSState();
+        search(startNodeID, new NamedTraversal(state));
+        return state;
+    }
 
-        // The times are initially unset for all vertices
-        HashMap<String, Integer> entryTimes = new HashMap<String, Integer>();
-        HashMap<String, Integer> exitTimes = new HashMap<String, Integer>();
+    /***************************************************************************
+     **
+     ** Runs one depth first forest: each start node that has not been reached
+     ** by an earlier tree starts a new tree, continuing the same visited set and
+     ** clock. Every vertex and edge is handled at most once in total.
+     */
 
+    public DFSState run(List<String> startNodeIDList) {
         DFSState state = new DFSState();
+        NamedTraversal traversal = new NamedTraversal(state);
+        for (String startNodeID : startNodeIDList) {
+            search(startNodeID, traversal);
+        }
+        return state;
+    }
 
-        visit(startNodeID, null, retval, entryTimes, exitTimes, outEdges, 0, state);
+    /***************************************************************************
+     **
+     ** Same searches as run(), recording the state in a CompactDFSState indexed
+     ** by the graph's node and edge indices. Handlers see the same callbacks in
+     ** the same order. A start node that is not in the graph has no index and
+     ** is skipped.
+     */
 
+    public CompactDFSState runCompact(String startNodeID) {
+        CompactDFSState state = new CompactDFSState(graph_);
+        search(startNodeID, new IndexedTraversal(state));
         return state;
     }
 
-    private void visit(String vertexID, String sourceVertexID, List<QueueEntry> results,
-                       HashMap<String, Integer> entryTimes, HashMap<String, Integer> exitTimes,
-                       Map<String, ArrayList<String>> edgesFromSrc, int depth,
-                       DFSState state) {
+    public CompactDFSState runCompact(List<String> startNodeIDList) {
+        CompactDFSState state = new CompactDFSState(graph_);
+        IndexedTraversal traversal = new IndexedTraversal(state);
+        for (String startNodeID : startNodeIDList) {
+            search(startNodeID, traversal);
+        }
+        return state;
+    }
 
-        if (state.isVisited(vertexID)) {
-            return;
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PRIVATE INNER CLASSES
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * The traversal works on node and edge indices; this is how it records
+     * what it finds in either kind of state.
+     */
+    private interface TraversalState {
+        boolean isVisited(int vertex);
+        void visit(int vertex, int depth);
+        void markVertexParent(int vertex, int parent);
+        void classifyEdge(int edge, int source, int target);
+        void exitVertex(int vertex);
+        void visitUnindexed(String vertexID);
+    }
+
+    private class NamedTraversal implements TraversalState {
+        private DFSState state_;
+
+        NamedTraversal(DFSState state) {
+            state_ = state;
         }
 
-        // Vertex is newly discovered
-        state.visit(vertexID, sourceVertexID, depth);
+        public boolean isVisited(int vertex) {
+            return state_.isVisited(graph_.getNodeID(vertex));
+        }
 
-        ArrayList<String> outEdges = edgesFromSrc.get(vertexID);
-        if (outEdges == null) {
-            state.exitVertex(vertexID);
+        public void visit(int vertex, int depth) {
+            state_.visit(graph_.getNodeID(vertex), null, depth);
         }
-        else {
-            Iterator<String> eit = outEdges.iterator();
-            while (eit.hasNext()) {
-                String targ = eit.next();
-                if (!state.isVisited(targ)) {
-                    state.markVertexParent(targ, vertexID);
-                    state.classifyEdge(vertexID, targ, edgeClassifiedHandlers_);
-
-                    visit(targ, vertexID, results, entryTimes, exitTimes, edgesFromSrc, depth + 1, state);
-                }
-                else {
-                    state.classifyEdge(vertexID, targ, edgeClassifiedHandlers_);
-                }
+
+        public void markVertexParent(int vertex, int parent) {
+            state_.markVertexParent(graph_.getNodeID(vertex), graph_.getNodeID(parent));
+        }
+
+        public void classifyEdge(int edge, int source, int target) {
+            EdgeType type = state_.classifyEdge(graph_.getNodeID(source), graph_.getNodeID(target), NO_NAMED_HANDLERS);
+            notifyHandlers(source, target, type);
+        }
+
+        public void exitVertex(int vertex) {
+            state_.exitVertex(graph_.getNodeID(vertex));
+        }
+
+        public void visitUnindexed(String vertexID) {
+            // Not part of any link: discovered and finished right away
+            if (!state_.isVisited(vertexID)) {
+                state_.visit(vertexID, null, 0);
+                state_.exitVertex(vertexID);
             }
+        }
+    }
+
+    private class IndexedTraversal implements TraversalState {
+        private CompactDFSState state_;
+
+        IndexedTraversal(CompactDFSState state) {
+            state_ = state;
+        }
+
+        public boolean isVisited(int vertex) {
+            return state_.isVisited(vertex);
+        }
+
+        public void visit(int vertex, int depth) {
+            state_.visit(vertex, depth);
+        }
+
+        public void markVertexParent(int vertex, int parent) {
+            state_.markVertexParent(vertex, parent);
+        }
+
+        public void classifyEdge(int edge, int source, int target) {
+            EdgeType type = state_.classifyEdge(edge, source, target);
+            notifyHandlers(source, target, type);
+        }
 
-            state.exitVertex(vertexID);
+        public void exitVertex(int vertex) {
+            state_.exitVertex(vertex);
+        }
+
+        public void visitUnindexed(String vertexID) {
         }
     }
 
@@ -306,60 +409,102 @@ public class ModelDepthFirstSearcher {
     //
     ////////////////////////////////////////////////////////////////////////////
 
-    /***************************************************************************
-     **
-     ** Returns a sorted list of links. Order is based on the comparator of the
-     ** Link-class.
-     */
-
-    private ArrayList<Link> buildEdgeOrder(Set<Link> edgeSet) {
-        ArrayList<Link> result= new ArrayList<Link>();
-        result.addAll(edgeSet);
-        Collections.sort(result);
+    private void notifyHandlers(int source, int target, EdgeType type) {
+        int typeOrdinal = type.ordinal();
+        for (int i = 0; i < edgeHandlers_.size(); i++) {
+            edgeHandlers_.get(i).handleEdgeClassified(source, target, typeOrdinal);
+        }
+    }
 
-        return result;
+    private void search(String startNodeID, TraversalState state) {
+        int start = graph_.getNodeIndex(startNodeID);
+        if (start == -1) {
+            state.visitUnindexed(startNodeID);
+        }
+        else if (traversalMode_ == TraversalMode.EXPLICIT_STACK) {
+            visitIteratively(start, state);
+        }
+        else {
+            visit(start, 0, state);
+        }
     }
 
-    /***************************************************************************
-     **
-     ** Returns the target vertices of outbound edges from given source
-     ** vertex.
-     */
+    private void visit(int vertex, int depth, TraversalState state) {
+        if (state.isVisited(vertex)) {
+            return;
+        }
 
-    private ArrayList<String> getOutEdges(String sourceID) {
-        ArrayList<String> result = new ArrayList<String>();
+        // Vertex is newly discovered
+        state.visit(vertex, depth);
 
-        Iterator<Link> eit = edgeOrder_.iterator();
-        while (eit.hasNext()) {
-            Link link = eit.next();
-            if (sourceID.equals(link.getSrc())) {
-                result.add(link.getTrg());
+        int end = graph_.getOutEdgeEnd(vertex);
+        for (int e = graph_.getOutEdgeStart(vertex); e < end; e++) {
+            int targ = graph_.getEdgeTarget(e);
+            if (!state.isVisited(targ)) {
+                state.markVertexParent(targ, vertex);
+                state.classifyEdge(e, vertex, targ);
+
+                visit(targ, depth + 1, state);
+            }
+            else {
+                state.classifyEdge(e, vertex, targ);
             }
         }
 
-        return result;
+        state.exitVertex(vertex);
     }
 
     /***************************************************************************
      **
-     ** Build map from node to outbound edges
+     ** Same traversal as visit(), but the current path is held in a pair of
+     ** int arrays instead of on the call stack. For each vertex on the path the
+     ** stack remembers the next outbound edge to scan, so edges are classified
+     ** and vertices exited in exactly the order the recursive version uses.
      */
 
-    private Map<String, ArrayList<String>> calcOutboundEdges(Set<Link> edges) {
+    private void visitIteratively(int startVertex, TraversalState state) {
+        if (state.isVisited(startVertex)) {
+            return;
+        }
 
-        HashMap<String, ArrayList<String>> retval = new HashMap<String, ArrayList<String>>();
-        Iterator<Link> li = edges.iterator();
+        // A path can hold each vertex at most once. Allocated once, not per
+        // start node, or a run over many start nodes would cost O(starts * V)
+        if (pathVertices_ == null) {
+            pathVertices_ = new int[graph_.getNodeCount()];
+            pathNextEdge_ = new int[graph_.getNodeCount()];
+        }
+        int[] pathVertices = pathVertices_;
+        int[] pathNextEdge = pathNextEdge_;
+        int top = 0;
+
+        state.visit(startVertex, 0);
+        pathVertices[0] = startVertex;
+        pathNextEdge[0] = graph_.getOutEdgeStart(startVertex);
+
+        while (top >= 0) {
+            int vertex = pathVertices[top];
+            int e = pathNextEdge[top];
+
+            if (e == graph_.getOutEdgeEnd(vertex)) {
+                state.exitVertex(vertex);
+                top--;
+                continue;
+            }
 
-        while (li.hasNext()) {
-            Link link = li.next();
-            String trg = link.getTrg();
-            String src = link.getSrc();
-            ArrayList<String> forSrc = retval.get(src);
-            if (forSrc == null) {
-                forSrc = getOutEdges(src);
-                retval.put(src, forSrc);
+            pathNextEdge[top] = e + 1;
+            int targ = graph_.getEdgeTarget(e);
+            if (!state.isVisited(targ)) {
+                state.markVertexParent(targ, vertex);
+                state.classifyEdge(e, vertex, targ);
+
+                top++;
+                state.visit(targ, top);
+                pathVertices[top] = targ;
+                pathNextEdge[top] = graph_.getOutEdgeStart(targ);
+            }
+            else {
+                state.classifyEdge(e, vertex, targ);
             }
         }
-        return (retval);
     }
 }
@@ -20,21 +20,136 @@
 package org.systemsbiology.biotapestry.plugin.simulation.toolkit;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.Map;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import org.systemsbiology.biotapestry.simulation.ModelLink;
 import org.systemsbiology.biotapestry.simulation.ModelNode;
 import org.systemsbiology.biotapestry.simulation.ModelSource;
 
 public class ModelGraphAnalysis {
+
+  /***************************************************************************
+   **
+   ** Ways of choosing the feedback links:
+   **
+   ** ROOT_DFS: back edges of a separate search from every root node.
+   ** ROOT_DFS_SINGLE_PASS: back edges of one search forest over all roots.
+   ** COMPONENT_DFS: back edges of searches inside each cyclic component.
+   ** EADES_LIN_SMYTH: linear time feedback arc set heuristic, independent
+   **                  of search order.
+   **
+   ** The root based strategies miss cycles no root node can reach.
+   */
+
+  public enum FeedbackStrategy {
+    ROOT_DFS,
+    ROOT_DFS_SINGLE_PASS,
+    COMPONENT_DFS,
+    EADES_LIN_SMYTH,
+  }
+
+  /***************************************************************************
+   **
+   ** An elementary feedback loop of the root model, links in path order
+   */
+
+  public static class FeedbackLoop {
+    private List<ModelLink> links_;
+    private FeedbackLoopEnumerator.Polarity polarity_;
+
+    FeedbackLoop(List<ModelLink> links, FeedbackLoopEnumerator.Polarity polarity) {
+      links_ = links;
+      polarity_ = polarity;
+    }
+
+    public List<ModelLink> getLinks() {
+      return links_;
+    }
+
+    public FeedbackLoopEnumerator.Polarity getPolarity() {
+      return polarity_;
+    }
+  }
+
   private ModelSource mSrc_;
+  private ModelGraph snapshot_;
+  // Versioned source and version the snapshot was last checked against
+  private ModelSource versionSource_;
+  private long version_;
+  private IncrementalFeedbackTracker feedbackTracker_;
+  // Model links behind each link of the tracker, in the order they were added
+  private HashMap<Link, List<ModelLink>> trackedModelLinks_;
+  private int lastEditCount_;
+  private int parallelism_;
+  private ForkJoinPool pool_;
 
   public ModelGraphAnalysis(ModelSource mSrc) {
     mSrc_ = mSrc;
+    parallelism_ = 1;
+  }
+
+  /***************************************************************************
+   **
+   ** Analysis of a prebuilt snapshot. Nodes and links come from the
+   ** snapshot, so the host source is not read again.
+   */
+
+  public ModelGraphAnalysis(ModelSnapshot model) {
+    this((ModelSource)model);
+  }
+
+  /***************************************************************************
+   **
+   ** Switches to a new snapshot of the model. Cached results are kept if
+   ** the snapshot has the same nodes and links as the one they came from.
+   */
+
+  public synchronized void setModel(ModelSnapshot model) {
+    mSrc_ = model;
+  }
+
+  /***************************************************************************
+   **
+   ** Sets how many threads ROOT_DFS may use for its per-root searches. The
+   ** default of 1 searches on the calling thread.
+   */
+
+  public void setParallelism(int parallelism) {
+    parallelism_ = parallelism;
+  }
+
+  public int getParallelism() {
+    return parallelism_;
+  }
+
+  /***************************************************************************
+   **
+   ** Runs the ROOT_DFS searches and motif counts on a pool shared with other
+   ** work, such as the one running a conversion, instead of starting a pool
+   ** of their own. Null goes back to setParallelism().
+   */
+
+  public void setPool(ForkJoinPool pool) {
+    pool_ = pool;
+  }
+
+  /***************************************************************************
+   **
+   ** Drops the cached snapshot and results, so that the next call rebuilds
+   ** them even if the model looks unchanged.
+   */
+
+  public synchronized void invalidate() {
+    snapshot_ = null;
+    feedbackTracker_ = null;
+    trackedModelLinks_ = null;
   }
 
   /***************************************************************************
@@ -43,59 +158,580 @@ public class ModelGraphAnalysis {
    */
 
   public Set<ModelLink> findFeedbackEdges() {
-    Set<ModelLink> result = new HashSet<ModelLink>();
+    return findFeedbackEdges(FeedbackStrategy.ROOT_DFS);
+  }
 
-    Set<String> nodes = new HashSet<String>();
-    for (Iterator<ModelNode> nodeIter = mSrc_.getRootModelNodes(); nodeIter.hasNext();) {
-      ModelNode node = nodeIter.next();
-      String id = node.getUniqueInternalID();
-      nodes.add(id);
+  /***************************************************************************
+   **
+   ** Finds feedback links using the given strategy
+   */
+
+  public Set<ModelLink> findFeedbackEdges(FeedbackStrategy strategy) {
+    ModelGraph modelGraph = currentModelGraph();
+    return toModelLinks(modelGraph, cachedFeedbackEdges(modelGraph, strategy));
+  }
+
+  /***************************************************************************
+   **
+   ** Finds feedback links component by component. Unlike findFeedbackEdges(),
+   ** this also breaks cycles that cannot be reached from a root node, and it
+   ** only searches the cyclic part of the network.
+   */
+
+  public Set<ModelLink> findComponentFeedbackEdges() {
+    return findFeedbackEdges(FeedbackStrategy.COMPONENT_DFS);
+  }
+
+  /***************************************************************************
+   **
+   ** Finds feedback links, keeping them up to date between calls instead of
+   ** starting over. The first call chooses them from the current model as
+   ** EADES_LIN_SMYTH does. After that the model is not read again: edits are
+   ** reported through findFeedbackEdgesIncrementally(removed, added), and
+   ** this returns the links as of the last one. invalidate() drops the
+   ** tracker, so the next call starts over from the model.
+   */
+
+  public synchronized Set<ModelLink> findFeedbackEdgesIncrementally() {
+    if (feedbackTracker_ == null) {
+      startFeedbackTracker();
     }
+    lastEditCount_ = 0;
+    return trackedFeedbackLinks();
+  }
 
-    Set<Link> links = new HashSet<Link>();
-    Map<Link, ModelLink> linkMap = new HashMap<Link, ModelLink>();
+  /***************************************************************************
+   **
+   ** Applies the links removed from and added to the root model since the
+   ** last call, then returns the feedback links. Neither the model source nor
+   ** the snapshot is read, and only the edits go to the tracker, so the cycle
+   ** bookkeeping is limited to the part of the network around each one.
+   ** Added links are only made feedback if they close a cycle. Existing
+   ** feedback links are kept unless a removal broke their cycle. Without a
+   ** tracker yet, the model is read as it is now, edits included.
+   */
+
+  public synchronized Set<ModelLink> findFeedbackEdgesIncrementally(Collection<ModelLink> removed, 
+                                                                    Collection<ModelLink> added) {
+    if (feedbackTracker_ == null) {
+      return findFeedbackEdgesIncrementally();
+    }
+
+    int edits = 0;
+    for (ModelLink modelLink : removed) {
+      Link link = new Link(modelLink.getSrc(), modelLink.getTrg());
+      List<ModelLink> behind = trackedModelLinks_.get(link);
+      if ((behind == null) || !behind.remove(modelLink)) {
+        continue;
+      }
+      // Other model links between the same nodes keep the link in place
+      if (behind.isEmpty()) {
+        trackedModelLinks_.remove(link);
+        feedbackTracker_.removeLink(link);
+        edits++;
+      }
+    }
+    for (ModelLink modelLink : added) {
+      Link link = new Link(modelLink.getSrc(), modelLink.getTrg());
+      List<ModelLink> behind = trackedModelLinks_.get(link);
+      if (behind == null) {
+        behind = new ArrayList<ModelLink>(1);
+        trackedModelLinks_.put(link, behind);
+        feedbackTracker_.addLink(link);
+        edits++;
+      }
+      behind.add(modelLink);
+    }
+    lastEditCount_ = edits;
+    return trackedFeedbackLinks();
+  }
 
-    for (Iterator<ModelLink> linkIter = mSrc_.getRootModelLinks(); linkIter.hasNext();) {
-      ModelLink modelLink = linkIter.next();
+  /***************************************************************************
+   **
+   ** Number of link removals and additions the last call to
+   ** findFeedbackEdgesIncrementally() handed to its tracker.
+   */
 
-      String src = modelLink.getSrc();
-      String trg = modelLink.getTrg();
-      Link link = new Link(src, trg);
-      links.add(link);
+  public synchronized int getLastIncrementalEditCount() {
+    return lastEditCount_;
+  }
 
-      linkMap.put(link, modelLink);
+  /***************************************************************************
+   **
+   ** Runs every strategy on the same snapshot of the model and reports the
+   ** number of feedback links each one finds and how long it took.
+   */
+
+  public String reportFeedbackStrategies() {
+    ModelGraph modelGraph = currentModelGraph();
+    StringBuffer buf = new StringBuffer();
+    buf.append("Feedback strategies for ");
+    buf.append(modelGraph.graph.getNodeCount());
+    buf.append(" nodes, ");
+    buf.append(modelGraph.graph.getEdgeCount());
+    buf.append(" links:\n");
+
+    for (FeedbackStrategy strategy : FeedbackStrategy.values()) {
+      long start = System.nanoTime();
+      int[] edges = findFeedbackEdges(modelGraph, strategy);
+      long elapsed = System.nanoTime() - start;
+
+      buf.append("  ");
+      buf.append(strategy);
+      buf.append(": ");
+      buf.append(edges.length);
+      buf.append(" feedback links, ");
+      buf.append(String.format("%.3f", elapsed / 1.0E6));
+      buf.append(" ms\n");
     }
+    return buf.toString();
+  }
+
+  /***************************************************************************
+   **
+   ** Finds the strongly connected components of the root model. Node indices
+   ** are those of components.getGraph().
+   */
 
-    Set<String> rootNodeIDs = findRootModelRootNodeIDs();
+  public StronglyConnectedComponents findStronglyConnectedComponents() {
+    return currentModelGraph().getComponents();
+  }
 
-    GraphFeedbackFinder feedbackFinder = new GraphFeedbackFinder(nodes, links);
-    Set<Link> possibleFeedback = feedbackFinder.run(new ArrayList<String>(rootNodeIDs));
+  /***************************************************************************
+   **
+   ** Drops the feedback links chosen by the strategy and lays out the rest of
+   ** the root model in topological levels. Node indices are those of
+   ** layering.getGraph(), and layering.getLevels() gives the nodes grouped by
+   ** level. The root based strategies can leave cycles that no root reaches,
+   ** in which case this throws an IllegalStateException.
+   */
 
-    for (Link link : possibleFeedback) {
-      result.add(linkMap.get(link));
+  public TopologicalLayering findTopologicalLevels(FeedbackStrategy strategy) {
+    ModelGraph modelGraph = currentModelGraph();
+    synchronized (modelGraph) {
+      TopologicalLayering layering = modelGraph.layerings.get(strategy);
+      if (layering == null) {
+        layering = new TopologicalLayering(modelGraph.graph, cachedFeedbackEdges(modelGraph, strategy));
+        modelGraph.layerings.put(strategy, layering);
+      }
+      return layering;
     }
+  }
 
+  /***************************************************************************
+   **
+   ** Same as findTopologicalLevels(strategy), dropping the COMPONENT_DFS
+   ** feedback links, which break every cycle.
+   */
+
+  public TopologicalLayering findTopologicalLevels() {
+    return findTopologicalLevels(FeedbackStrategy.COMPONENT_DFS);
+  }
+
+  /***************************************************************************
+   **
+   ** Enumerates the elementary feedback loops of the root model, classified by
+   ** the signs of their links. Stops at maxLength links per loop, maxCount
+   ** loops or timeBudgetMillis, whichever applies first; pass
+   ** FeedbackLoopEnumerator.NO_LIMIT to lift a limit. The loops are all kept,
+   ** so on large networks keep maxCount bounded, or stream the loops with a
+   ** FeedbackLoopEnumerator instead. If several model links join the same
+   ** two nodes, the loop uses the last one.
+   */
+
+  public List<FeedbackLoop> findFeedbackLoops(int maxLength, long maxCount, long timeBudgetMillis) {
+    final ModelGraph modelGraph = currentModelGraph();
+    FeedbackLoopEnumerator enumerator = new FeedbackLoopEnumerator(modelGraph.getComponents(), modelGraph.getEdgeSigns());
+    enumerator.setMaxLength(maxLength);
+    enumerator.setMaxCount(maxCount);
+    enumerator.setTimeBudget(timeBudgetMillis);
+
+    final List<FeedbackLoop> result = new ArrayList<FeedbackLoop>();
+    enumerator.enumerate(new FeedbackLoopHandler() {
+      public boolean handleLoop(int[] edges, int length, FeedbackLoopEnumerator.Polarity polarity) {
+        List<ModelLink> links = new ArrayList<ModelLink>(length);
+        for (int i = 0; i < length; i++) {
+          links.add(modelGraph.modelLinks[edges[i]]);
+        }
+        result.add(new FeedbackLoop(links, polarity));
+        return true;
+      }
+    });
     return result;
   }
 
+  /***************************************************************************
+   **
+   ** Finds up to k shortest simple regulatory paths from one node to another,
+   ** shortest first, optionally restricted to paths of the given overall sign.
+   ** Returns an empty list if either node is not in the root model.
+   */
+
+  public List<List<ModelLink>> findRegulatoryPaths(String srcID, String trgID, int k, RegulatoryPathFinder.PathSign sign) {
+    ModelGraph modelGraph = currentModelGraph();
+    List<List<ModelLink>> result = new ArrayList<List<ModelLink>>();
+    int source = modelGraph.graph.getNodeIndex(srcID);
+    int target = modelGraph.graph.getNodeIndex(trgID);
+    if (source == -1 || target == -1) {
+      return result;
+    }
+
+    for (int[] path : modelGraph.getPathFinder().findShortestPaths(source, target, k, sign)) {
+      List<ModelLink> links = new ArrayList<ModelLink>(path.length);
+      for (int edge : path) {
+        links.add(modelGraph.modelLinks[edge]);
+      }
+      result.add(links);
+    }
+    return result;
+  }
+
+  /***************************************************************************
+   **
+   ** Counts feed-forward loops, bi-fans and mutual regulation pairs in the
+   ** root model, using the parallelism set on this analysis.
+   */
+
+  public NetworkMotifCounter.MotifCounts countNetworkMotifs() {
+    ModelGraph modelGraph = currentModelGraph();
+    NetworkMotifCounter counter = new NetworkMotifCounter(modelGraph.graph, modelGraph.getEdgeSigns());
+    counter.setParallelism(parallelism_);
+    counter.setPool(pool_);
+    return counter.count();
+  }
+
+  /***************************************************************************
+   **
+   ** Builds a reachability index of the root model, for upstream and
+   ** downstream queries. Node indices are those of index.getGraph().
+   */
+
+  public ReachabilityIndex buildReachabilityIndex() {
+    return new ReachabilityIndex(currentModelGraph().getComponents());
+  }
+
+  /***************************************************************************
+   **
+   ** Finds links that lie on at least one cycle, i.e. links whose ends are in
+   ** the same strongly connected component.
+   */
+
+  public Set<ModelLink> findIntraComponentLinks() {
+    ModelGraph modelGraph = currentModelGraph();
+    return toModelLinks(modelGraph, modelGraph.getComponents().getIntraComponentEdges());
+  }
+
   /***************************************************************************
    **
    ** Finds root nodes
    */
   public Set<String> findRootModelRootNodeIDs() {
-    HashSet<String> retval = new HashSet<String>();
+    return new HashSet<String>(findRootNodeIDs(currentModelGraph()));
+  }
+
+  /***************************************************************************
+   **
+   ** Root nodes are model nodes without inbound links, in graph index order.
+   */
+
+  private List<String> findRootNodeIDs(ModelGraph modelGraph) {
+    synchronized (modelGraph) {
+      if (modelGraph.rootNodeIDs != null) {
+        return modelGraph.rootNodeIDs;
+      }
+      List<String> retval = new ArrayList<String>();
+      CompactGraph graph = modelGraph.graph;
+
+      for (int node = 0; node < modelGraph.modelNodeCount; node++) {
+        if (graph.getInDegree(node) == 0) {
+          retval.add(graph.getNodeID(node));
+        }
+      }
+
+      modelGraph.rootNodeIDs = retval;
+      return retval;
+    }
+  }
+
+  /***************************************************************************
+   **
+   ** Same as findFeedbackEdges(modelGraph, strategy), computed once per
+   ** snapshot. The lock is held while computing, so a second thread waits
+   ** for the result instead of repeating the search. Pool workers of the
+   ** ROOT_DFS search never take it.
+   */
+
+  private int[] cachedFeedbackEdges(ModelGraph modelGraph, FeedbackStrategy strategy) {
+    synchronized (modelGraph) {
+      int[] edges = modelGraph.feedbackEdges.get(strategy);
+      if (edges == null) {
+        edges = findFeedbackEdges(modelGraph, strategy);
+        modelGraph.feedbackEdges.put(strategy, edges);
+      }
+      return edges;
+    }
+  }
+
+  /***************************************************************************
+   **
+   ** Returns the IDs of the feedback edges chosen by a strategy.
+   */
+
+  private int[] findFeedbackEdges(ModelGraph modelGraph, FeedbackStrategy strategy) {
+    CompactGraph graph = modelGraph.graph;
+    GraphFeedbackFinder feedbackFinder = new GraphFeedbackFinder(graph);
+
+    switch (strategy) {
+      case ROOT_DFS:
+        if (pool_ != null) {
+          return toEdges(graph, feedbackFinder.runParallel(findRootNodeIDs(modelGraph), pool_));
+        }
+        return toEdges(graph, feedbackFinder.runParallel(findRootNodeIDs(modelGraph), parallelism_));
+      case ROOT_DFS_SINGLE_PASS:
+        return toEdges(graph, feedbackFinder.runSinglePass(findRootNodeIDs(modelGraph)));
+      case COMPONENT_DFS:
+        return feedbackFinder.findComponentBackEdges(modelGraph.getComponents());
+      case EADES_LIN_SMYTH:
+        return new EadesFeedbackArcSet(graph).findFeedbackEdges(modelGraph.getComponents());
+      default:
+        throw new IllegalArgumentException();
+    }
+  }
+
+  /***************************************************************************
+   **
+   ** Starts the incremental tracker from the current snapshot, with every
+   ** model link read recorded behind its link.
+   */
+
+  private void startFeedbackTracker() {
+    ModelGraph modelGraph = currentModelGraph();
+    feedbackTracker_ = new IncrementalFeedbackTracker(modelGraph.graph);
+    trackedModelLinks_ = new HashMap<Link, List<ModelLink>>();
+    for (ModelLink modelLink : modelGraph.sourceLinks) {
+      Link link = new Link(modelLink.getSrc(), modelLink.getTrg());
+      List<ModelLink> behind = trackedModelLinks_.get(link);
+      if (behind == null) {
+        behind = new ArrayList<ModelLink>(1);
+        trackedModelLinks_.put(link, behind);
+      }
+      behind.add(modelLink);
+    }
+  }
 
-    for (Iterator<ModelNode> nodeIter = mSrc_.getRootModelNodes(); nodeIter.hasNext();) {
-      ModelNode node = nodeIter.next();
-      String id = node.getUniqueInternalID();
-      retval.add(id);
+  /***************************************************************************
+   **
+   ** The tracker's feedback links as model links. As in the snapshot, a link
+   ** with several model links behind it maps to the last one.
+   */
+
+  private Set<ModelLink> trackedFeedbackLinks() {
+    Set<ModelLink> result = new HashSet<ModelLink>();
+    for (Link link : feedbackTracker_.getFeedbackLinks()) {
+      List<ModelLink> behind = trackedModelLinks_.get(link);
+      result.add(behind.get(behind.size() - 1));
     }
+    return result;
+  }
 
-    for (Iterator<ModelLink> linkIter = mSrc_.getRootModelLinks(); linkIter.hasNext();) {
-      ModelLink modelLink = linkIter.next();
-      retval.remove(modelLink.getTrg());
+  private int[] toEdges(CompactGraph graph, Set<Link> links) {
+    int[] result = new int[links.size()];
+    int count = 0;
+    for (Link link : links) {
+      result[count++] = graph.findEdge(graph.getNodeIndex(link.getSrc()), graph.getNodeIndex(link.getTrg()));
     }
+    return result;
+  }
 
-    return retval;
+  private Set<ModelLink> toModelLinks(ModelGraph modelGraph, int[] edges) {
+    Set<ModelLink> result = new HashSet<ModelLink>();
+    for (int edge : edges) {
+      result.add(modelGraph.modelLinks[edge]);
+    }
+    return result;
+  }
+
+  /***************************************************************************
+   **
+   ** Returns the graph snapshot of the root model. A VersionedModelSource
+   ** whose version has not changed since the last call is not read at all.
+   ** Otherwise the source is read in one pass, unless it is a ModelSnapshot,
+   ** which already holds its node IDs and links. If they are exactly the ones
+   ** the snapshot was built from, the snapshot and its cached results are
+   ** reused; otherwise a new snapshot replaces them.
+   */
+
+  private synchronized ModelGraph currentModelGraph() {
+    boolean versioned = (mSrc_ instanceof VersionedModelSource);
+    long version = 0L;
+    if (versioned) {
+      version = ((VersionedModelSource)mSrc_).getModelVersion();
+      if ((snapshot_ != null) && (mSrc_ == versionSource_) && (version == version_)) {
+        return snapshot_;
+      }
+    }
+
+    List<String> nodes;
+    List<ModelLink> modelLinks;
+    if (mSrc_ instanceof ModelSnapshot) {
+      ModelSnapshot model = (ModelSnapshot)mSrc_;
+      nodes = model.getNodeIDs();
+      modelLinks = model.getLinks();
+    }
+    else {
+      nodes = new ArrayList<String>();
+      for (Iterator<ModelNode> nodeIter = mSrc_.getRootModelNodes(); nodeIter.hasNext();) {
+        nodes.add(nodeIter.next().getUniqueInternalID());
+      }
+      modelLinks = new ArrayList<ModelLink>();
+      for (Iterator<ModelLink> linkIter = mSrc_.getRootModelLinks(); linkIter.hasNext();) {
+        modelLinks.add(linkIter.next());
+      }
+    }
+
+    if ((snapshot_ == null) || !snapshot_.isBuiltFrom(nodes, modelLinks)) {
+      snapshot_ = buildModelGraph(nodes, modelLinks);
+    }
+    versionSource_ = (versioned) ? mSrc_ : null;
+    version_ = version;
+    return snapshot_;
+  }
+
+  /***************************************************************************
+   **
+   ** Builds the snapshot. Model nodes get the first indices; if there are
+   ** several model links between the same pair of nodes, the edge maps to
+   ** the last one.
+   */
+
+  private ModelGraph buildModelGraph(List<String> nodes, List<ModelLink> modelLinks) {
+    List<Link> links = new ArrayList<Link>(modelLinks.size());
+    for (ModelLink modelLink : modelLinks) {
+      links.add(new Link(modelLink.getSrc(), modelLink.getTrg()));
+    }
+
+    int[] edgeForLink = new int[links.size()];
+    CompactGraph graph = new CompactGraph(nodes, links, true, edgeForLink);
+
+    ModelLink[] modelLinkForEdge = new ModelLink[graph.getEdgeCount()];
+    for (int i = 0; i < edgeForLink.length; i++) {
+      modelLinkForEdge[edgeForLink[i]] = modelLinks.get(i);
+    }
+
+    ModelGraph modelGraph = new ModelGraph(graph, modelLinkForEdge, new HashSet<String>(nodes).size());
+    modelGraph.recordContent(nodes, modelLinks);
+    return modelGraph;
+  }
+
+  /***************************************************************************
+   **
+   ** A graph snapshot of the root model, with the model link behind each edge
+   */
+
+  private static class ModelGraph {
+    final CompactGraph graph;
+    final ModelLink[] modelLinks;
+    final int modelNodeCount;
+
+    // Node IDs, and links with their IDs, ends and signs in source order, as read
+    String[] nodeIDs;
+    ModelLink[] sourceLinks;
+    String[] linkFields;
+    ModelLink.Sign[] linkSigns;
+
+    // Results computed from this snapshot, filled in on first use. A
+    // snapshot may be shared by threads of a conversion, so these are only
+    // read and written while holding its lock.
+    StronglyConnectedComponents components;
+    byte[] edgeSigns;
+    RegulatoryPathFinder pathFinder;
+    List<String> rootNodeIDs;
+    final EnumMap<FeedbackStrategy, int[]> feedbackEdges;
+    final EnumMap<FeedbackStrategy, TopologicalLayering> layerings;
+
+    ModelGraph(CompactGraph graph, ModelLink[] modelLinks, int modelNodeCount) {
+      this.graph = graph;
+      this.modelLinks = modelLinks;
+      this.modelNodeCount = modelNodeCount;
+      this.feedbackEdges = new EnumMap<FeedbackStrategy, int[]>(FeedbackStrategy.class);
+      this.layerings = new EnumMap<FeedbackStrategy, TopologicalLayering>(FeedbackStrategy.class);
+    }
+
+    void recordContent(List<String> nodes, List<ModelLink> links) {
+      nodeIDs = nodes.toArray(new String[nodes.size()]);
+      sourceLinks = links.toArray(new ModelLink[links.size()]);
+      linkFields = new String[3 * links.size()];
+      linkSigns = new ModelLink.Sign[links.size()];
+      for (int i = 0; i < linkSigns.length; i++) {
+        ModelLink link = links.get(i);
+        linkFields[3 * i] = link.getUniqueInternalID();
+        linkFields[3 * i + 1] = link.getSrc();
+        linkFields[3 * i + 2] = link.getTrg();
+        linkSigns[i] = link.getSign();
+      }
+    }
+
+    /**
+     * True if the nodes and links are exactly the ones this snapshot was
+     * built from, in the same order. Fields are compared rather than link
+     * objects, in case a host edits its links in place.
+     */
+    boolean isBuiltFrom(List<String> nodes, List<ModelLink> links) {
+      if ((nodes.size() != nodeIDs.length) || (links.size() != linkSigns.length)) {
+        return false;
+      }
+      for (int i = 0; i < nodeIDs.length; i++) {
+        if (!same(nodeIDs[i], nodes.get(i))) {
+          return false;
+        }
+      }
+      for (int i = 0; i < linkSigns.length; i++) {
+        ModelLink link = links.get(i);
+        if (!same(linkFields[3 * i], link.getUniqueInternalID()) ||
+            !same(linkFields[3 * i + 1], link.getSrc()) ||
+            !same(linkFields[3 * i + 2], link.getTrg()) ||
+            (linkSigns[i] != link.getSign())) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private static boolean same(String first, String second) {
+      return (first == null) ? (second == null) : first.equals(second);
+    }
+
+    synchronized StronglyConnectedComponents getComponents() {
+      if (components == null) {
+        components = new StronglyConnectedComponents(graph);
+      }
+      return components;
+    }
+
+    synchronized byte[] getEdgeSigns() {
+      if (edgeSigns == null) {
+        edgeSigns = new byte[graph.getEdgeCount()];
+        for (int edge = 0; edge < edgeSigns.length; edge++) {
+          ModelLink.Sign sign = modelLinks[edge].getSign();
+          if (sign == ModelLink.Sign.POSITIVE) {
+            edgeSigns[edge] = FeedbackLoopEnumerator.SIGN_POSITIVE;
+          }
+          else if (sign == ModelLink.Sign.NEGATIVE) {
+            edgeSigns[edge] = FeedbackLoopEnumerator.SIGN_NEGATIVE;
+          }
+          else {
+            edgeSigns[edge] = FeedbackLoopEnumerator.SIGN_NONE;
+          }
+        }
+      }
+      return edgeSigns;
+    }
+
+    synchronized RegulatoryPathFinder getPathFinder() {
+      if (pathFinder == null) {
+        pathFinder = new RegulatoryPathFinder(graph, getEdgeSigns());
+      }
+      return pathFinder;
+    }
   }
 }
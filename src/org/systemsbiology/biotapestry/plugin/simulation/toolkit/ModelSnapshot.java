@@ -0,0 +1,245 @@
+/*
+**    Copyright (C) 2003-2015 Institute for Systems Biology
+**                            Seattle, Washington, USA.
+**
+**    This library is free software; you can redistribute it and/or
+**    modify it under the terms of the GNU Lesser General Public
+**    License as published by the Free Software Foundation; either
+**    version 2.1 of the License, or (at your option) any later version.
+**
+**    This library is distributed in the hope that it will be useful,
+**    but WITHOUT ANY WARRANTY; without even the implied warranty of
+**    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+**    Lesser General Public License for more details.
+**
+**    You should have received a copy of the GNU Lesser General Public
+**    License along with this library; if not, write to the Free Software
+**    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package org.systemsbiology.biotapestry.plugin.simulation.toolkit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.systemsbiology.biotapestry.simulation.ModelExpressionEntry;
+import org.systemsbiology.biotapestry.simulation.ModelLink;
+import org.systemsbiology.biotapestry.simulation.ModelNode;
+import org.systemsbiology.biotapestry.simulation.ModelRegion;
+import org.systemsbiology.biotapestry.simulation.ModelRegionTopologyForTime;
+import org.systemsbiology.biotapestry.simulation.ModelSource;
+
+/***************************************************************************
+ *
+ * Immutable copy of the root model of a ModelSource, read in one pass:
+ * nodes, links with their ends resolved to node indices, regions with their
+ * lineage, region topology windows, and the expression genes and times.
+ * Everything a conversion asks for more than once is answered from the
+ * copy, so its cost no longer depends on the host's iterators.
+ *
+ * Expression entries are not copied; getExpressionEntry() reads through to
+ * the source, as ExpressionCube already loads them once per conversion.
+ * Selection is passed through to the source as well. Feedback edges are
+ * found on the snapshot itself.
+ *
+ */
+public class ModelSnapshot implements VersionedModelSource {
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PRIVATE VARIABLES
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    private ModelSource source_;
+
+    private List<ModelNode> nodes_;
+    private List<String> nodeIDs_;
+    private Map<String, Integer> nodeIndex_;
+
+    private List<ModelLink> links_;
+    // Node index of each link's ends, or -1 if the end is not a root model node
+    private int[] linkSources_;
+    private int[] linkTargets_;
+
+    private List<ModelRegion> regions_;
+    private Map<String, ModelRegion> regionsByName_;
+    private List<ModelRegionTopologyForTime> topology_;
+
+    private Set<String> expressionGenes_;
+    private SortedSet<Integer> expressionTimes_;
+
+    private Set<ModelLink> feedbackEdges_;
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PUBLIC CONSTRUCTORS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    public ModelSnapshot(ModelSource source) {
+        source_ = source;
+
+        List<ModelNode> nodes = new ArrayList<ModelNode>();
+        List<String> nodeIDs = new ArrayList<String>();
+        nodeIndex_ = new HashMap<String, Integer>();
+        for (Iterator<ModelNode> nit = source.getRootModelNodes(); nit.hasNext();) {
+            ModelNode node = nit.next();
+            nodeIndex_.put(node.getUniqueInternalID(), Integer.valueOf(nodes.size()));
+            nodes.add(node);
+            nodeIDs.add(node.getUniqueInternalID());
+        }
+        nodes_ = Collections.unmodifiableList(nodes);
+        nodeIDs_ = Collections.unmodifiableList(nodeIDs);
+
+        List<ModelLink> links = new ArrayList<ModelLink>();
+        for (Iterator<ModelLink> lit = source.getRootModelLinks(); lit.hasNext();) {
+            links.add(lit.next());
+        }
+        links_ = Collections.unmodifiableList(links);
+        linkSources_ = new int[links.size()];
+        linkTargets_ = new int[links.size()];
+        for (int i = 0; i < links.size(); i++) {
+            linkSources_[i] = getNodeIndex(links.get(i).getSrc());
+            linkTargets_[i] = getNodeIndex(links.get(i).getTrg());
+        }
+
+        regions_ = Collections.unmodifiableList(new ArrayList<ModelRegion>(source.getRegions()));
+        regionsByName_ = new HashMap<String, ModelRegion>();
+        for (ModelRegion region : regions_) {
+            regionsByName_.put(region.getRegionName(), region);
+        }
+
+        List<ModelRegionTopologyForTime> topology = new ArrayList<ModelRegionTopologyForTime>();
+        for (Iterator<ModelRegionTopologyForTime> tit = source.getRegionTopology(); tit.hasNext();) {
+            topology.add(tit.next());
+        }
+        topology_ = Collections.unmodifiableList(topology);
+
+        expressionGenes_ = Collections.unmodifiableSet(new HashSet<String>(source.getExpressionGenes()));
+        expressionTimes_ = Collections.unmodifiableSortedSet(new TreeSet<Integer>(source.getExpressionTimes()));
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PUBLIC METHODS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    public ModelSource getSource() {
+        return source_;
+    }
+
+    public int getNodeCount() {
+        return nodes_.size();
+    }
+
+    public int getLinkCount() {
+        return links_.size();
+    }
+
+    /**
+     * Root model nodes in source order.
+     */
+    public List<ModelNode> getNodes() {
+        return nodes_;
+    }
+
+    public List<String> getNodeIDs() {
+        return nodeIDs_;
+    }
+
+    /**
+     * Index of a root model node in getNodes(), or -1 if there is none.
+     * If the source repeats an ID, the last node wins.
+     */
+    public int getNodeIndex(String nodeID) {
+        Integer index = nodeIndex_.get(nodeID);
+        return (index == null) ? -1 : index.intValue();
+    }
+
+    /**
+     * Root model links in source order.
+     */
+    public List<ModelLink> getLinks() {
+        return links_;
+    }
+
+    public int getLinkSource(int link) {
+        return linkSources_[link];
+    }
+
+    public int getLinkTarget(int link) {
+        return linkTargets_[link];
+    }
+
+    /**
+     * Region by name, or null if there is none.
+     */
+    public ModelRegion getRegion(String regionName) {
+        return regionsByName_.get(regionName);
+    }
+
+    public List<ModelRegionTopologyForTime> getTopologyWindows() {
+        return topology_;
+    }
+
+    /**
+     * A snapshot never changes, so its version is constant. A new snapshot
+     * is a new source, which ModelGraphAnalysis compares by content.
+     */
+    public long getModelVersion() {
+        return 0L;
+    }
+
+    public Iterator<ModelNode> getRootModelNodes() {
+        return nodes_.iterator();
+    }
+
+    public Iterator<ModelLink> getRootModelLinks() {
+        return links_.iterator();
+    }
+
+    public ModelNode getNode(String nodeID) {
+        int index = getNodeIndex(nodeID);
+        return (index < 0) ? null : nodes_.get(index);
+    }
+
+    public Iterator<ModelRegionTopologyForTime> getRegionTopology() {
+        return topology_.iterator();
+    }
+
+    public List<ModelRegion> getRegions() {
+        return regions_;
+    }
+
+    public Set<String> getExpressionGenes() {
+        return expressionGenes_;
+    }
+
+    public SortedSet<Integer> getExpressionTimes() {
+        return expressionTimes_;
+    }
+
+    public ModelExpressionEntry getExpressionEntry(String gene, String region, int time) {
+        return source_.getExpressionEntry(gene, region, time);
+    }
+
+    public synchronized Set<ModelLink> findFeedbackEdges() {
+        if (feedbackEdges_ == null) {
+            feedbackEdges_ = Collections.unmodifiableSet(new ModelGraphAnalysis(this).findFeedbackEdges());
+        }
+        return feedbackEdges_;
+    }
+
+    public void goToModelAndSelect(String modelID, Set<String> nodeIDs, Set<String> linkIDs) {
+        source_.goToModelAndSelect(modelID, nodeIDs, linkIDs);
+    }
+}
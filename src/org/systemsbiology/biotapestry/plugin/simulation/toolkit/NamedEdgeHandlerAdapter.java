@@ -0,0 +1,45 @@
+/*
+**    Copyright (C) 2003-2015 Institute for Systems Biology
+**                            Seattle, Washington, USA.
+**
+**    This library is free software; you can redistribute it and/or
+**    modify it under the terms of the GNU Lesser General Public
+**    License as published by the Free Software Foundation; either
+**    version 2.1 of the License, or (at your option) any later version.
+**
+**    This library is distributed in the hope that it will be useful,
+**    but WITHOUT ANY WARRANTY; without even the implied warranty of
+**    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+**    Lesser General Public License for more details.
+**
+**    You should have received a copy of the GNU Lesser General Public
+**    License along with this library; if not, write to the Free Software
+**    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package org.systemsbiology.biotapestry.plugin.simulation.toolkit;
+
+/***************************************************************************
+ *
+ * Passes indexed edge callbacks on to an EdgeClassifiedHandler, translating
+ * the node indices back to node IDs.
+ *
+ */
+public class NamedEdgeHandlerAdapter implements IndexedEdgeHandler {
+    private static final ModelDepthFirstSearcher.EdgeType[] EDGE_TYPES = ModelDepthFirstSearcher.EdgeType.values();
+
+    private CompactGraph graph_;
+    private EdgeClassifiedHandler handler_;
+
+    public NamedEdgeHandlerAdapter(CompactGraph graph, EdgeClassifiedHandler handler) {
+        graph_ = graph;
+        handler_ = handler;
+    }
+
+    public void handleEdgeClassified(int source, int target, int typeOrdinal) {
+        handler_.handleEdgeClassified(graph_.getNodeID(source), graph_.getNodeID(target), EDGE_TYPES[typeOrdinal]);
+    }
+
+    public EdgeClassifiedHandler getHandler() {
+        return handler_;
+    }
+}
@@ -0,0 +1,326 @@
+/*
+**    Copyright (C) 2003-2015 Institute for Systems Biology
+**                            Seattle, Washington, USA.
+**
+**    This library is free software; you can redistribute it and/or
+**    modify it under the terms of the GNU Lesser General Public
+**    License as published by the Free Software Foundation; either
+**    version 2.1 of the License, or (at your option) any later version.
+**
+**    This library is distributed in the hope that it will be useful,
+**    but WITHOUT ANY WARRANTY; without even the implied warranty of
+**    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+**    Lesser General Public License for more details.
+**
+**    You should have received a copy of the GNU Lesser General Public
+**    License along with this library; if not, write to the Free Software
+**    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package org.systemsbiology.biotapestry.plugin.simulation.toolkit;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/***************************************************************************
+ *
+ * Counts small network motifs in a CompactGraph: feed-forward loops, bi-fans
+ * and mutual regulation pairs (Milo et al. 2002). Occurrences are counted as
+ * subgraphs, not induced subgraphs, so a feed-forward loop whose nodes carry
+ * extra links still counts. Self loops never take part in a motif.
+ *
+ * Every motif is counted from one designated source node: the regulator at
+ * the top of a feed-forward loop, the lower numbered regulator of a bi-fan
+ * and the lower numbered node of a mutual pair. Each source is handled with
+ * marker arrays over its neighbors, so sources split cleanly across threads.
+ *
+ * Feed-forward loops are classified by the FeedbackLoopEnumerator signs of
+ * their links (Mangan and Alon 2003): coherent if the direct link has the
+ * sign of the indirect path, incoherent if not, and undetermined if any of
+ * the three links is unsigned.
+ *
+ */
+public class NetworkMotifCounter {
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PUBLIC CLASSES
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    public static class MotifCounts {
+        private long coherentFeedForwardLoops_;
+        private long incoherentFeedForwardLoops_;
+        private long undeterminedFeedForwardLoops_;
+        private long biFans_;
+        private long mutualPairs_;
+
+        public long getFeedForwardLoops() {
+            return coherentFeedForwardLoops_ + incoherentFeedForwardLoops_ + undeterminedFeedForwardLoops_;
+        }
+
+        public long getCoherentFeedForwardLoops() {
+            return coherentFeedForwardLoops_;
+        }
+
+        public long getIncoherentFeedForwardLoops() {
+            return incoherentFeedForwardLoops_;
+        }
+
+        public long getUndeterminedFeedForwardLoops() {
+            return undeterminedFeedForwardLoops_;
+        }
+
+        public long getBiFans() {
+            return biFans_;
+        }
+
+        public long getMutualPairs() {
+            return mutualPairs_;
+        }
+
+        public String toString() {
+            return "feed-forward loops: " + getFeedForwardLoops() +
+                   " (coherent " + coherentFeedForwardLoops_ +
+                   ", incoherent " + incoherentFeedForwardLoops_ +
+                   ", undetermined " + undeterminedFeedForwardLoops_ +
+                   "), bi-fans: " + biFans_ +
+                   ", mutual pairs: " + mutualPairs_;
+        }
+
+        void add(MotifCounts other) {
+            coherentFeedForwardLoops_ += other.coherentFeedForwardLoops_;
+            incoherentFeedForwardLoops_ += other.incoherentFeedForwardLoops_;
+            undeterminedFeedForwardLoops_ += other.undeterminedFeedForwardLoops_;
+            biFans_ += other.biFans_;
+            mutualPairs_ += other.mutualPairs_;
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PRIVATE VARIABLES
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    // Smallest number of sources one parallel task handles
+    private static final int MIN_TASK_SOURCES = 256;
+
+    private CompactGraph graph_;
+    private byte[] edgeSigns_;
+    private int parallelism_;
+    private ForkJoinPool pool_;
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PUBLIC CONSTRUCTORS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    public NetworkMotifCounter(CompactGraph graph) {
+        this(graph, null);
+    }
+
+    /***************************************************************************
+     **
+     ** Signs are indexed by edge ID and hold FeedbackLoopEnumerator.SIGN_POSITIVE,
+     ** SIGN_NEGATIVE or SIGN_NONE. Without signs every feed-forward loop is
+     ** undetermined.
+     */
+
+    public NetworkMotifCounter(CompactGraph graph, byte[] edgeSigns) {
+        graph_ = graph;
+        edgeSigns_ = edgeSigns;
+        parallelism_ = 1;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PUBLIC METHODS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    /***************************************************************************
+     **
+     ** Number of threads count() uses; 1 counts on the calling thread.
+     */
+
+    public void setParallelism(int parallelism) {
+        parallelism_ = Math.max(1, parallelism);
+    }
+
+    public int getParallelism() {
+        return parallelism_;
+    }
+
+    /***************************************************************************
+     **
+     ** Counts on a pool shared with other work instead of one of its own,
+     ** using the pool's parallelism. Null goes back to setParallelism().
+     */
+
+    public void setPool(ForkJoinPool pool) {
+        pool_ = pool;
+    }
+
+    public MotifCounts count() {
+        int nodeCount = graph_.getNodeCount();
+        int parallelism = (pool_ == null) ? parallelism_ : pool_.getParallelism();
+        if (parallelism <= 1 || nodeCount <= MIN_TASK_SOURCES) {
+            return countSources(0, nodeCount);
+        }
+
+        int grain = Math.max(MIN_TASK_SOURCES, nodeCount / (8 * parallelism));
+        CountTask task = new CountTask(0, nodeCount, grain);
+        if (pool_ != null) {
+            pool_.invoke(task);
+            return task.counts_;
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(task);
+        }
+        finally {
+            pool.shutdown();
+        }
+        return task.counts_;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PRIVATE INSTANCE METHODS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    /***************************************************************************
+     **
+     ** Counts the motifs whose designated source lies in [from, to).
+     */
+
+    private MotifCounts countSources(int from, int to) {
+        int nodeCount = graph_.getNodeCount();
+        MotifCounts counts = new MotifCounts();
+
+        // Edge from the current source to a node, valid if the mark matches
+        int[] mark = new int[nodeCount];
+        int[] edgeTo = new int[nodeCount];
+        // Targets shared with each later regulator, for bi-fans
+        int[] shared = new int[nodeCount];
+        IntList touched = new IntList();
+
+        for (int x = from; x < to; x++) {
+            int stamp = x + 1;
+            for (int e = graph_.getOutEdgeStart(x); e < graph_.getOutEdgeEnd(x); e++) {
+                int y = graph_.getEdgeTarget(e);
+                if (y != x) {
+                    mark[y] = stamp;
+                    edgeTo[y] = e;
+                }
+            }
+
+            for (int p = graph_.getInEdgeStart(x); p < graph_.getInEdgeEnd(x); p++) {
+                int w = graph_.getEdgeSource(graph_.getInEdge(p));
+                if (w > x && mark[w] == stamp) {
+                    counts.mutualPairs_++;
+                }
+            }
+
+            for (int xy = graph_.getOutEdgeStart(x); xy < graph_.getOutEdgeEnd(x); xy++) {
+                int y = graph_.getEdgeTarget(xy);
+                if (y == x) {
+                    continue;
+                }
+
+                //
+                // Feed-forward loops x -> y -> z with x -> z:
+                //
+
+                for (int yz = graph_.getOutEdgeStart(y); yz < graph_.getOutEdgeEnd(y); yz++) {
+                    int z = graph_.getEdgeTarget(yz);
+                    if (z != y && mark[z] == stamp) {
+                        classifyFeedForward(counts, xy, yz, edgeTo[z]);
+                    }
+                }
+
+                //
+                // Later regulators that share the target y:
+                //
+
+                for (int p = graph_.getInEdgeStart(y); p < graph_.getInEdgeEnd(y); p++) {
+                    int w = graph_.getEdgeSource(graph_.getInEdge(p));
+                    if (w > x && w != y) {
+                        if (shared[w] == 0) {
+                            touched.add(w);
+                        }
+                        shared[w]++;
+                    }
+                }
+            }
+
+            for (int i = 0; i < touched.size(); i++) {
+                int w = touched.get(i);
+                long common = shared[w];
+                counts.biFans_ += common * (common - 1) / 2;
+                shared[w] = 0;
+            }
+            touched.clear();
+        }
+        return counts;
+    }
+
+    private void classifyFeedForward(MotifCounts counts, int xy, int yz, int xz) {
+        if (edgeSigns_ == null) {
+            counts.undeterminedFeedForwardLoops_++;
+            return;
+        }
+        int indirect = edgeSigns_[xy] * edgeSigns_[yz];
+        int direct = edgeSigns_[xz];
+        if (indirect == FeedbackLoopEnumerator.SIGN_NONE || direct == FeedbackLoopEnumerator.SIGN_NONE) {
+            counts.undeterminedFeedForwardLoops_++;
+        }
+        else if (indirect == direct) {
+            counts.coherentFeedForwardLoops_++;
+        }
+        else {
+            counts.incoherentFeedForwardLoops_++;
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PRIVATE CLASSES
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    /***************************************************************************
+     **
+     ** Halves its range of sources until it is small enough to count directly.
+     */
+
+    private class CountTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private int from_;
+        private int to_;
+        private int grain_;
+        private MotifCounts counts_;
+
+        CountTask(int from, int to, int grain) {
+            from_ = from;
+            to_ = to;
+            grain_ = grain;
+        }
+
+        protected void compute() {
+            if (to_ - from_ <= grain_) {
+                counts_ = countSources(from_, to_);
+                return;
+            }
+            int mid = (from_ + to_) >>> 1;
+            CountTask left = new CountTask(from_, mid, grain_);
+            CountTask right = new CountTask(mid, to_, grain_);
+            invokeAll(left, right);
+            counts_ = left.counts_;
+            counts_.add(right.counts_);
+        }
+    }
+}
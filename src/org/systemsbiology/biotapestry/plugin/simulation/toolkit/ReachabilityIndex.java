@@ -0,0 +1,355 @@
+/*
+**    Copyright (C) 2003-2015 Institute for Systems Biology
+**                            Seattle, Washington, USA.
+**
+**    This library is free software; you can redistribute it and/or
+**    modify it under the terms of the GNU Lesser General Public
+**    License as published by the Free Software Foundation; either
+**    version 2.1 of the License, or (at your option) any later version.
+**
+**    This library is distributed in the hope that it will be useful,
+**    but WITHOUT ANY WARRANTY; without even the implied warranty of
+**    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+**    Lesser General Public License for more details.
+**
+**    You should have received a copy of the GNU Lesser General Public
+**    License along with this library; if not, write to the Free Software
+**    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package org.systemsbiology.biotapestry.plugin.simulation.toolkit;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Set;
+
+/***************************************************************************
+ *
+ * Answers "does X reach Y" and "what is upstream / downstream of X" for a
+ * CompactGraph without a fresh search per query.
+ *
+ * Nodes in one strongly connected component reach each other, so the index
+ * works on the condensation DAG. Every component gets interval labels from
+ * two depth first traversals of the condensation, in opposite child orders
+ * (the GRAIL scheme of Yildirim, Chaoji and Zaki, 2010): if c reaches d,
+ * d's interval lies inside c's in every labeling. Most negative queries are
+ * settled by the labels or by the topological component numbering in O(1).
+ * The rest fall back to a search of the condensation that skips every
+ * component whose labels rule it out.
+ *
+ * Building the index is O(V + E). Queries are not thread safe, since the
+ * fallback search shares its marks.
+ *
+ */
+public class ReachabilityIndex {
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PRIVATE VARIABLES
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    private static final int LABELINGS = 2;
+
+    private CompactGraph graph_;
+    private StronglyConnectedComponents components_;
+
+    // Component c has interval [lows_[k][c], ranks_[k][c]] in labeling k
+    private int[][] lows_;
+    private int[][] ranks_;
+
+    // Predecessors in the condensation, same layout as the successors
+    private int[] predecessorOffsets_;
+    private int[] predecessors_;
+
+    // Fallback search: marked if mark_[c] == epoch_
+    private int[] mark_;
+    private int epoch_;
+    private int[] stack_;
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PUBLIC CONSTRUCTORS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    public ReachabilityIndex(CompactGraph graph) {
+        this(new StronglyConnectedComponents(graph));
+    }
+
+    public ReachabilityIndex(StronglyConnectedComponents components) {
+        graph_ = components.getGraph();
+        components_ = components;
+        int componentCount = components.getComponentCount();
+
+        lows_ = new int[LABELINGS][];
+        ranks_ = new int[LABELINGS][];
+        for (int k = 0; k < LABELINGS; k++) {
+            label(k, (k % 2) == 1);
+        }
+        buildPredecessors();
+
+        mark_ = new int[componentCount];
+        epoch_ = 0;
+        stack_ = new int[componentCount];
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PUBLIC METHODS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    public CompactGraph getGraph() {
+        return graph_;
+    }
+
+    public StronglyConnectedComponents getComponents() {
+        return components_;
+    }
+
+    /***************************************************************************
+     **
+     ** Answers if there is a path of at least one link from source to target.
+     ** A node only reaches itself if it is on a cycle.
+     */
+
+    public boolean reaches(int source, int target) {
+        int from = components_.getComponent(source);
+        int to = components_.getComponent(target);
+
+        if (from == to) {
+            return (source != target) || components_.isCyclic(from);
+        }
+        if (from > to || !mayReach(from, to)) {
+            return false;
+        }
+
+        //
+        // Labels could not rule it out, so search. Only components that are
+        // numbered no later than the target and whose labels contain the
+        // target's need to be entered.
+        //
+
+        epoch_++;
+        int[] stack = stack_;
+        int top = 0;
+        stack[top++] = from;
+        mark_[from] = epoch_;
+
+        while (top > 0) {
+            int c = stack[--top];
+            for (int i = components_.getSuccessorStart(c); i < components_.getSuccessorEnd(c); i++) {
+                int succ = components_.getSuccessor(i);
+                if (succ == to) {
+                    return true;
+                }
+                if (mark_[succ] != epoch_ && succ < to && mayReach(succ, to)) {
+                    mark_[succ] = epoch_;
+                    stack[top++] = succ;
+                }
+            }
+        }
+        return false;
+    }
+
+    public boolean reaches(String sourceID, String targetID) {
+        int source = graph_.getNodeIndex(sourceID);
+        int target = graph_.getNodeIndex(targetID);
+        if (source == -1 || target == -1) {
+            return false;
+        }
+        return reaches(source, target);
+    }
+
+    /***************************************************************************
+     **
+     ** Returns the indices of all nodes the given node reaches by a path of at
+     ** least one link.
+     */
+
+    public BitSet getDownstreamNodes(int node) {
+        return collectCone(node, true);
+    }
+
+    /***************************************************************************
+     **
+     ** Returns the indices of all nodes that reach the given node by a path of
+     ** at least one link.
+     */
+
+    public BitSet getUpstreamNodes(int node) {
+        return collectCone(node, false);
+    }
+
+    public Set<String> getDownstreamNodeIDs(String nodeID) {
+        return toNodeIDs(nodeID, true);
+    }
+
+    public Set<String> getUpstreamNodeIDs(String nodeID) {
+        return toNodeIDs(nodeID, false);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PRIVATE INSTANCE METHODS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    /***************************************************************************
+     **
+     ** False means from certainly does not reach to. True means it might.
+     */
+
+    private boolean mayReach(int from, int to) {
+        for (int k = 0; k < LABELINGS; k++) {
+            if (lows_[k][to] < lows_[k][from] || ranks_[k][to] > ranks_[k][from]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /***************************************************************************
+     **
+     ** One labeling: a post order depth first traversal of the condensation.
+     ** A component's rank is its post order number, and its low is the
+     ** smallest rank below it. Components and successors are taken in
+     ** numbering order, or in reverse order if reversed is set.
+     */
+
+    private void label(int k, boolean reversed) {
+        int componentCount = components_.getComponentCount();
+        int[] low = new int[componentCount];
+        int[] rank = new int[componentCount];
+        boolean[] visited = new boolean[componentCount];
+        int[] pathComponents = new int[componentCount];
+        int[] pathNext = new int[componentCount];
+        int nextRank = 1;
+
+        for (int r = 0; r < componentCount; r++) {
+            int root = reversed ? (componentCount - 1 - r) : r;
+            if (visited[root]) {
+                continue;
+            }
+
+            int top = 0;
+            pathComponents[0] = root;
+            pathNext[0] = 0;
+            visited[root] = true;
+            low[root] = Integer.MAX_VALUE;
+
+            while (top >= 0) {
+                int c = pathComponents[top];
+                int start = components_.getSuccessorStart(c);
+                int count = components_.getSuccessorEnd(c) - start;
+                int i = pathNext[top];
+
+                if (i == count) {
+                    rank[c] = nextRank++;
+                    if (rank[c] < low[c]) {
+                        low[c] = rank[c];
+                    }
+                    top--;
+                    if (top >= 0) {
+                        int parent = pathComponents[top];
+                        if (low[c] < low[parent]) {
+                            low[parent] = low[c];
+                        }
+                    }
+                    continue;
+                }
+
+                pathNext[top] = i + 1;
+                int succ = components_.getSuccessor(reversed ? (start + count - 1 - i) : (start + i));
+                if (!visited[succ]) {
+                    visited[succ] = true;
+                    low[succ] = Integer.MAX_VALUE;
+                    top++;
+                    pathComponents[top] = succ;
+                    pathNext[top] = 0;
+                }
+                else if (low[succ] < low[c]) {
+                    low[c] = low[succ];
+                }
+            }
+        }
+
+        lows_[k] = low;
+        ranks_[k] = rank;
+    }
+
+    private void buildPredecessors() {
+        int componentCount = components_.getComponentCount();
+        predecessorOffsets_ = new int[componentCount + 1];
+        for (int c = 0; c < componentCount; c++) {
+            for (int i = components_.getSuccessorStart(c); i < components_.getSuccessorEnd(c); i++) {
+                predecessorOffsets_[components_.getSuccessor(i) + 1]++;
+            }
+        }
+        for (int c = 0; c < componentCount; c++) {
+            predecessorOffsets_[c + 1] += predecessorOffsets_[c];
+        }
+
+        predecessors_ = new int[predecessorOffsets_[componentCount]];
+        int[] fill = Arrays.copyOf(predecessorOffsets_, componentCount);
+        for (int c = 0; c < componentCount; c++) {
+            for (int i = components_.getSuccessorStart(c); i < components_.getSuccessorEnd(c); i++) {
+                predecessors_[fill[components_.getSuccessor(i)]++] = c;
+            }
+        }
+    }
+
+    /***************************************************************************
+     **
+     ** Walks the condensation from the node's component, then expands the
+     ** components reached into their member nodes. The node's own component
+     ** is included only if it is cyclic.
+     */
+
+    private BitSet collectCone(int node, boolean downstream) {
+        int componentCount = components_.getComponentCount();
+        int origin = components_.getComponent(node);
+        BitSet reached = new BitSet(componentCount);
+        int[] stack = new int[componentCount];
+        int top = 0;
+        stack[top++] = origin;
+
+        while (top > 0) {
+            int c = stack[--top];
+            int start = downstream ? components_.getSuccessorStart(c) : predecessorOffsets_[c];
+            int end = downstream ? components_.getSuccessorEnd(c) : predecessorOffsets_[c + 1];
+            for (int i = start; i < end; i++) {
+                int next = downstream ? components_.getSuccessor(i) : predecessors_[i];
+                if (!reached.get(next)) {
+                    reached.set(next);
+                    stack[top++] = next;
+                }
+            }
+        }
+        if (components_.isCyclic(origin)) {
+            reached.set(origin);
+        }
+
+        BitSet result = new BitSet(graph_.getNodeCount());
+        for (int c = reached.nextSetBit(0); c >= 0; c = reached.nextSetBit(c + 1)) {
+            for (int member : components_.getComponentMembers(c)) {
+                result.set(member);
+            }
+        }
+        return result;
+    }
+
+    private Set<String> toNodeIDs(String nodeID, boolean downstream) {
+        Set<String> result = new HashSet<String>();
+        int node = graph_.getNodeIndex(nodeID);
+        if (node == -1) {
+            return result;
+        }
+        BitSet cone = collectCone(node, downstream);
+        for (int v = cone.nextSetBit(0); v >= 0; v = cone.nextSetBit(v + 1)) {
+            result.add(graph_.getNodeID(v));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,548 @@
+/*
+**    Copyright (C) 2003-2015 Institute for Systems Biology
+**                            Seattle, Washington, USA.
+**
+**    This library is free software; you can redistribute it and/or
+**    modify it under the terms of the GNU Lesser General Public
+**    License as published by the Free Software Foundation; either
+**    version 2.1 of the License, or (at your option) any later version.
+**
+**    This library is distributed in the hope that it will be useful,
+**    but WITHOUT ANY WARRANTY; without even the implied warranty of
+**    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+**    Lesser General Public License for more details.
+**
+**    You should have received a copy of the GNU Lesser General Public
+**    License along with this library; if not, write to the Free Software
+**    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package org.systemsbiology.biotapestry.plugin.simulation.toolkit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/***************************************************************************
+ *
+ * Shortest regulatory paths between two nodes of a CompactGraph.
+ *
+ * A single shortest path is found with a bidirectional breadth first search
+ * that grows the smaller frontier one level at a time, which visits far
+ * fewer nodes than a one sided search on large networks. The k shortest
+ * simple paths are found with Yen's algorithm (1971), using the same search
+ * for every spur path.
+ *
+ * Paths can be restricted by sign, using the FeedbackLoopEnumerator sign
+ * constants for the edges: a POSITIVE path has an even number of repressing
+ * links, a NEGATIVE path an odd one, and unsigned links cannot be used. The
+ * search then runs over (node, parity) pairs. It finds the shortest route
+ * with the right sign; if that route passes a node twice, an iterative
+ * deepening depth first search looks for the shortest simple path of that
+ * sign instead, pruned by each pair's distance to the goal. That search
+ * gives up after SIMPLE_SEARCH_STEPS edge visits, so on very large, dense
+ * networks a signed query can still miss a path.
+ *
+ * Not thread safe: searches share their working arrays.
+ *
+ */
+public class RegulatoryPathFinder {
+
+    public enum PathSign {
+        ANY,
+        POSITIVE,
+        NEGATIVE,
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PRIVATE CONSTANTS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    // Edge visits allowed to one simple path search
+    private static final long SIMPLE_SEARCH_STEPS = 2000000L;
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PRIVATE VARIABLES
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    private CompactGraph graph_;
+    private byte[] edgeSigns_;
+
+    // Search space of the current query: a state is a node, or a node and a
+    // parity bit if the query has a sign
+    private boolean signed_;
+
+    // Per state; a state is labeled on a side if its stamp equals epoch_
+    private int[] forwardStamp_;
+    private int[] forwardDist_;
+    private int[] forwardEdge_;
+    private int[] backwardStamp_;
+    private int[] backwardDist_;
+    private int[] backwardEdge_;
+    private int epoch_;
+
+    // Bans for spur searches, active if the stamp equals banEpoch_
+    private int[] bannedNode_;
+    private int[] bannedEdge_;
+    private int banEpoch_;
+
+    // Depth first stack of the simple path search, allocated on first use
+    private int[] stackState_;
+    private int[] stackEdge_;
+    private int[] stackCursor_;
+    private boolean[] onPath_;
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PUBLIC CONSTRUCTORS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    public RegulatoryPathFinder(CompactGraph graph) {
+        this(graph, null);
+    }
+
+    /***************************************************************************
+     **
+     ** Signs are indexed by edge ID and hold FeedbackLoopEnumerator.SIGN_POSITIVE,
+     ** SIGN_NEGATIVE or SIGN_NONE. Without signs only PathSign.ANY queries
+     ** find anything.
+     */
+
+    public RegulatoryPathFinder(CompactGraph graph, byte[] edgeSigns) {
+        graph_ = graph;
+        edgeSigns_ = edgeSigns;
+        int stateCount = 2 * graph.getNodeCount();
+        forwardStamp_ = new int[stateCount];
+        forwardDist_ = new int[stateCount];
+        forwardEdge_ = new int[stateCount];
+        backwardStamp_ = new int[stateCount];
+        backwardDist_ = new int[stateCount];
+        backwardEdge_ = new int[stateCount];
+        bannedNode_ = new int[graph.getNodeCount()];
+        bannedEdge_ = new int[graph.getEdgeCount()];
+        epoch_ = 0;
+        banEpoch_ = 1;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PUBLIC METHODS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    public CompactGraph getGraph() {
+        return graph_;
+    }
+
+    /***************************************************************************
+     **
+     ** Returns the edge IDs of a shortest path from source to target, or null
+     ** if there is none. A node reaches itself by the empty path.
+     */
+
+    public int[] findShortestPath(int source, int target) {
+        return findShortestPath(source, target, PathSign.ANY);
+    }
+
+    public int[] findShortestPath(int source, int target, PathSign sign) {
+        List<int[]> paths = findShortestPaths(source, target, 1, sign);
+        return paths.isEmpty() ? null : paths.get(0);
+    }
+
+    /***************************************************************************
+     **
+     ** Returns up to k simple paths from source to target as arrays of edge
+     ** IDs, shortest first.
+     */
+
+    public List<int[]> findShortestPaths(int source, int target, int k, PathSign sign) {
+        List<int[]> found = new ArrayList<int[]>();
+        if (k <= 0) {
+            return found;
+        }
+        signed_ = (sign != PathSign.ANY);
+        int goalParity = (sign == PathSign.NEGATIVE) ? 1 : 0;
+
+        banEpoch_++;
+        int[] first = searchSimple(state(source, 0), state(target, goalParity));
+        if (first == null) {
+            return found;
+        }
+        found.add(first);
+
+        List<int[]> candidates = new ArrayList<int[]>();
+        while (found.size() < k) {
+            int[] previous = found.get(found.size() - 1);
+            int spurNode = source;
+            int spurParity = 0;
+
+            for (int i = 0; i < previous.length; i++) {
+                //
+                // Keep the first i edges, ban every way a known path with
+                // the same start leaves the spur node, and ban the nodes
+                // before it:
+                //
+
+                banEpoch_++;
+                for (int[] path : found) {
+                    if (path.length > i && sharesPrefix(path, previous, i)) {
+                        bannedEdge_[path[i]] = banEpoch_;
+                    }
+                }
+                int node = source;
+                for (int j = 0; j < i; j++) {
+                    bannedNode_[node] = banEpoch_;
+                    node = graph_.getEdgeTarget(previous[j]);
+                }
+
+                int[] spur = searchSimple(state(spurNode, spurParity), state(target, goalParity));
+                if (spur != null) {
+                    int[] candidate = Arrays.copyOf(previous, i + spur.length);
+                    System.arraycopy(spur, 0, candidate, i, spur.length);
+                    if (isSimple(source, candidate) && !contains(candidates, candidate) && !contains(found, candidate)) {
+                        candidates.add(candidate);
+                    }
+                }
+
+                spurParity ^= negative(previous[i]);
+                spurNode = graph_.getEdgeTarget(previous[i]);
+            }
+
+            if (candidates.isEmpty()) {
+                break;
+            }
+            int best = 0;
+            for (int c = 1; c < candidates.size(); c++) {
+                if (candidates.get(c).length < candidates.get(best).length) {
+                    best = c;
+                }
+            }
+            found.add(candidates.remove(best));
+        }
+        return found;
+    }
+
+    /***************************************************************************
+     **
+     ** Node IDs version of findShortestPaths(), returning links.
+     */
+
+    public List<List<Link>> findShortestPaths(String sourceID, String targetID, int k, PathSign sign) {
+        List<List<Link>> result = new ArrayList<List<Link>>();
+        int source = graph_.getNodeIndex(sourceID);
+        int target = graph_.getNodeIndex(targetID);
+        if (source == -1 || target == -1) {
+            return result;
+        }
+        for (int[] path : findShortestPaths(source, target, k, sign)) {
+            List<Link> links = new ArrayList<Link>(path.length);
+            for (int edge : path) {
+                links.add(graph_.getLink(edge));
+            }
+            result.add(links);
+        }
+        return result;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PRIVATE INSTANCE METHODS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    private int state(int node, int parity) {
+        return signed_ ? (2 * node + parity) : node;
+    }
+
+    private int nodeOf(int state) {
+        return signed_ ? (state >> 1) : state;
+    }
+
+    private int negative(int edge) {
+        return (signed_ && edgeSigns_[edge] == FeedbackLoopEnumerator.SIGN_NEGATIVE) ? 1 : 0;
+    }
+
+    /**
+     * Whether a search may use the edge, given the current bans and sign mode.
+     */
+    private boolean usable(int edge) {
+        if (bannedEdge_[edge] == banEpoch_) {
+            return false;
+        }
+        if (signed_ && (edgeSigns_ == null || edgeSigns_[edge] == FeedbackLoopEnumerator.SIGN_NONE)) {
+            return false;
+        }
+        return true;
+    }
+
+    /***************************************************************************
+     **
+     ** Bidirectional breadth first search between two states, avoiding banned
+     ** nodes and edges. Returns the edges of a shortest route, or null.
+     */
+
+    private int[] search(int start, int goal) {
+        if (bannedNode_[nodeOf(start)] == banEpoch_ || bannedNode_[nodeOf(goal)] == banEpoch_) {
+            return null;
+        }
+        if (start == goal) {
+            return new int[0];
+        }
+
+        epoch_++;
+        IntList forward = new IntList();
+        IntList backward = new IntList();
+        IntList next = new IntList();
+        label(forwardStamp_, forwardDist_, forwardEdge_, start, 0, -1);
+        label(backwardStamp_, backwardDist_, backwardEdge_, goal, 0, -1);
+        forward.add(start);
+        backward.add(goal);
+
+        int meet = -1;
+        while (meet == -1 && forward.size() > 0 && backward.size() > 0) {
+            next.clear();
+            if (forward.size() <= backward.size()) {
+                meet = expandForward(forward, next);
+                IntList swap = forward;
+                forward = next;
+                next = swap;
+            }
+            else {
+                meet = expandBackward(backward, next);
+                IntList swap = backward;
+                backward = next;
+                next = swap;
+            }
+        }
+        if (meet == -1) {
+            return null;
+        }
+
+        //
+        // Walk back to the start, then on to the goal:
+        //
+
+        int[] path = new int[forwardDist_[meet] + backwardDist_[meet]];
+        int s = meet;
+        for (int i = forwardDist_[meet] - 1; i >= 0; i--) {
+            int edge = forwardEdge_[s];
+            path[i] = edge;
+            s = state(graph_.getEdgeSource(edge), parityOf(s) ^ negative(edge));
+        }
+        s = meet;
+        for (int i = forwardDist_[meet]; i < path.length; i++) {
+            int edge = backwardEdge_[s];
+            path[i] = edge;
+            s = state(graph_.getEdgeTarget(edge), parityOf(s) ^ negative(edge));
+        }
+        return path;
+    }
+
+    /***************************************************************************
+     **
+     ** Shortest route between two states that passes no node twice, avoiding
+     ** banned nodes and edges, or null. Only signed routes can repeat a node;
+     ** if the breadth first route does, simple routes of its length and then
+     ** one edge longer at a time are searched depth first, skipping states
+     ** too far from the goal.
+     */
+
+    private int[] searchSimple(int start, int goal) {
+        int[] route = search(start, goal);
+        if (route == null || isSimple(nodeOf(start), route)) {
+            return route;
+        }
+
+        //
+        // Label every state with its distance to the goal, which bounds the
+        // length of any simple route through it from below:
+        //
+
+        epoch_++;
+        IntList level = new IntList();
+        IntList next = new IntList();
+        label(backwardStamp_, backwardDist_, backwardEdge_, goal, 0, -1);
+        level.add(goal);
+        while (level.size() > 0) {
+            next.clear();
+            expandBackward(level, next);
+            IntList swap = level;
+            level = next;
+            next = swap;
+        }
+
+        if (onPath_ == null) {
+            int nodeCount = graph_.getNodeCount();
+            stackState_ = new int[nodeCount];
+            stackEdge_ = new int[nodeCount];
+            stackCursor_ = new int[nodeCount];
+            onPath_ = new boolean[nodeCount];
+        }
+        long[] steps = new long[1];
+        for (int limit = route.length; limit < graph_.getNodeCount(); limit++) {
+            int[] path = deepen(start, goal, limit, steps);
+            if (path != null) {
+                return path;
+            }
+            if (steps[0] > SIMPLE_SEARCH_STEPS) {
+                break;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * One depth first pass for a simple route of at most limit edges. Adds
+     * its edge visits to steps, and stops early once they pass the budget.
+     */
+    private int[] deepen(int start, int goal, int limit, long[] steps) {
+        int depth = 0;
+        stackState_[0] = start;
+        stackCursor_[0] = graph_.getOutEdgeStart(nodeOf(start));
+        onPath_[nodeOf(start)] = true;
+        int[] result = null;
+
+        while (depth >= 0) {
+            int s = stackState_[depth];
+            int v = nodeOf(s);
+            if (s == goal) {
+                result = new int[depth];
+                System.arraycopy(stackEdge_, 1, result, 0, depth);
+                break;
+            }
+            if (steps[0] > SIMPLE_SEARCH_STEPS) {
+                break;
+            }
+            boolean advanced = false;
+            while (stackCursor_[depth] < graph_.getOutEdgeEnd(v)) {
+                int e = stackCursor_[depth]++;
+                steps[0]++;
+                int w = graph_.getEdgeTarget(e);
+                if (!usable(e) || bannedNode_[w] == banEpoch_ || onPath_[w]) {
+                    continue;
+                }
+                int t = state(w, parityOf(s) ^ negative(e));
+                if (backwardStamp_[t] != epoch_ || depth + 1 + backwardDist_[t] > limit) {
+                    continue;
+                }
+                depth++;
+                stackState_[depth] = t;
+                stackEdge_[depth] = e;
+                stackCursor_[depth] = graph_.getOutEdgeStart(w);
+                onPath_[w] = true;
+                advanced = true;
+                break;
+            }
+            if (!advanced) {
+                onPath_[v] = false;
+                depth--;
+            }
+        }
+
+        for (int i = 0; i <= depth; i++) {
+            onPath_[nodeOf(stackState_[i])] = false;
+        }
+        return result;
+    }
+
+    private int parityOf(int state) {
+        return signed_ ? (state & 1) : 0;
+    }
+
+    private void label(int[] stamp, int[] dist, int[] viaEdge, int state, int distance, int edge) {
+        stamp[state] = epoch_;
+        dist[state] = distance;
+        viaEdge[state] = edge;
+    }
+
+    /**
+     * Expands one forward level. Returns the meeting state with the shortest
+     * total distance found on this level, or -1.
+     */
+    private int expandForward(IntList level, IntList next) {
+        int meet = -1;
+        for (int i = 0; i < level.size(); i++) {
+            int s = level.get(i);
+            int v = nodeOf(s);
+            for (int e = graph_.getOutEdgeStart(v); e < graph_.getOutEdgeEnd(v); e++) {
+                int w = graph_.getEdgeTarget(e);
+                if (!usable(e) || bannedNode_[w] == banEpoch_) {
+                    continue;
+                }
+                int t = state(w, parityOf(s) ^ negative(e));
+                if (forwardStamp_[t] == epoch_) {
+                    continue;
+                }
+                label(forwardStamp_, forwardDist_, forwardEdge_, t, forwardDist_[s] + 1, e);
+                next.add(t);
+                if (backwardStamp_[t] == epoch_ && (meet == -1 || backwardDist_[t] < backwardDist_[meet])) {
+                    meet = t;
+                }
+            }
+        }
+        return meet;
+    }
+
+    private int expandBackward(IntList level, IntList next) {
+        int meet = -1;
+        for (int i = 0; i < level.size(); i++) {
+            int s = level.get(i);
+            int v = nodeOf(s);
+            for (int p = graph_.getInEdgeStart(v); p < graph_.getInEdgeEnd(v); p++) {
+                int e = graph_.getInEdge(p);
+                int u = graph_.getEdgeSource(e);
+                if (!usable(e) || bannedNode_[u] == banEpoch_) {
+                    continue;
+                }
+                int t = state(u, parityOf(s) ^ negative(e));
+                if (backwardStamp_[t] == epoch_) {
+                    continue;
+                }
+                label(backwardStamp_, backwardDist_, backwardEdge_, t, backwardDist_[s] + 1, e);
+                next.add(t);
+                if (forwardStamp_[t] == epoch_ && (meet == -1 || forwardDist_[t] < forwardDist_[meet])) {
+                    meet = t;
+                }
+            }
+        }
+        return meet;
+    }
+
+    private boolean isSimple(int source, int[] path) {
+        if (!signed_) {
+            return true;
+        }
+        IntList nodes = new IntList();
+        nodes.add(source);
+        for (int edge : path) {
+            int node = graph_.getEdgeTarget(edge);
+            if (nodes.contains(node)) {
+                return false;
+            }
+            nodes.add(node);
+        }
+        return true;
+    }
+
+    private static boolean sharesPrefix(int[] path, int[] other, int length) {
+        for (int i = 0; i < length; i++) {
+            if (path[i] != other[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean contains(List<int[]> paths, int[] path) {
+        for (int[] known : paths) {
+            if (Arrays.equals(known, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,267 @@
+/*
+**    Copyright (C) 2003-2015 Institute for Systems Biology
+**                            Seattle, Washington, USA.
+**
+**    This library is free software; you can redistribute it and/or
+**    modify it under the terms of the GNU Lesser General Public
+**    License as published by the Free Software Foundation; either
+**    version 2.1 of the License, or (at your option) any later version.
+**
+**    This library is distributed in the hope that it will be useful,
+**    but WITHOUT ANY WARRANTY; without even the implied warranty of
+**    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+**    Lesser General Public License for more details.
+**
+**    You should have received a copy of the GNU Lesser General Public
+**    License along with this library; if not, write to the Free Software
+**    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package org.systemsbiology.biotapestry.plugin.simulation.toolkit;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/***************************************************************************
+ *
+ * Influence structure of a converted model over genes, domains and time.
+ * A state is a gene in a domain at a time step. A link src -> trg lets
+ * (src, d, t) influence (trg, d, t + delay), the way a TimePointOperator
+ * reads its input one step back. A contact node instead influences its
+ * targets in the domains that touch d at time t, the way an
+ * ImmediateCellContactOperator reads its input from neighbouring cells.
+ *
+ * The product graph is never built: a query steps a frontier of (gene,
+ * domain) pairs, one BitSet per time step, from the source state forward.
+ * A frontier bit is domain * getNodeCount() + node.
+ *
+ */
+public class SpatioTemporalInfluenceGraph {
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PRIVATE VARIABLES
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    private CompactGraph graph_;
+    private BitSet contactNodes_;
+    private List<String> domainIDs_;
+    private Map<String, Integer> domainIndex_;
+    private int minTime_;
+    private int maxTime_;
+    private int delay_;
+
+    // Per domain, (other domain, first time, last time) triples
+    private IntList[] contacts_;
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PUBLIC CONSTRUCTORS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    /***************************************************************************
+     **
+     ** Node indices are those of graph; contactNodes marks the nodes that act
+     ** through cell contact. Time steps run from minTime to maxTime, and each
+     ** link takes delay steps, which must be positive.
+     */
+
+    public SpatioTemporalInfluenceGraph(CompactGraph graph, BitSet contactNodes, List<String> domainIDs,
+                                        int minTime, int maxTime, int delay) {
+        if (delay <= 0) {
+            throw new IllegalArgumentException("Delay must be positive: " + delay);
+        }
+        graph_ = graph;
+        contactNodes_ = (BitSet)contactNodes.clone();
+        domainIDs_ = new ArrayList<String>(domainIDs);
+        domainIndex_ = new HashMap<String, Integer>();
+        for (int i = 0; i < domainIDs_.size(); i++) {
+            domainIndex_.put(domainIDs_.get(i), Integer.valueOf(i));
+        }
+        minTime_ = minTime;
+        maxTime_ = maxTime;
+        delay_ = delay;
+        contacts_ = new IntList[domainIDs_.size()];
+        for (int i = 0; i < contacts_.length; i++) {
+            contacts_[i] = new IntList();
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PUBLIC METHODS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    /***************************************************************************
+     **
+     ** Puts two domains in contact, both ways, from fromTime to toTime
+     ** inclusive. Unknown domains are ignored, the way buildDomainTopology()
+     ** skips links to regions that are not domains.
+     */
+
+    public void addContact(String domain1, String domain2, int fromTime, int toTime) {
+        Integer first = domainIndex_.get(domain1);
+        Integer second = domainIndex_.get(domain2);
+        if (first == null || second == null) {
+            return;
+        }
+        addContact(first.intValue(), second.intValue(), fromTime, toTime);
+        addContact(second.intValue(), first.intValue(), fromTime, toTime);
+    }
+
+    public CompactGraph getGraph() {
+        return graph_;
+    }
+
+    public int getNodeCount() {
+        return graph_.getNodeCount();
+    }
+
+    public List<String> getDomainIDs() {
+        return new ArrayList<String>(domainIDs_);
+    }
+
+    public int getDomainIndex(String domainID) {
+        Integer index = domainIndex_.get(domainID);
+        return (index == null) ? -1 : index.intValue();
+    }
+
+    public int getMinTime() {
+        return minTime_;
+    }
+
+    public int getMaxTime() {
+        return maxTime_;
+    }
+
+    /**
+     * Number of states the product graph would have.
+     */
+    public long getStateCount() {
+        return (long)graph_.getNodeCount() * domainIDs_.size() * (maxTime_ - minTime_ + 1);
+    }
+
+    /***************************************************************************
+     **
+     ** States that the source state can influence at the given time, as a
+     ** frontier BitSet. Empty if time is before the source time, out of range,
+     ** or not a whole number of delays after it.
+     */
+
+    public BitSet getInfluencedStates(int node, int domain, int time, int targetTime) {
+        if (!inRange(time) || !inRange(targetTime) || targetTime < time || (targetTime - time) % delay_ != 0) {
+            return new BitSet();
+        }
+        BitSet frontier = new BitSet();
+        frontier.set(bit(node, domain));
+        for (int t = time; t < targetTime && !frontier.isEmpty(); t += delay_) {
+            frontier = step(frontier, t);
+        }
+        return frontier;
+    }
+
+    /***************************************************************************
+     **
+     ** Answers if gene node in domain at time can influence targetNode in
+     ** targetDomain at targetTime.
+     */
+
+    public boolean canInfluence(int node, int domain, int time, int targetNode, int targetDomain, int targetTime) {
+        return getInfluencedStates(node, domain, time, targetTime).get(bit(targetNode, targetDomain));
+    }
+
+    public boolean canInfluence(String nodeID, String domainID, int time,
+                                String targetNodeID, String targetDomainID, int targetTime) {
+        int node = graph_.getNodeIndex(nodeID);
+        int domain = getDomainIndex(domainID);
+        int targetNode = graph_.getNodeIndex(targetNodeID);
+        int targetDomain = getDomainIndex(targetDomainID);
+        if (node == -1 || domain == -1 || targetNode == -1 || targetDomain == -1) {
+            return false;
+        }
+        return canInfluence(node, domain, time, targetNode, targetDomain, targetTime);
+    }
+
+    /***************************************************************************
+     **
+     ** Earliest time, no later than maxTime, at which the source state
+     ** influences the target gene in the target domain, or -1 if it does
+     ** not. A state influences itself at its own time.
+     */
+
+    public int findEarliestInfluence(int node, int domain, int time, int targetNode, int targetDomain, int maxTime) {
+        if (!inRange(time)) {
+            return -1;
+        }
+        int target = bit(targetNode, targetDomain);
+        int lastTime = Math.min(maxTime, maxTime_);
+        BitSet frontier = new BitSet();
+        frontier.set(bit(node, domain));
+        for (int t = time; t <= lastTime && !frontier.isEmpty(); t += delay_) {
+            if (frontier.get(target)) {
+                return t;
+            }
+            if (t + delay_ <= lastTime) {
+                frontier = step(frontier, t);
+            }
+        }
+        return -1;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PRIVATE INSTANCE METHODS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    private void addContact(int domain, int other, int fromTime, int toTime) {
+        IntList contacts = contacts_[domain];
+        contacts.add(other);
+        contacts.add(fromTime);
+        contacts.add(toTime);
+    }
+
+    private boolean inRange(int time) {
+        return time >= minTime_ && time <= maxTime_;
+    }
+
+    private int bit(int node, int domain) {
+        return domain * graph_.getNodeCount() + node;
+    }
+
+    /***************************************************************************
+     **
+     ** Frontier at time + delay, from the frontier at time.
+     */
+
+    private BitSet step(BitSet frontier, int time) {
+        int nodeCount = graph_.getNodeCount();
+        BitSet next = new BitSet();
+        for (int b = frontier.nextSetBit(0); b >= 0; b = frontier.nextSetBit(b + 1)) {
+            int node = b % nodeCount;
+            int domain = b / nodeCount;
+            if (!contactNodes_.get(node)) {
+                for (int e = graph_.getOutEdgeStart(node); e < graph_.getOutEdgeEnd(node); e++) {
+                    next.set(bit(graph_.getEdgeTarget(e), domain));
+                }
+                continue;
+            }
+            IntList contacts = contacts_[domain];
+            for (int c = 0; c < contacts.size(); c += 3) {
+                if (time < contacts.get(c + 1) || time > contacts.get(c + 2)) {
+                    continue;
+                }
+                int other = contacts.get(c);
+                for (int e = graph_.getOutEdgeStart(node); e < graph_.getOutEdgeEnd(node); e++) {
+                    next.set(bit(graph_.getEdgeTarget(e), other));
+                }
+            }
+        }
+        return next;
+    }
+}
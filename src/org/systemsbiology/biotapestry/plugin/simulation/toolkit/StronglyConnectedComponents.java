@@ -0,0 +1,317 @@
+/*
+**    Copyright (C) 2003-2016 Institute for Systems Biology
+**                            Seattle, Washington, USA.
+**
+**    This library is free software; you can redistribute it and/or
+**    modify it under the terms of the GNU Lesser General Public
+**    License as published by the Free Software Foundation; either
+**    version 2.1 of the License, or (at your option) any later version.
+**
+**    This library is distributed in the hope that it will be useful,
+**    but WITHOUT ANY WARRANTY; without even the implied warranty of
+**    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+**    Lesser General Public License for more details.
+**
+**    You should have received a copy of the GNU Lesser General Public
+**    License along with this library; if not, write to the Free Software
+**    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package org.systemsbiology.biotapestry.plugin.simulation.toolkit;
+
+import java.util.Arrays;
+
+/***************************************************************************
+ *
+ * Strongly connected components of a CompactGraph, found with Tarjan's
+ * algorithm in O(V + E) using an explicit stack.
+ *
+ * Components are numbered in topological order of the condensation: every
+ * edge between two different components goes from a lower to a higher
+ * component number. Only edges inside a cyclic component can be part of a
+ * feedback loop.
+ *
+ */
+public class StronglyConnectedComponents {
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PRIVATE VARIABLES
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    private CompactGraph graph_;
+    private int componentCount_;
+    private int[] componentOf_;
+
+    // memberOffsets_[c] .. memberOffsets_[c + 1] - 1 index into members_
+    private int[] memberOffsets_;
+    private int[] members_;
+    private boolean[] cyclic_;
+
+    // Condensation DAG, successors of component c are
+    // successors_[successorOffsets_[c]] .. successors_[successorOffsets_[c + 1] - 1]
+    private int[] successorOffsets_;
+    private int[] successors_;
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PUBLIC CONSTRUCTORS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    public StronglyConnectedComponents(CompactGraph graph) {
+        graph_ = graph;
+        findComponents();
+        buildMembers();
+        buildCondensation();
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PUBLIC METHODS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    public CompactGraph getGraph() {
+        return graph_;
+    }
+
+    public int getComponentCount() {
+        return componentCount_;
+    }
+
+    public int getComponent(int node) {
+        return componentOf_[node];
+    }
+
+    public int getComponentSize(int component) {
+        return memberOffsets_[component + 1] - memberOffsets_[component];
+    }
+
+    /***************************************************************************
+     **
+     ** Returns the nodes of a component in increasing index order.
+     */
+
+    public int[] getComponentMembers(int component) {
+        return Arrays.copyOfRange(members_, memberOffsets_[component], memberOffsets_[component + 1]);
+    }
+
+    /***************************************************************************
+     **
+     ** Answers if the component contains a cycle, i.e. it has more than one
+     ** node or its single node has a self loop.
+     */
+
+    public boolean isCyclic(int component) {
+        return cyclic_[component];
+    }
+
+    public int getCyclicComponentCount() {
+        int count = 0;
+        for (int c = 0; c < componentCount_; c++) {
+            if (cyclic_[c]) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public boolean isIntraComponentEdge(int edge) {
+        return componentOf_[graph_.getEdgeSource(edge)] == componentOf_[graph_.getEdgeTarget(edge)];
+    }
+
+    /***************************************************************************
+     **
+     ** Returns the IDs of all edges whose ends are in the same component, in
+     ** increasing order. These are exactly the edges that lie on some cycle.
+     */
+
+    public int[] getIntraComponentEdges() {
+        int count = 0;
+        for (int e = 0; e < graph_.getEdgeCount(); e++) {
+            if (isIntraComponentEdge(e)) {
+                count++;
+            }
+        }
+
+        int[] result = new int[count];
+        count = 0;
+        for (int e = 0; e < graph_.getEdgeCount(); e++) {
+            if (isIntraComponentEdge(e)) {
+                result[count++] = e;
+            }
+        }
+        return result;
+    }
+
+    /***************************************************************************
+     **
+     ** Condensation DAG access. The successors of a component are distinct and
+     ** always have higher component numbers.
+     */
+
+    public int getSuccessorStart(int component) {
+        return successorOffsets_[component];
+    }
+
+    public int getSuccessorEnd(int component) {
+        return successorOffsets_[component + 1];
+    }
+
+    public int getSuccessor(int position) {
+        return successors_[position];
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PRIVATE INSTANCE METHODS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    /***************************************************************************
+     **
+     ** Iterative Tarjan. Components complete in reverse topological order, so
+     ** they are numbered from the top down.
+     */
+
+    private void findComponents() {
+        int nodeCount = graph_.getNodeCount();
+        int[] index = new int[nodeCount];
+        int[] lowLink = new int[nodeCount];
+        boolean[] onStack = new boolean[nodeCount];
+        int[] componentStack = new int[nodeCount];
+        int[] pathVertices = new int[nodeCount];
+        int[] pathNextEdge = new int[nodeCount];
+
+        componentOf_ = new int[nodeCount];
+        Arrays.fill(index, -1);
+
+        int nextIndex = 0;
+        int stackTop = 0;
+        int nextComponent = nodeCount - 1;
+
+        for (int root = 0; root < nodeCount; root++) {
+            if (index[root] != -1) {
+                continue;
+            }
+
+            int top = 0;
+            pathVertices[0] = root;
+            pathNextEdge[0] = graph_.getOutEdgeStart(root);
+            index[root] = lowLink[root] = nextIndex++;
+            componentStack[stackTop++] = root;
+            onStack[root] = true;
+
+            while (top >= 0) {
+                int vertex = pathVertices[top];
+                int e = pathNextEdge[top];
+
+                if (e < graph_.getOutEdgeEnd(vertex)) {
+                    pathNextEdge[top] = e + 1;
+                    int targ = graph_.getEdgeTarget(e);
+                    if (index[targ] == -1) {
+                        index[targ] = lowLink[targ] = nextIndex++;
+                        componentStack[stackTop++] = targ;
+                        onStack[targ] = true;
+                        top++;
+                        pathVertices[top] = targ;
+                        pathNextEdge[top] = graph_.getOutEdgeStart(targ);
+                    }
+                    else if (onStack[targ] && index[targ] < lowLink[vertex]) {
+                        lowLink[vertex] = index[targ];
+                    }
+                    continue;
+                }
+
+                if (lowLink[vertex] == index[vertex]) {
+                    int member;
+                    do {
+                        member = componentStack[--stackTop];
+                        onStack[member] = false;
+                        componentOf_[member] = nextComponent;
+                    } while (member != vertex);
+                    nextComponent--;
+                }
+
+                top--;
+                if (top >= 0) {
+                    int parent = pathVertices[top];
+                    if (lowLink[vertex] < lowLink[parent]) {
+                        lowLink[parent] = lowLink[vertex];
+                    }
+                }
+            }
+        }
+
+        //
+        // Shift the numbers down so that they start at zero:
+        //
+
+        componentCount_ = nodeCount - 1 - nextComponent;
+        int shift = nextComponent + 1;
+        for (int v = 0; v < nodeCount; v++) {
+            componentOf_[v] -= shift;
+        }
+    }
+
+    private void buildMembers() {
+        int nodeCount = graph_.getNodeCount();
+        memberOffsets_ = new int[componentCount_ + 1];
+        members_ = new int[nodeCount];
+        cyclic_ = new boolean[componentCount_];
+
+        for (int v = 0; v < nodeCount; v++) {
+            memberOffsets_[componentOf_[v] + 1]++;
+        }
+        for (int c = 0; c < componentCount_; c++) {
+            memberOffsets_[c + 1] += memberOffsets_[c];
+        }
+
+        int[] fill = Arrays.copyOf(memberOffsets_, componentCount_);
+        for (int v = 0; v < nodeCount; v++) {
+            members_[fill[componentOf_[v]]++] = v;
+        }
+
+        for (int c = 0; c < componentCount_; c++) {
+            cyclic_[c] = (getComponentSize(c) > 1);
+        }
+        for (int e = 0; e < graph_.getEdgeCount(); e++) {
+            if (graph_.getEdgeSource(e) == graph_.getEdgeTarget(e)) {
+                cyclic_[componentOf_[graph_.getEdgeSource(e)]] = true;
+            }
+        }
+    }
+
+    /***************************************************************************
+     **
+     ** Collects the distinct successor components of each component. lastSeen
+     ** marks the component that last recorded a successor, so duplicates are
+     ** dropped without sorting.
+     */
+
+    private void buildCondensation() {
+        successorOffsets_ = new int[componentCount_ + 1];
+        int[] lastSeen = new int[componentCount_];
+        Arrays.fill(lastSeen, -1);
+
+        int[] buffer = new int[graph_.getEdgeCount()];
+        int count = 0;
+        for (int c = 0; c < componentCount_; c++) {
+            for (int m = memberOffsets_[c]; m < memberOffsets_[c + 1]; m++) {
+                int member = members_[m];
+                for (int e = graph_.getOutEdgeStart(member); e < graph_.getOutEdgeEnd(member); e++) {
+                    int succ = componentOf_[graph_.getEdgeTarget(e)];
+                    if (succ != c && lastSeen[succ] != c) {
+                        lastSeen[succ] = c;
+                        buffer[count++] = succ;
+                    }
+                }
+            }
+            successorOffsets_[c + 1] = count;
+        }
+
+        successors_ = Arrays.copyOf(buffer, count);
+    }
+}
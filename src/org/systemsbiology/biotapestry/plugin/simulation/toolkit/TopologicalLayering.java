@@ -0,0 +1,182 @@
+/*
+**    Copyright (C) 2003-2015 Institute for Systems Biology
+**                            Seattle, Washington, USA.
+**
+**    This library is free software; you can redistribute it and/or
+**    modify it under the terms of the GNU Lesser General Public
+**    License as published by the Free Software Foundation; either
+**    version 2.1 of the License, or (at your option) any later version.
+**
+**    This library is distributed in the hope that it will be useful,
+**    but WITHOUT ANY WARRANTY; without even the implied warranty of
+**    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+**    Lesser General Public License for more details.
+**
+**    You should have received a copy of the GNU Lesser General Public
+**    License along with this library; if not, write to the Free Software
+**    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package org.systemsbiology.biotapestry.plugin.simulation.toolkit;
+
+import java.util.Arrays;
+
+/***************************************************************************
+ *
+ * Longest path layering of a CompactGraph with a set of edges left out,
+ * usually the feedback edges. Level 0 holds the nodes without remaining
+ * inbound edges, and every other node sits one level below its deepest
+ * predecessor, so all edges that are kept point from a lower to a higher
+ * level. Nodes on the same level do not depend on each other.
+ *
+ * Computed with Kahn's algorithm in O(V + E).
+ *
+ */
+public class TopologicalLayering {
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PRIVATE VARIABLES
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    private CompactGraph graph_;
+    private int[] levelOf_;
+    private int[] order_;
+
+    // Nodes of level l are levelNodes_[levelOffsets_[l]] .. levelNodes_[levelOffsets_[l + 1] - 1]
+    private int[] levelOffsets_;
+    private int[] levelNodes_;
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PUBLIC CONSTRUCTORS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    /***************************************************************************
+     **
+     ** Lays out the graph without the given edges. Throws an
+     ** IllegalStateException if the edges that remain still contain a cycle.
+     */
+
+    public TopologicalLayering(CompactGraph graph, int[] droppedEdges) {
+        graph_ = graph;
+        int nodeCount = graph.getNodeCount();
+
+        boolean[] dropped = new boolean[graph.getEdgeCount()];
+        for (int edge : droppedEdges) {
+            dropped[edge] = true;
+        }
+
+        int[] pending = new int[nodeCount];
+        for (int e = 0; e < graph.getEdgeCount(); e++) {
+            if (!dropped[e]) {
+                pending[graph.getEdgeTarget(e)]++;
+            }
+        }
+
+        levelOf_ = new int[nodeCount];
+        order_ = new int[nodeCount];
+        int head = 0;
+        int tail = 0;
+        for (int v = 0; v < nodeCount; v++) {
+            if (pending[v] == 0) {
+                order_[tail++] = v;
+            }
+        }
+
+        int levelCount = (nodeCount == 0) ? 0 : 1;
+        while (head < tail) {
+            int v = order_[head++];
+            for (int e = graph.getOutEdgeStart(v); e < graph.getOutEdgeEnd(v); e++) {
+                if (dropped[e]) {
+                    continue;
+                }
+                int w = graph.getEdgeTarget(e);
+                if (levelOf_[v] + 1 > levelOf_[w]) {
+                    levelOf_[w] = levelOf_[v] + 1;
+                    if (levelOf_[w] + 1 > levelCount) {
+                        levelCount = levelOf_[w] + 1;
+                    }
+                }
+                if (--pending[w] == 0) {
+                    order_[tail++] = w;
+                }
+            }
+        }
+
+        if (tail < nodeCount) {
+            throw new IllegalStateException("Graph still has cycles: " + (nodeCount - tail) + " nodes could not be ordered");
+        }
+
+        //
+        // Group the nodes by level, in index order within each level:
+        //
+
+        levelOffsets_ = new int[levelCount + 1];
+        for (int v = 0; v < nodeCount; v++) {
+            levelOffsets_[levelOf_[v] + 1]++;
+        }
+        for (int l = 0; l < levelCount; l++) {
+            levelOffsets_[l + 1] += levelOffsets_[l];
+        }
+        levelNodes_ = new int[nodeCount];
+        int[] fill = Arrays.copyOf(levelOffsets_, levelCount);
+        for (int v = 0; v < nodeCount; v++) {
+            levelNodes_[fill[levelOf_[v]]++] = v;
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // PUBLIC METHODS
+    //
+    ////////////////////////////////////////////////////////////////////////////
+
+    public CompactGraph getGraph() {
+        return graph_;
+    }
+
+    public int getLevelCount() {
+        return levelOffsets_.length - 1;
+    }
+
+    public int getLevel(int node) {
+        return levelOf_[node];
+    }
+
+    public int getLevelSize(int level) {
+        return levelOffsets_[level + 1] - levelOffsets_[level];
+    }
+
+    /***************************************************************************
+     **
+     ** Returns the nodes of one level in increasing index order.
+     */
+
+    public int[] getLevelNodes(int level) {
+        return Arrays.copyOfRange(levelNodes_, levelOffsets_[level], levelOffsets_[level + 1]);
+    }
+
+    /***************************************************************************
+     **
+     ** Returns the nodes grouped by level, level 0 first.
+     */
+
+    public int[][] getLevels() {
+        int[][] result = new int[getLevelCount()][];
+        for (int l = 0; l < result.length; l++) {
+            result[l] = getLevelNodes(l);
+        }
+        return result;
+    }
+
+    /***************************************************************************
+     **
+     ** Returns all nodes in a topological order of the edges that were kept.
+     */
+
+    public int[] getOrder() {
+        return order_.clone();
+    }
+}
@@ -0,0 +1,37 @@
+/*
+**    Copyright (C) 2003-2015 Institute for Systems Biology
+**                            Seattle, Washington, USA.
+**
+**    This library is free software; you can redistribute it and/or
+**    modify it under the terms of the GNU Lesser General Public
+**    License as published by the Free Software Foundation; either
+**    version 2.1 of the License, or (at your option) any later version.
+**
+**    This library is distributed in the hope that it will be useful,
+**    but WITHOUT ANY WARRANTY; without even the implied warranty of
+**    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+**    Lesser General Public License for more details.
+**
+**    You should have received a copy of the GNU Lesser General Public
+**    License along with this library; if not, write to the Free Software
+**    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package org.systemsbiology.biotapestry.plugin.simulation.toolkit;
+
+import org.systemsbiology.biotapestry.simulation.ModelSource;
+
+/***************************************************************************
+ *
+ * A ModelSource that can tell cheaply if its root model has changed.
+ * ModelGraphAnalysis reads the nodes and links again only when the version
+ * differs from the one it last saw.
+ *
+ */
+public interface VersionedModelSource extends ModelSource {
+
+    /**
+     * Changes whenever a root model node or link is added, removed or
+     * changed. Sources that never change may return a constant.
+     */
+    public long getModelVersion();
+}